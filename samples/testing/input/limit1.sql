@@ -0,0 +1 @@
+SELECT * FROM Student ORDER BY Student.B LIMIT 3 OFFSET 2;
@@ -0,0 +1 @@
+SELECT Student.A FROM Student LIMIT 2 OFFSET 1;
@@ -0,0 +1 @@
+SELECT Student.B, SUM(Student.C) FROM Student GROUP BY Student.B ORDER BY Student.B LIMIT 2;
@@ -0,0 +1,88 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.utility.TableStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static ed.inf.adbs.blazedb.Helper.replaceFile;
+
+/**
+ * Command-line tool collecting the statistics of the tables of a database (ANALYZE).
+ * Each table is scanned once, and tables are scanned in parallel. The statistics are written
+ * to `stats.txt` next to `schema.txt`, where the catalog finds them; the statistics of a table
+ * are ignored once its CSV file changes, until the table is analyzed again.
+ */
+public class Analyzer {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.err.println("Usage: Analyzer database_dir [Table ...]");
+			return;
+		}
+
+		DatabaseCatalog catalog = DatabaseCatalog.getInstance(args[0]);
+		List<String> tableNames = args.length > 1
+				? Arrays.asList(Arrays.copyOfRange(args, 1, args.length))
+				: new ArrayList<>(new TreeSet<>(catalog.getTableSchemas().keySet()));
+		for (String tableName : analyze(catalog, tableNames)) {
+			System.out.println("Analyzed table " + tableName);
+		}
+	}
+
+	/**
+	 * Collects the statistics of tables of the catalog and writes the statistics file.
+	 * The statistics of the other tables are kept if they are still up to date.
+	 *
+	 * @param catalog The database catalog.
+	 * @param tableNames The names of the tables to analyze.
+	 * @return The names of the analyzed tables.
+	 * @throws IOException If a table cannot be read or the statistics file cannot be written.
+	 * @throws IllegalArgumentException If a table does not exist.
+	 */
+	public static List<String> analyze(DatabaseCatalog catalog, List<String> tableNames) throws IOException {
+		for (String tableName : tableNames) {
+			if (catalog.getTableSchema(tableName) == null) {
+				throw new IllegalArgumentException("Table not found in schema: " + tableName);
+			}
+		}
+
+		Map<String, TableStatistics> statistics = new HashMap<>();
+		for (String tableName : catalog.getTableSchemas().keySet()) {
+			TableStatistics current = catalog.getTableStatistics(tableName);
+			if (current != null) statistics.put(tableName, current);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(tableNames.size(), Runtime.getRuntime().availableProcessors())));
+		try {
+			Map<String, Future<TableStatistics>> scans = new LinkedHashMap<>();
+			for (String tableName : tableNames) {
+				scans.put(tableName, executor.submit(() -> TableStatistics.collect(
+						catalog.getTableFile(tableName), catalog.getTableSchema(tableName).size())));
+			}
+			for (Map.Entry<String, Future<TableStatistics>> scan : scans.entrySet()) {
+				statistics.put(scan.getKey(), scan.getValue().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while analyzing tables", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException("Error analyzing tables", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		File statisticsFile = catalog.getStatisticsFile();
+		File tempFile = new File(statisticsFile.getPath() + ".tmp");
+		TableStatistics.write(statistics, catalog.getTableSchemas(), tempFile);
+		replaceFile(tempFile, statisticsFile);
+		return tableNames;
+	}
+}
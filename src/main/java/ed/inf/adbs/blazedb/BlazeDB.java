@@ -3,7 +3,9 @@ package ed.inf.adbs.blazedb;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.Arrays;
 
+import ed.inf.adbs.blazedb.utility.Binder;
 import ed.inf.adbs.blazedb.utility.Parser;
 import ed.inf.adbs.blazedb.operator.Operator;
 import ed.inf.adbs.blazedb.utility.Planner;
@@ -13,29 +15,33 @@ import ed.inf.adbs.blazedb.utility.Planner;
  * <p>
  * Feel free to modify/move the provided functions. However, you must keep
  * the existing command-line interface, which consists of three arguments.
+ * Optional `--name=value` settings (see {@link ExecutionConfig}) may follow them.
  *
  */
 public class BlazeDB {
 
 	public static void main(String[] args) throws IOException {
 
-		if (args.length != 3) {
-			System.err.println("Usage: BlazeDB database_dir input_file output_file");
+		if (args.length < 3) {
+			System.err.println("Usage: BlazeDB database_dir input_file output_file [--sort-buffer=tuples] [--mmap-scan=true|false]"
+					+ " [--parallelism=threads] [--agg-groups=groups] [--join-buffer=tuples] [--hash-join-rows=rows]"
+					+ " [--radix-join-rows=rows]");
 			return;
 		}
 
 		String databaseDir = args[0];
 		String inputFile = args[1];
 		String outputFile = args[2];
+		ExecutionConfig.getInstance().applyOptions(Arrays.copyOfRange(args, 3, args.length));
 
 		DatabaseCatalog catalog = DatabaseCatalog.getInstance(databaseDir);
 		Parser parser = new Parser(inputFile);
-		Planner planner = new Planner(parser);
+		Planner planner = new Planner(Binder.bind(parser));
 		execute(planner.buildQueryPlan(), outputFile);
 	}
 
 	/**
-	 * Executes the provided query plan by repeatedly calling `getNextTuple()`
+	 * Executes the provided query plan by repeatedly calling `getNextBatch()`
 	 * on the root object of the operator tree. Writes the result to `outputFile`.
 	 *
 	 * @param root The root operator of the operator tree (assumed to be non-null).
@@ -46,12 +52,14 @@ public class BlazeDB {
 			// Create a BufferedWriter
 			BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
 
-			// Iterate over the tuples produced by root
-			Tuple tuple = root.getNextTuple();
-			while (tuple != null) {
-				writer.write(tuple.toCSV());
-				writer.newLine();
-				tuple = root.getNextTuple();
+			// Iterate over the batches produced by root
+			TupleBatch batch = root.getNextBatch();
+			while (batch != null) {
+				for (int i = 0; i < batch.getSize(); i++) {
+					writer.write(batch.toCSV(i));
+					writer.newLine();
+				}
+				batch = root.getNextBatch();
 			}
 
 			// Close the writer
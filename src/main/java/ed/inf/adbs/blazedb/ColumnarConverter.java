@@ -0,0 +1,86 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.utility.ColumnarFile;
+import ed.inf.adbs.blazedb.utility.ZoneMap;
+
+import java.io.File;
+import java.io.IOException;
+
+import static ed.inf.adbs.blazedb.Helper.replaceFile;
+
+/**
+ * Command-line tool converting the CSV tables of a database into the columnar format.
+ * Each table listed in `schema.txt` is written to `data/<table>.col`, which BlazeDB then
+ * reads instead of the CSV file until the size or modification time of the CSV file changes.
+ * The zone map of each table (`data/<table>.zmap`) is written alongside.
+ * The columnar format stores 32-bit integers: a table holding a value outside that range is
+ * reported and left out, and BlazeDB keeps scanning its CSV file.
+ */
+public class ColumnarConverter {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 1) {
+			System.err.println("Usage: ColumnarConverter database_dir");
+			System.err.println("Values must fit in 32-bit integers; tables that do not are left in CSV format.");
+			return;
+		}
+
+		DatabaseCatalog catalog = DatabaseCatalog.getInstance(args[0]);
+		for (String tableName : catalog.getTableSchemas().keySet()) {
+			try {
+				convertTable(catalog, tableName);
+				System.out.println("Converted table " + tableName);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Skipped table " + tableName + ", which is still read from its CSV file: " + e.getMessage());
+			}
+			try {
+				writeZoneMap(catalog, tableName);
+			} catch (NumberFormatException e) {
+				System.err.println("Skipped zone map of table " + tableName + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Converts one table of the catalog into the columnar format.
+	 *
+	 * @param catalog The database catalog.
+	 * @param tableName The name of the table to convert.
+	 * @throws IOException If the table cannot be read or the columnar file cannot be written.
+	 * @throws IllegalArgumentException If a value does not fit in 32 bits or a row is malformed;
+	 *         the columnar file is then left as it was.
+	 */
+	public static void convertTable(DatabaseCatalog catalog, String tableName) throws IOException {
+		File columnarFile = catalog.getColumnarFiles().get(tableName);
+		File tempFile = new File(columnarFile.getPath() + ".tmp");
+		try {
+			ColumnarFile.write(catalog.getTableFile(tableName), tempFile, catalog.getTableSchema(tableName).size());
+		} catch (IllegalArgumentException e) {
+			tempFile.delete();
+			throw e;
+		}
+		replaceFile(tempFile, columnarFile);
+	}
+
+	/**
+	 * Writes the zone map of one table of the catalog.
+	 *
+	 * @param catalog The database catalog.
+	 * @param tableName The name of the table.
+	 * @throws IOException If the table cannot be read or the zone map cannot be written.
+	 * @throws NumberFormatException If a row is malformed; the zone map is then left as it was.
+	 */
+	public static void writeZoneMap(DatabaseCatalog catalog, String tableName) throws IOException {
+		File zoneMapFile = catalog.getZoneMapFiles().get(tableName);
+		File tempFile = new File(zoneMapFile.getPath() + ".tmp");
+		try {
+			ZoneMap.write(catalog.getTableFile(tableName), tempFile,
+					catalog.getTableSchema(tableName).size(), ZoneMap.BLOCK_SIZE);
+		} catch (NumberFormatException e) {
+			tempFile.delete();
+			throw e;
+		}
+		replaceFile(tempFile, zoneMapFile);
+	}
+}
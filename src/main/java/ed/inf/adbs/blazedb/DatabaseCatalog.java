@@ -1,5 +1,9 @@
 package ed.inf.adbs.blazedb;
 
+import ed.inf.adbs.blazedb.utility.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.utility.ColumnarFile;
+import ed.inf.adbs.blazedb.utility.TableStatistics;
+import ed.inf.adbs.blazedb.utility.ZoneMap;
 import lombok.Getter;
 import java.io.*;
 import java.util.*;
@@ -12,9 +16,17 @@ import java.util.*;
 public class DatabaseCatalog {
     @Getter
     private static DatabaseCatalog instance = null;
+    private static final int ROW_COUNT_SAMPLE = 64; // Rows read to estimate the average row length
     private final String databaseDir;
     private final Map<String, List<String>> tableSchemas; // TableName -> Column Names
     private final Map<String, File> tableFiles; // TableName -> File object
+    private final Map<String, File> columnarFiles; // TableName -> Columnar File object (may not exist)
+    private final Map<String, File> zoneMapFiles; // TableName -> Zone map File object (may not exist)
+    private final Map<String, Map<String, File>> indexFiles; // TableName -> Column Name -> Index File object (may not exist)
+    private final Map<String, Long> rowCounts; // TableName -> Estimated number of rows, computed on first use
+    private final File statisticsFile; // Statistics collected by Analyzer (may not exist)
+    private Map<String, TableStatistics> statistics; // TableName -> Statistics, loaded on first use
+    private long statisticsLoadedAt; // Modification time of the statistics file when it was loaded
 
     /**
      * Private constructor for Singleton pattern. Initializes the database directory and loads table metadata.
@@ -25,6 +37,11 @@ public class DatabaseCatalog {
         this.databaseDir = databaseDir;
         this.tableSchemas = new HashMap<>();
         this.tableFiles = new HashMap<>();
+        this.columnarFiles = new HashMap<>();
+        this.zoneMapFiles = new HashMap<>();
+        this.indexFiles = new HashMap<>();
+        this.rowCounts = new HashMap<>();
+        this.statisticsFile = new File(databaseDir + File.separator + "stats.txt");
         loadSchema();
     }
 
@@ -64,6 +81,14 @@ public class DatabaseCatalog {
 
                 tableSchemas.put(tableName, columns);
                 tableFiles.put(tableName, new File(databaseDir + File.separator + "data" + File.separator + tableName + ".csv"));
+                columnarFiles.put(tableName, new File(databaseDir + File.separator + "data" + File.separator + tableName + ".col"));
+                zoneMapFiles.put(tableName, new File(databaseDir + File.separator + "data" + File.separator + tableName + ".zmap"));
+
+                Map<String, File> columnIndexFiles = new HashMap<>();
+                for (String column : columns) {
+                    columnIndexFiles.put(column, new File(databaseDir + File.separator + "data" + File.separator + tableName + "." + column + ".idx"));
+                }
+                indexFiles.put(tableName, columnIndexFiles);
             }
         } catch (IOException e) {
             throw new RuntimeException("Error loading schema.txt", e);
@@ -80,6 +105,175 @@ public class DatabaseCatalog {
         return tableFiles.get(tableName);
     }
 
+    /**
+     * Retrieves the columnar file of a given table, if it should be preferred over the CSV file.
+     * A columnar file is used only when it exists and the CSV file still has the size and
+     * modification time it had when it was converted, so edits to the CSV file are never silently ignored.
+     *
+     * @param tableName The name of the table.
+     * @return The File object representing the table's columnar file, or null if there is no up-to-date one.
+     * @throws RuntimeException if the columnar file cannot be read.
+     */
+    public File getColumnarFile(String tableName) {
+        File columnarFile = columnarFiles.get(tableName);
+        File tableFile = tableFiles.get(tableName);
+        if (columnarFile == null || !columnarFile.isFile()) {
+            return null;
+        }
+
+        try (ColumnarFile file = new ColumnarFile(columnarFile)) {
+            return file.isUpToDate(tableFile) ? columnarFile : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading columnar file of " + tableName, e);
+        }
+    }
+
+    /**
+     * Loads the zone map of a given table, if it is up to date with the CSV file: the zone map
+     * is ignored once the size or modification time of the CSV file has changed.
+     *
+     * @param tableName The name of the table.
+     * @return The table's zone map, or null if there is no up-to-date one.
+     * @throws RuntimeException if the zone map file cannot be read.
+     */
+    public ZoneMap getZoneMap(String tableName) {
+        File zoneMapFile = zoneMapFiles.get(tableName);
+        File tableFile = tableFiles.get(tableName);
+        if (zoneMapFile == null || !zoneMapFile.isFile()) {
+            return null;
+        }
+
+        try {
+            ZoneMap zoneMap = ZoneMap.load(zoneMapFile);
+            return zoneMap.isUpToDate(tableFile) ? zoneMap : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading zone map of " + tableName, e);
+        }
+    }
+
+    /**
+     * Retrieves the index file of a column, whether or not the index has been built.
+     *
+     * @param tableName The name of the table.
+     * @param columnName The name of the column.
+     * @return The File object representing the column's index file, or null if the column does not exist.
+     */
+    public File getIndexFile(String tableName, String columnName) {
+        return indexFiles.getOrDefault(tableName, Collections.emptyMap()).get(columnName);
+    }
+
+    /**
+     * Opens the index of a column, if it is up to date with the CSV file: the index is ignored
+     * once the size or modification time of the CSV file has changed.
+     *
+     * @param tableName The name of the table.
+     * @param columnName The name of the column.
+     * @return The column's index, or null if there is no up-to-date one.
+     * @throws RuntimeException if the index file cannot be read.
+     */
+    public BPlusTreeIndex getIndex(String tableName, String columnName) {
+        File indexFile = getIndexFile(tableName, columnName);
+        File tableFile = tableFiles.get(tableName);
+        if (indexFile == null || !indexFile.isFile()) {
+            return null;
+        }
+
+        try {
+            BPlusTreeIndex index = new BPlusTreeIndex(indexFile);
+            return index.isUpToDate(tableFile) ? index : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading index of " + tableName + "." + columnName, e);
+        }
+    }
+
+    /**
+     * Retrieves the statistics of a table collected by {@code Analyzer}, if they are up to date.
+     * The statistics file is read on first use, and read again if it has been rewritten since.
+     * Statistics are ignored once the size or modification time of the CSV file has changed.
+     *
+     * @param tableName The name of the table.
+     * @return The table's statistics, or null if there are no up-to-date ones.
+     * @throws RuntimeException if the statistics file cannot be read.
+     */
+    public synchronized TableStatistics getTableStatistics(String tableName) {
+        if (statistics == null || statisticsFile.lastModified() != statisticsLoadedAt) {
+            statisticsLoadedAt = statisticsFile.lastModified();
+            rowCounts.clear();
+            try {
+                statistics = statisticsFile.isFile() ? TableStatistics.read(statisticsFile) : Map.of();
+            } catch (IOException e) {
+                throw new RuntimeException("Error loading statistics", e);
+            }
+        }
+
+        TableStatistics tableStatistics = statistics.get(tableName);
+        File tableFile = tableFiles.get(tableName);
+        if (tableStatistics == null || tableFile == null || !tableStatistics.isUpToDate(tableFile)
+                || tableStatistics.getColumnCount() != tableSchemas.get(tableName).size()) {
+            return null;
+        }
+        return tableStatistics;
+    }
+
+    /**
+     * Estimates the number of rows of a table. Up-to-date statistics or an up-to-date index
+     * hold the exact count; otherwise the size of the CSV file is divided by the average
+     * length of its first rows.
+     *
+     * @param tableName The name of the table.
+     * @return The estimated number of rows.
+     * @throws RuntimeException if the table file cannot be read.
+     */
+    public long estimateRowCount(String tableName) {
+        TableStatistics tableStatistics = getTableStatistics(tableName);
+        if (tableStatistics != null) {
+            return tableStatistics.getRowCount();
+        }
+        return rowCounts.computeIfAbsent(tableName, this::computeRowCount);
+    }
+
+    /**
+     * Estimates the number of distinct values of a column from the table's statistics.
+     *
+     * @param tableName The name of the table.
+     * @param columnName The name of the column.
+     * @return The estimated number of distinct values, or -1 if there are no up-to-date statistics.
+     */
+    public long estimateDistinctValues(String tableName, String columnName) {
+        TableStatistics tableStatistics = getTableStatistics(tableName);
+        int column = tableSchemas.get(tableName).indexOf(columnName);
+        return tableStatistics == null || column < 0 ? -1 : tableStatistics.getDistinctValues(column);
+    }
+
+    /**
+     * Computes the row count estimate of a table.
+     */
+    private long computeRowCount(String tableName) {
+        for (String column : tableSchemas.get(tableName)) {
+            BPlusTreeIndex index = getIndex(tableName, column);
+            if (index != null) {
+                return index.getEntryCount();
+            }
+        }
+
+        File tableFile = tableFiles.get(tableName);
+        long sampledBytes = 0;
+        int sampledRows = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(tableFile))) {
+            String line;
+            while (sampledRows < ROW_COUNT_SAMPLE && (line = reader.readLine()) != null) {
+                sampledBytes += line.length() + 1;
+                if (!line.isBlank()) sampledRows++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading " + tableFile, e);
+        }
+        if (sampledRows < ROW_COUNT_SAMPLE) {
+            return sampledRows; // The whole file was read
+        }
+        return Math.round((double) tableFile.length() * sampledRows / sampledBytes);
+    }
+
     /**
      * Retrieves the schema (list of column names) for a given table.
      *
@@ -0,0 +1,115 @@
+package ed.inf.adbs.blazedb;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ExecutionConfig is a singleton class holding the tunable execution settings of BlazeDB,
+ * such as the memory budgets of the blocking operators.
+ * Settings can be changed programmatically or through optional `--name=value` command-line options.
+ */
+@Getter
+@Setter
+public class ExecutionConfig {
+    @Getter
+    private static final ExecutionConfig instance = new ExecutionConfig();
+
+    public static final int DEFAULT_SORT_BUFFER_SIZE = 100_000;
+    public static final int DEFAULT_AGGREGATION_GROUP_BUDGET = 1_000_000;
+    public static final int DEFAULT_JOIN_BUFFER_SIZE = 100_000;
+    public static final int DEFAULT_HASH_JOIN_BUILD_LIMIT = 1_000_000;
+    public static final int DEFAULT_RADIX_JOIN_ROWS = 250_000;
+
+    private int sortBufferSize = DEFAULT_SORT_BUFFER_SIZE; // Max tuples held in memory per sorted run
+    private boolean memoryMappedScan = true; // Whether table files are memory-mapped by ScanOperator
+    private int aggregationGroupBudget = DEFAULT_AGGREGATION_GROUP_BUDGET; // Max groups (or distinct rows) held in memory by SumOperator and DistinctOperator
+    private int joinBufferSize = DEFAULT_JOIN_BUFFER_SIZE; // Max rows buffered by a block nested loop join, per side
+    private int hashJoinBuildLimit = DEFAULT_HASH_JOIN_BUILD_LIMIT; // Max estimated rows hashed by a hash join; larger joins are sort-merge joins
+    private int radixJoinRows = DEFAULT_RADIX_JOIN_ROWS; // Min estimated rows hashed by a radix-partitioned join instead of a single hash table
+    private int parallelism = Runtime.getRuntime().availableProcessors(); // Worker threads of parallel operators; 1 runs every query serially
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ForkJoinPool workerPool; // Created on first use, with parallelism threads
+
+    /**
+     * Private constructor for Singleton pattern.
+     */
+    private ExecutionConfig() {
+    }
+
+    /**
+     * Applies a list of command-line options of the form `--name=value`.
+     *
+     * @param options The options to apply.
+     * @throws IllegalArgumentException if an option is malformed or unknown.
+     */
+    public void applyOptions(String[] options) {
+        for (String option : options) {
+            String[] parts = option.split("=", 2);
+            if (parts.length != 2 || !parts[0].startsWith("--")) {
+                throw new IllegalArgumentException("Invalid option format: " + option);
+            }
+
+            switch (parts[0]) {
+                case "--sort-buffer" -> sortBufferSize = parsePositive(parts[0], parts[1]);
+                case "--mmap-scan" -> memoryMappedScan = parseBoolean(parts[0], parts[1]);
+                case "--agg-groups" -> aggregationGroupBudget = parsePositive(parts[0], parts[1]);
+                case "--join-buffer" -> joinBufferSize = parsePositive(parts[0], parts[1]);
+                case "--hash-join-rows" -> hashJoinBuildLimit = parsePositive(parts[0], parts[1]);
+                case "--radix-join-rows" -> radixJoinRows = parsePositive(parts[0], parts[1]);
+                case "--parallelism" -> parallelism = parsePositive(parts[0], parts[1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + parts[0]);
+            }
+        }
+    }
+
+    /**
+     * Returns the pool of worker threads running parallel operators, with as many threads as
+     * the configured parallelism. The pool is replaced when the parallelism changes.
+     *
+     * @return The worker pool.
+     */
+    public synchronized ForkJoinPool getWorkerPool() {
+        if (workerPool == null || workerPool.getParallelism() != parallelism) {
+            if (workerPool != null) {
+                workerPool.shutdown();
+            }
+            workerPool = new ForkJoinPool(parallelism);
+        }
+        return workerPool;
+    }
+
+    /**
+     * Parses a boolean option value.
+     *
+     * @param name The option name, used in error messages.
+     * @param value The option value, either "true" or "false".
+     * @return The parsed value.
+     * @throws IllegalArgumentException if the value is not a boolean.
+     */
+    private static boolean parseBoolean(String name, String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Option " + name + " must be true or false: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Parses a strictly positive integer option value.
+     *
+     * @param name The option name, used in error messages.
+     * @param value The option value.
+     * @return The parsed value.
+     * @throws IllegalArgumentException if the value is not a positive integer.
+     */
+    private static int parsePositive(String name, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Option " + name + " must be positive: " + value);
+        }
+        return parsed;
+    }
+}
@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb;
 
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import java.io.*;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -8,9 +9,9 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
- * Helper class providing utility methods for CSV parsing, schema indexing, and expression extraction.
- * Includes methods for parsing CSV files, comparing CSV contents, retrieving column indices,
- * identifying compared tables, and extracting expressions from SQL queries.
+ * Helper class providing utility methods for CSV parsing and expression extraction.
+ * Includes methods for parsing CSV files, comparing CSV contents, replacing files,
+ * and extracting expressions from SQL queries.
  */
 public class Helper {
 
@@ -61,79 +62,51 @@ public class Helper {
     }
 
     /**
-     * Retrieves the column indices based on an SQL expression.
+     * Splits an expression into its top-level AND conjuncts.
      *
-     * @param expression   The SQL expression.
-     * @param tableOrder   The list of tables in join order.
-     * @return A list of column indices corresponding to the expression.
+     * @param expression The SQL expression (e.g., a WHERE clause), may be null.
+     * @return The list of conjuncts, or an empty list if the expression is null.
      */
-    public static List<Integer> getIndices(Expression expression, List<String> tableOrder) {
-        return getIndices(expression.toString(), tableOrder);
+    public static List<Expression> getConjuncts(Expression expression) {
+        List<Expression> conjuncts = new ArrayList<>();
+        if (expression instanceof AndExpression) {
+            AndExpression andExpr = (AndExpression) expression;
+            conjuncts.addAll(getConjuncts(andExpr.getLeftExpression()));
+            conjuncts.addAll(getConjuncts(andExpr.getRightExpression()));
+        } else if (expression != null) {
+            conjuncts.add(expression);
+        }
+        return conjuncts;
     }
 
     /**
-     * Retrieves the column indices based on an SQL expression in string format.
+     * Combines conjuncts into a single AND expression.
      *
-     * @param expression   The string representation of an SQL expression.
-     * @param tableOrder   The list of tables in join order.
-     * @return A list of column indices corresponding to the expression.
-     * @throws IllegalArgumentException If the expression format is invalid or table/column is not found.
+     * @param conjuncts The conjuncts.
+     * @return The conjunction, or null if there are no conjuncts.
      */
-    public static List<Integer> getIndices(String expression, List<String> tableOrder) {
-        List<Integer> indices = new ArrayList<>();
-        return resolveIndices(expression, tableOrder, indices);
+    public static Expression conjunction(List<Expression> conjuncts) {
+        Expression result = null;
+        for (Expression conjunct : conjuncts) {
+            result = result == null ? conjunct : new AndExpression(result, conjunct);
+        }
+        return result;
     }
 
     /**
-     * Resolves column indices based on a given expression and table order.
+     * Moves a freshly written file over its destination.
      *
-     * @param expression   The column expression (e.g., "table.column").
-     * @param tableOrder   The list of tables in join order.
-     * @param indices      The list of resolved indices.
-     * @return A list of column indices corresponding to the expression.
-     * @throws IllegalArgumentException If the column or table is not found.
+     * @param source The new file.
+     * @param destination The file to replace.
+     * @throws IOException If the file cannot be replaced.
      */
-    private static List<Integer> resolveIndices(String expression,
-                                                List<String> tableOrder,
-                                                List<Integer> indices) {
-        String[] parts = expression.split("\\.");
-        if (parts.length != 2) {
-            throw new IllegalArgumentException("Invalid column expression: " + expression);
-        }
-
-        String tableName = parts[0];
-        String columnName = parts[1];
-        Map<String, List<String>> tableSchemas = DatabaseCatalog.getInstance().getTableSchemas(tableOrder);
-
-        if (!DatabaseCatalog.getInstance().getTableSchemas().containsKey(tableName)) {
-            throw new IllegalArgumentException("Table not found in schema: " + tableName);
-        }
-
-        if (!tableSchemas.containsKey(tableName)) {
-            indices.add(-2);
-            return indices;
-        }
-
-        List<String> schema = tableSchemas.get(tableName);
-
-        int offset = 0;
-        for (int i = 0; i < tableOrder.indexOf(tableName); i++) {
-            offset += tableSchemas.get(tableOrder.get(i)).size();
-        }
-
-        if (columnName.equals("*")) {
-            for (int i = 0; i < schema.size(); i++) {
-                indices.add(offset + i);
-            }
-        } else {
-            int columnIndex = schema.indexOf(columnName);
-            if (columnIndex == -1) {
-                throw new IllegalArgumentException("Column not found in schema: " + columnName);
+    public static void replaceFile(File source, File destination) throws IOException {
+        if (!source.renameTo(destination)) {
+            destination.delete();
+            if (!source.renameTo(destination)) {
+                throw new IOException("Cannot replace file: " + destination);
             }
-            indices.add(offset + columnIndex);
         }
-
-        return indices;
     }
 
     /**
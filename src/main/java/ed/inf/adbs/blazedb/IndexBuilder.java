@@ -0,0 +1,57 @@
+package ed.inf.adbs.blazedb;
+
+import ed.inf.adbs.blazedb.utility.BPlusTreeIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static ed.inf.adbs.blazedb.Helper.replaceFile;
+
+/**
+ * Command-line tool building B+-tree indexes over columns of a database.
+ * The index of `Table.Column` is written to `data/Table.Column.idx`. The planner uses it for
+ * selective conditions on that column until the size or modification time of the CSV file changes.
+ */
+public class IndexBuilder {
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.err.println("Usage: IndexBuilder database_dir Table.Column [Table.Column ...]");
+			return;
+		}
+
+		DatabaseCatalog catalog = DatabaseCatalog.getInstance(args[0]);
+		for (int i = 1; i < args.length; i++) {
+			String[] parts = args[i].split("\\.");
+			if (parts.length != 2) {
+				System.err.println("Invalid column: " + args[i]);
+				return;
+			}
+			buildIndex(catalog, parts[0], parts[1]);
+			System.out.println("Built index on " + args[i]);
+		}
+	}
+
+	/**
+	 * Builds the index of one column of the catalog.
+	 *
+	 * @param catalog The database catalog.
+	 * @param tableName The name of the table.
+	 * @param columnName The name of the column to index.
+	 * @throws IOException If the table cannot be read or the index file cannot be written.
+	 * @throws IllegalArgumentException If the table or column does not exist.
+	 */
+	public static void buildIndex(DatabaseCatalog catalog, String tableName, String columnName) throws IOException {
+		List<String> schema = catalog.getTableSchema(tableName);
+		if (schema == null || !schema.contains(columnName)) {
+			throw new IllegalArgumentException("Unknown column: " + tableName + "." + columnName);
+		}
+
+		File indexFile = catalog.getIndexFile(tableName, columnName);
+		File tempFile = new File(indexFile.getPath() + ".tmp");
+		BPlusTreeIndex.write(catalog.getTableFile(tableName), tempFile, schema.size(), schema.indexOf(columnName));
+		replaceFile(tempFile, indexFile);
+	}
+}
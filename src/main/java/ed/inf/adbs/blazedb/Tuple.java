@@ -1,46 +1,149 @@
 package ed.inf.adbs.blazedb;
 
 import lombok.Data;
-import java.util.List;
-import java.util.Arrays;
 
 /**
  * Represents a row (tuple) in a database table.
- * Each tuple stores its attribute values as a list of strings.
+ * Each tuple stores its attribute values as a primitive array of integers,
+ * parsed once when the row is read so that operators never re-parse text.
  */
 @Data
 public class Tuple {
-    private List<String> values; // Stores column values as an immutable list
+    private final long[] values; // Stores column values, never modified after construction
 
     /**
-     * Constructs a Tuple from an array of attribute values.
-     * The values are stored as a list using Arrays.asList(), which creates a fixed-size list.
+     * Constructs a Tuple from an array of primitive attribute values.
+     * The array is used as-is and must not be modified afterwards.
      *
      * @param values An array of attribute values.
      */
+    public Tuple(long[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Constructs a Tuple from an array of textual attribute values.
+     * Surrounding whitespace is ignored.
+     *
+     * @param values An array of attribute values.
+     * @throws NumberFormatException if a value is not an integer.
+     */
     public Tuple(String[] values) {
-        this.values = Arrays.asList(values);
+        this.values = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = Long.parseLong(values[i].trim());
+        }
+    }
+
+    /**
+     * Parses a CSV line (e.g. "1, 200, 50") into a Tuple without intermediate strings.
+     *
+     * @param line The CSV line.
+     * @return The parsed tuple.
+     * @throws NumberFormatException if a field is not an integer.
+     */
+    public static Tuple fromCSV(String line) {
+        int fields = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') fields++;
+        }
+
+        long[] values = new long[fields];
+        parseCSV(line, values);
+        return new Tuple(values);
+    }
+
+    /**
+     * Parses a CSV line (e.g. "1, 200, 50") into a caller-provided array, so that
+     * batch scans can reuse a single row buffer. Whitespace is allowed around a field,
+     * but not within it.
+     *
+     * @param line The CSV line.
+     * @param values The array receiving the values; must hold every field of the line.
+     * @return The number of fields parsed.
+     * @throws NumberFormatException if a field is not an integer that fits in a long,
+     *         or the line has more fields than the array.
+     */
+    public static int parseCSV(String line, long[] values) {
+        int field = 0;
+        long value = 0;
+        boolean negative = false;
+        boolean hasDigits = false;
+        boolean ended = false; // Whitespace followed the digits of the field
+        for (int i = 0; i <= line.length(); i++) {
+            char c = i < line.length() ? line.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                if (ended || value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    throw new NumberFormatException("Invalid CSV line: " + line);
+                }
+                value = value * 10 + (c - '0');
+                hasDigits = true;
+            } else if (c == '-' && !hasDigits && !negative) {
+                negative = true;
+            } else if (c == ',') {
+                if (!hasDigits || field == values.length) {
+                    throw new NumberFormatException("Invalid CSV line: " + line);
+                }
+                values[field++] = negative ? -value : value;
+                value = 0;
+                negative = false;
+                hasDigits = false;
+                ended = false;
+            } else if (Character.isWhitespace(c) && (hasDigits || !negative)) { // Not between sign and digits
+                ended = hasDigits;
+            } else {
+                throw new NumberFormatException("Invalid CSV line: " + line);
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Concatenates two tuples, as done when joining a left and a right tuple.
+     *
+     * @param left The left tuple.
+     * @param right The right tuple.
+     * @return A new tuple holding the values of the left tuple followed by those of the right tuple.
+     */
+    public static Tuple concat(Tuple left, Tuple right) {
+        long[] combined = new long[left.values.length + right.values.length];
+        System.arraycopy(left.values, 0, combined, 0, left.values.length);
+        System.arraycopy(right.values, 0, combined, left.values.length, right.values.length);
+        return new Tuple(combined);
     }
 
     /**
      * Retrieves the value at the specified column index.
-     * Note: This method removes all whitespace from the retrieved value.
      *
      * @param index The column index (zero-based).
-     * @return The value at the given index with all whitespace removed.
+     * @return The value at the given index.
      * @throws IndexOutOfBoundsException if the index is out of range.
      */
-    public String getValue(int index) {
-        return values.get(index).replaceAll("\\s", "");
+    public long getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the number of values in the tuple.
+     *
+     * @return The tuple arity.
+     */
+    public int size() {
+        return values.length;
     }
 
     /**
      * Converts the tuple into a CSV-formatted string.
-     * Each value is joined by a comma without additional formatting.
+     * Values are separated by a comma and a space, as in the table files.
      *
      * @return A string representation of the tuple in CSV format.
      */
     public String toCSV() {
-        return String.join(",", values);
+        StringBuilder builder = new StringBuilder(values.length * 6);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(values[i]);
+        }
+        return builder.toString();
     }
 }
@@ -0,0 +1,150 @@
+package ed.inf.adbs.blazedb;
+
+import lombok.Getter;
+
+/**
+ * Represents a batch of rows stored column by column, used for batch-at-a-time execution.
+ * Each column is a primitive array holding up to {@code capacity} values. A selection vector
+ * lists the positions of the rows that are still part of the batch, so filters can drop rows
+ * without copying any column data.
+ */
+@Getter
+public class TupleBatch {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final long[][] columns; // Column-major values: columns[column][row]
+    private final int[] selection; // Positions of the selected rows, valid up to size
+    private final int capacity;
+    private int rowCount; // Number of physical rows stored in the columns
+    private int size; // Number of selected rows
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param columnCount The number of columns.
+     * @param capacity The maximum number of rows.
+     */
+    public TupleBatch(int columnCount, int capacity) {
+        this.columns = new long[columnCount][capacity];
+        this.selection = new int[capacity];
+        this.capacity = capacity;
+    }
+
+    /**
+     * Constructs a full batch over existing column arrays, with every row selected.
+     *
+     * @param columns The column arrays, each holding at least {@code rowCount} values.
+     * @param rowCount The number of rows.
+     */
+    public TupleBatch(long[][] columns, int rowCount) {
+        this.columns = columns;
+        this.selection = new int[rowCount];
+        this.capacity = rowCount;
+        this.rowCount = rowCount;
+        this.size = rowCount;
+        for (int row = 0; row < rowCount; row++) {
+            selection[row] = row;
+        }
+    }
+
+    /**
+     * Constructs a batch sharing the column data and selection vector of another batch.
+     * Used by operators such as projection that only rearrange columns.
+     *
+     * @param source The batch providing the rows and selection.
+     * @param columns The columns of the new batch, typically taken from {@code source}.
+     */
+    public TupleBatch(TupleBatch source, long[][] columns) {
+        this.columns = columns;
+        this.selection = source.selection;
+        this.capacity = source.capacity;
+        this.rowCount = source.rowCount;
+        this.size = source.size;
+    }
+
+    /**
+     * Appends a row to the batch and selects it.
+     *
+     * @param values The row values, one per column.
+     * @throws IllegalStateException if the batch is full.
+     */
+    public void addRow(long[] values) {
+        if (isFull()) {
+            throw new IllegalStateException("TupleBatch is full");
+        }
+        for (int column = 0; column < columns.length; column++) {
+            columns[column][rowCount] = values[column];
+        }
+        selection[size++] = rowCount++;
+    }
+
+    /**
+     * Indicates whether the batch has no room for further rows.
+     *
+     * @return True if the batch is full.
+     */
+    public boolean isFull() {
+        return rowCount == capacity;
+    }
+
+    /**
+     * Returns the number of columns of the batch.
+     *
+     * @return The column count.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Shrinks the selection to its first {@code size} entries, after a filter has
+     * compacted the selection vector in place.
+     *
+     * @param size The new number of selected rows.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Retrieves a value of a selected row.
+     *
+     * @param column The column index.
+     * @param index The position of the row in the selection (zero-based).
+     * @return The value.
+     */
+    public long getValue(int column, int index) {
+        return columns[column][selection[index]];
+    }
+
+    /**
+     * Materializes a selected row as a Tuple.
+     *
+     * @param index The position of the row in the selection (zero-based).
+     * @return The row as a tuple.
+     */
+    public Tuple getTuple(int index) {
+        int row = selection[index];
+        long[] values = new long[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            values[column] = columns[column][row];
+        }
+        return new Tuple(values);
+    }
+
+    /**
+     * Converts a selected row into a CSV-formatted string, in the same format as {@link Tuple#toCSV()}.
+     *
+     * @param index The position of the row in the selection (zero-based).
+     * @return The row in CSV format.
+     */
+    public String toCSV(int index) {
+        int row = selection[index];
+        StringBuilder builder = new StringBuilder(columns.length * 6);
+        for (int column = 0; column < columns.length; column++) {
+            if (column > 0) builder.append(", ");
+            builder.append(columns[column][row]);
+        }
+        return builder.toString();
+    }
+}
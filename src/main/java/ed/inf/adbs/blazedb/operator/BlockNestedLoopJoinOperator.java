@@ -0,0 +1,274 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.Arrays;
+
+/**
+ * BlockNestedLoopJoinOperator joins two inputs on an arbitrary condition (e.g. a band join
+ * such as {@code Student.B < Course.F}) without re-reading the inner input for every outer row.
+ * <p>
+ * If the right (inner) input has at most {@code bufferSize} rows, it is read once and cached
+ * in memory; every left row is then paired with the cached rows, and the output has the same
+ * order as a tuple nested loop join. Otherwise, the left input is read in blocks of about
+ * {@code bufferSize} rows, and the inner input is streamed once per block, each inner batch
+ * being paired with every row of the block. The inner input is then read once per block
+ * instead of once per left row; within a block, output rows follow the inner batches.
+ * <p>
+ * Pairs are formed column by column into batches, on which the join condition is evaluated
+ * as a vectorized filter.
+ */
+public class BlockNestedLoopJoinOperator extends Operator {
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final CompiledPredicate predicate; // Null when there is no join condition
+    private final int bufferSize; // Max rows of the cached inner input, or of a left block
+    private final int leftWidth;
+    private final int rightWidth;
+    private final RowBuffer leftBlock; // Left rows being joined
+    private RowBuffer innerRows; // The cached inner input, or the current inner batch
+    private boolean innerLoaded; // Whether the inner input has been read for the first time
+    private boolean innerCached; // Whether the inner input fits in the buffer
+    private boolean innerFresh; // Whether the inner input is at its start, so the next block needs no reset
+    private int leftIndex; // Row of the left block being paired
+    private int innerStart; // First inner row of the next pairs
+    private long[][] spareColumns; // Columns of a batch filtered to nothing, reused for the next pairs
+    private TupleBatch currentBatch; // Batch whose rows are returned by getNextTuple
+    private int currentIndex;
+
+    /**
+     * Initializes the BlockNestedLoopJoinOperator with the buffer size of the {@link ExecutionConfig}.
+     * @param leftChild The left (outer) child operator.
+     * @param rightChild The right (inner) child operator.
+     * @param condition The condition joined tuples must satisfy, may be null.
+     */
+    public BlockNestedLoopJoinOperator(Operator leftChild, Operator rightChild, Expression condition) {
+        this(leftChild, rightChild, condition, ExecutionConfig.getInstance().getJoinBufferSize());
+    }
+
+    /**
+     * Initializes the BlockNestedLoopJoinOperator.
+     * @param leftChild The left (outer) child operator.
+     * @param rightChild The right (inner) child operator.
+     * @param condition The condition joined tuples must satisfy, may be null.
+     * @param bufferSize The maximum number of inner rows cached, and the size of the left blocks otherwise.
+     */
+    public BlockNestedLoopJoinOperator(Operator leftChild, Operator rightChild, Expression condition, int bufferSize) {
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
+        this.bufferSize = bufferSize;
+        this.leftWidth = leftChild.getSchema().size();
+        this.rightWidth = rightChild.getSchema().size();
+        this.leftBlock = new RowBuffer(leftWidth);
+        this.innerRows = new RowBuffer(rightWidth);
+    }
+
+    /**
+     * Retrieves the next tuple resulting from the join between the left and right inputs.
+     * @return The joined tuple, or null if no more tuples are available.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (currentBatch == null || currentIndex >= currentBatch.getSize()) {
+            currentBatch = getNextBatch();
+            currentIndex = 0;
+            if (currentBatch == null) return null;
+        }
+        return currentBatch.getTuple(currentIndex++);
+    }
+
+    /**
+     * Retrieves the next batch of joined rows: a left row paired with consecutive inner rows,
+     * filtered by the join condition.
+     * @return The next batch of joined rows, or null if no more tuples are available.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (!innerLoaded) {
+            loadInner();
+        }
+
+        while (true) {
+            if (leftIndex >= leftBlock.size) {
+                if (!(innerCached ? nextCachedBlock() : nextStreamedSegment())) return null;
+                leftIndex = 0;
+                innerStart = 0;
+            }
+
+            int count = Math.min(TupleBatch.DEFAULT_CAPACITY, innerRows.size - innerStart);
+            TupleBatch batch = pair(leftIndex, innerStart, count);
+            innerStart += count;
+            if (innerStart >= innerRows.size) {
+                innerStart = 0;
+                leftIndex++;
+            }
+
+            if (predicate != null) {
+                predicate.filter(batch);
+            }
+            if (batch.getSize() > 0) {
+                return batch;
+            }
+            spareColumns = batch.getColumns();
+        }
+    }
+
+    /**
+     * Reads the inner input into memory, unless it has more than {@code bufferSize} rows,
+     * in which case it will be streamed once per left block.
+     */
+    private void loadInner() {
+        innerLoaded = true;
+        innerCached = true;
+        TupleBatch batch;
+        while ((batch = rightChild.getNextBatch()) != null) {
+            innerRows.append(batch);
+            if (innerRows.size > bufferSize) {
+                innerCached = false;
+                innerRows = new RowBuffer(rightWidth);
+                rightChild.reset();
+                innerFresh = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads the next left batch as the block joined with the cached inner rows.
+     * @return True if there are rows to join, false at the end of the output.
+     */
+    private boolean nextCachedBlock() {
+        if (innerRows.size == 0) return false;
+
+        leftBlock.clear();
+        TupleBatch batch;
+        while (leftBlock.size == 0 && (batch = leftChild.getNextBatch()) != null) {
+            leftBlock.append(batch);
+        }
+        return leftBlock.size > 0;
+    }
+
+    /**
+     * Loads the next inner batch, starting the next left block (and rereading the inner
+     * input) once the inner input is exhausted.
+     * @return True if there are rows to join, false at the end of the output.
+     */
+    private boolean nextStreamedSegment() {
+        while (true) {
+            if (leftBlock.size > 0) {
+                TupleBatch batch;
+                while ((batch = rightChild.getNextBatch()) != null) {
+                    innerRows.clear();
+                    innerRows.append(batch);
+                    if (innerRows.size > 0) return true;
+                }
+            }
+
+            leftBlock.clear();
+            TupleBatch batch;
+            while (leftBlock.size < bufferSize && (batch = leftChild.getNextBatch()) != null) {
+                leftBlock.append(batch);
+            }
+            if (leftBlock.size == 0) return false;
+            if (!innerFresh) {
+                rightChild.reset();
+            }
+            innerFresh = false;
+        }
+    }
+
+    /**
+     * Builds the batch of pairs of a left row with consecutive inner rows.
+     * @param leftRow The row of the left block.
+     * @param innerFrom The first inner row.
+     * @param count The number of inner rows.
+     * @return The batch of joined rows, all selected.
+     */
+    private TupleBatch pair(int leftRow, int innerFrom, int count) {
+        long[][] columns = spareColumns;
+        spareColumns = null;
+        if (columns == null) {
+            columns = new long[leftWidth + rightWidth][TupleBatch.DEFAULT_CAPACITY];
+        }
+        for (int c = 0; c < leftWidth; c++) {
+            Arrays.fill(columns[c], 0, count, leftBlock.columns[c][leftRow]);
+        }
+        for (int c = 0; c < rightWidth; c++) {
+            System.arraycopy(innerRows.columns[c], innerFrom, columns[leftWidth + c], 0, count);
+        }
+        return new TupleBatch(columns, count);
+    }
+
+    /**
+     * Resets the operator to the first joined row. A cached inner input is kept, as it does not change.
+     */
+    @Override
+    public void reset() {
+        leftChild.reset();
+        leftBlock.clear();
+        leftIndex = 0;
+        innerStart = 0;
+        currentBatch = null;
+        currentIndex = 0;
+    }
+
+    /**
+     * Growable column-major buffer of rows.
+     */
+    private static class RowBuffer {
+        private long[][] columns;
+        private int size;
+
+        /**
+         * Constructs an empty buffer.
+         * @param width The number of columns.
+         */
+        RowBuffer(int width) {
+            this.columns = new long[width][TupleBatch.DEFAULT_CAPACITY];
+        }
+
+        /**
+         * Appends the selected rows of a batch.
+         * @param batch The batch.
+         */
+        void append(TupleBatch batch) {
+            int count = batch.getSize();
+            if (size + count > capacity()) {
+                int capacity = Math.max(capacity() * 2, size + count);
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = Arrays.copyOf(columns[c], capacity);
+                }
+            }
+            int[] selection = batch.getSelection();
+            long[][] source = batch.getColumns();
+            for (int c = 0; c < columns.length; c++) {
+                long[] from = source[c];
+                long[] to = columns[c];
+                for (int i = 0; i < count; i++) {
+                    to[size + i] = from[selection[i]];
+                }
+            }
+            size += count;
+        }
+
+        /**
+         * Removes every row, keeping the allocated columns.
+         */
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * Returns the number of rows the columns can hold.
+         */
+        private int capacity() {
+            return columns.length == 0 ? Integer.MAX_VALUE : columns[0].length;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.ColumnBounds;
+import ed.inf.adbs.blazedb.utility.ColumnarFile;
+import ed.inf.adbs.blazedb.utility.Schema;
+import ed.inf.adbs.blazedb.utility.ZoneMap;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * ColumnarScanOperator reads tuples from a table stored in the columnar format.
+ * Only the requested columns are read from disk; the other columns of the produced
+ * tuples are left as 0, so column positions stay the same as for a full scan.
+ * When given a zone map and column bounds, blocks that cannot satisfy the bounds are not read.
+ * The columnar file is closed once the last block has been read, and reopened by a reset.
+ */
+public class ColumnarScanOperator extends Operator {
+    private final ColumnarFile columnarFile;
+    private final int[] columns; // Indices of the columns read from disk
+    private final long[] zeroColumn; // Shared placeholder for the columns not read
+    private final ZoneMap zoneMap; // Null when every block is read
+    private final ColumnBounds bounds;
+    private long[][] blockColumns;
+    private int blockRows;
+    private int nextBlock;
+    private int rowInBlock;
+
+    /**
+     * Initializes the ColumnarScanOperator for a given table.
+     * @param tableName The name of the table to scan.
+     * @param columns The indices of the columns to read.
+     * @throws IOException if the table has no up-to-date columnar file or it cannot be read.
+     */
+    public ColumnarScanOperator(String tableName, List<Integer> columns) throws IOException {
+        this(tableName, DatabaseCatalog.getInstance().getColumnarFile(tableName), columns, null, null);
+    }
+
+    /**
+     * Initializes the ColumnarScanOperator for a given table, skipping blocks ruled out by a zone map.
+     * @param tableName The name of the table to scan.
+     * @param columns The indices of the columns to read.
+     * @param zoneMap The zone map of the table, or null to read every block.
+     * @param bounds The column bounds rows must lie within, or null to read every block.
+     * @throws IOException if the table has no up-to-date columnar file or it cannot be read.
+     */
+    public ColumnarScanOperator(String tableName,
+                                List<Integer> columns,
+                                ZoneMap zoneMap,
+                                ColumnBounds bounds) throws IOException {
+        this(tableName, DatabaseCatalog.getInstance().getColumnarFile(tableName), columns, zoneMap, bounds);
+    }
+
+    /**
+     * Initializes the ColumnarScanOperator for a given columnar file of a table.
+     * The zone map is ignored unless its blocks line up with those of the columnar file.
+     * @param tableName The name of the table stored in the file.
+     * @param file The columnar file to scan.
+     * @param columns The indices of the columns to read.
+     * @param zoneMap The zone map of the table, or null to read every block.
+     * @param bounds The column bounds rows must lie within, or null to read every block.
+     * @throws IOException if the file cannot be read.
+     */
+    public ColumnarScanOperator(String tableName,
+                                File file,
+                                List<Integer> columns,
+                                ZoneMap zoneMap,
+                                ColumnBounds bounds) throws IOException {
+        if (file == null) {
+            throw new FileNotFoundException("No up-to-date columnar file");
+        }
+        this.columnarFile = new ColumnarFile(file);
+        this.schema = Schema.forTable(tableName);
+        boolean aligned = zoneMap != null && bounds != null
+                && zoneMap.getBlockSize() == ColumnarFile.BLOCK_SIZE
+                && zoneMap.getBlockCount() == columnarFile.getBlockCount();
+        this.zoneMap = aligned ? zoneMap : null;
+        this.bounds = bounds;
+        this.columns = columns.stream().mapToInt(Integer::intValue).toArray();
+        this.zeroColumn = new long[ColumnarFile.BLOCK_SIZE];
+        reset();
+    }
+
+    /**
+     * Reads the requested columns of the next block, closing the file after the last one.
+     * @return The columns of the block, or null if there are no more blocks.
+     */
+    private long[][] readNextBlock() {
+        while (zoneMap != null && nextBlock < columnarFile.getBlockCount() && !zoneMap.mayMatch(nextBlock, bounds)) {
+            nextBlock++;
+        }
+        if (nextBlock >= columnarFile.getBlockCount()) {
+            try {
+                columnarFile.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error closing columnar table file", e);
+            }
+            return null;
+        }
+
+        long[][] block = new long[columnarFile.getColumnCount()][];
+        for (int column = 0; column < block.length; column++) {
+            block[column] = zeroColumn;
+        }
+        try {
+            for (int column : columns) {
+                block[column] = new long[ColumnarFile.BLOCK_SIZE];
+                columnarFile.readColumn(nextBlock, column, block[column]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading columnar table file", e);
+        }
+        blockRows = columnarFile.getBlockRowCounts()[nextBlock++];
+        return block;
+    }
+
+    /**
+     * Retrieves the next tuple from the table.
+     * @return The next tuple or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (blockColumns == null || rowInBlock >= blockRows) {
+            blockColumns = readNextBlock();
+            rowInBlock = 0;
+            if (blockColumns == null) return null;
+        }
+
+        long[] values = new long[blockColumns.length];
+        for (int column : columns) {
+            values[column] = blockColumns[column][rowInBlock];
+        }
+        rowInBlock++;
+        return new Tuple(values);
+    }
+
+    /**
+     * Retrieves the next block of the table as a batch.
+     * @return The next batch or null if there are no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (blockColumns != null && rowInBlock < blockRows) {
+            return super.getNextBatch(); // Finish a block partially read tuple by tuple
+        }
+        long[][] block = readNextBlock();
+        blockColumns = null; // The whole block is handed out as a batch
+        return block == null ? null : new TupleBatch(block, blockRows);
+    }
+
+    /**
+     * Resets the scan to the first block.
+     */
+    @Override
+    public void reset() {
+        nextBlock = 0;
+        rowInBlock = 0;
+        blockRows = 0;
+        blockColumns = null;
+    }
+}
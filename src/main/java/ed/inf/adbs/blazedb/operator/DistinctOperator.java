@@ -1,52 +1,267 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.GroupHashTable;
+import ed.inf.adbs.blazedb.utility.SpillingGroupTable;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * DistinctOperator removes duplicate tuples from query results.
+ * Rows are deduplicated on their values directly: every row is looked up in a hash table keyed
+ * on all of its columns, and only rows creating a new entry are kept, by narrowing the selection
+ * vector of the child batch. The first occurrence of each row is output, in input order.
+ * <p>
+ * When the number of distinct rows exceeds the configured budget, the rows seen so far and every
+ * following row are spilled to disk by the {@link SpillingGroupTable}; the distinct rows not yet
+ * output are then returned once the input is exhausted, still in the order they first appeared.
+ * <p>
+ * With a parallelism above 1, the input is cut into chunks of consecutive rows, each deduplicated
+ * by a worker of the {@link ExecutionConfig} pool on its own table. The rows left in each chunk
+ * are then checked against the distinct rows in chunk order, on the calling thread; as a row
+ * kept by a worker is its first occurrence within the chunk, the output is the same as that of
+ * a serial pass.
  */
 public class DistinctOperator extends Operator {
+    private static final long[] NO_VALUES = new long[0]; // Distinct rows carry no accumulators
+    private static final int PARALLEL_CHUNK_ROWS = 1 << 14; // Input rows deduplicated by one worker task
+    private static final int CHUNKS_PER_WORKER = 2; // Chunks in flight per worker thread
+
     private final Operator childOperator;
-    private final Set<String> seenTuples;
-    private Tuple nextTuple;
+    private final int[] keyColumns; // Every column of the child batches
+    private final SpillingGroupTable seenRows; // Distinct rows, in first-seen order
+    private long position; // Input position of the next child row
+    private boolean childExhausted;
+    private final ForkJoinPool pool; // Null when the input is deduplicated serially
+    private final Deque<Future<List<TupleBatch>>> inFlight; // Chunks submitted, in input order
+    private final Deque<Long> chunkPositions; // Input position of the first row of each chunk in flight
+    private long submittedPosition; // Input position following the chunks submitted
+    private boolean inputRead; // Whether every child row has been submitted
+    private Iterator<TupleBatch> chunkBatches; // Batches of the chunk being checked
+    private TupleBatch currentBatch; // Batch whose rows are returned by getNextTuple
+    private int currentIndex;
 
     /**
      * Initializes the DistinctOperator with the child operator.
+     * The budget of distinct rows held in memory is the aggregation group budget of the {@link ExecutionConfig}.
      * @param childOperator The child operator that generates tuples.
      */
     public DistinctOperator(Operator childOperator) {
+        this(childOperator, ExecutionConfig.getInstance().getAggregationGroupBudget());
+    }
+
+    /**
+     * Initializes the DistinctOperator with the child operator and a budget of distinct rows.
+     * The input is deduplicated in parallel if the parallelism of the {@link ExecutionConfig} is above 1.
+     * @param childOperator The child operator that generates tuples.
+     * @param rowBudget The maximum number of distinct rows kept in memory.
+     */
+    public DistinctOperator(Operator childOperator, int rowBudget) {
+        this(childOperator, rowBudget, ExecutionConfig.getInstance().getParallelism() > 1
+                ? ExecutionConfig.getInstance().getWorkerPool() : null);
+    }
+
+    /**
+     * Initializes the DistinctOperator with the child operator, a budget of distinct rows and
+     * a worker pool.
+     * @param childOperator The child operator that generates tuples.
+     * @param rowBudget The maximum number of distinct rows kept in memory.
+     * @param pool The worker pool deduplicating chunks of the input, or null to deduplicate serially.
+     */
+    public DistinctOperator(Operator childOperator, int rowBudget, ForkJoinPool pool) {
         this.childOperator = childOperator;
-        this.seenTuples = new HashSet<>();
-        this.nextTuple = fetchNextUniqueTuple();
+        this.pool = pool;
+        this.inFlight = new ArrayDeque<>();
+        this.chunkPositions = new ArrayDeque<>();
+        this.schema = childOperator.getSchema();
+        this.keyColumns = new int[schema.size()];
+        for (int i = 0; i < keyColumns.length; i++) keyColumns[i] = i;
+        this.seenRows = new SpillingGroupTable(keyColumns.length, 0, rowBudget);
     }
 
     /**
-     * Fetches the next unique tuple from the child operator.
+     * Returns the next unique tuple.
      * @return The next unique tuple, or null if no more unique tuples exist.
      */
-    private Tuple fetchNextUniqueTuple() {
-        Tuple tuple;
-        while ((tuple = childOperator.getNextTuple()) != null) {
-            String tupleStr = tuple.toString(); // Convert tuple to string for uniqueness check
-            if (seenTuples.add(tupleStr)) {  // Only return if it's not a duplicate
-                return tuple;
-            }
+    @Override
+    public Tuple getNextTuple() {
+        while (currentBatch == null || currentIndex >= currentBatch.getSize()) {
+            currentBatch = getNextBatch();
+            currentIndex = 0;
+            if (currentBatch == null) return null;
         }
-        return null; // No more unique tuples
+        return currentBatch.getTuple(currentIndex++);
     }
 
     /**
-     * Returns the next unique tuple.
-     * @return The next unique tuple.
+     * Returns the next batch of unique rows. While the input is read, these are the rows of the
+     * child batches seen for the first time; once it is exhausted, the distinct rows spilled
+     * to disk, if any.
+     * @return A batch of unique rows, or null if no more unique rows exist.
      */
     @Override
-    public Tuple getNextTuple() {
-        Tuple current = nextTuple;
-        nextTuple = fetchNextUniqueTuple(); // Preload the next unique tuple
-        return current;
+    public TupleBatch getNextBatch() {
+        if (!childExhausted) {
+            TupleBatch batch;
+            while ((batch = pool != null ? nextChunkBatch() : childOperator.getNextBatch()) != null) {
+                keepFirstOccurrences(batch);
+                if (batch.getSize() > 0) {
+                    return batch;
+                }
+            }
+            childExhausted = true;
+            seenRows.finish();
+        }
+        return seenRows.isSpilled() ? nextSpilledBatch() : null;
+    }
+
+    /**
+     * Returns the next batch of rows deduplicated by a worker, in input order, waiting for its
+     * chunk if it is still being deduplicated. The input position is moved to the chunk of the
+     * batch, and then advances by one per row checked, so positions keep increasing.
+     * @return The next batch, or null once the input is exhausted.
+     */
+    private TupleBatch nextChunkBatch() {
+        while (chunkBatches == null || !chunkBatches.hasNext()) {
+            submitChunks();
+            Future<List<TupleBatch>> chunk = inFlight.poll();
+            if (chunk == null) return null;
+            chunkBatches = await(chunk).iterator();
+            position = chunkPositions.poll();
+        }
+        return chunkBatches.next();
+    }
+
+    /**
+     * Reads chunks of the child and submits them to the worker pool until the window is full
+     * or the child is exhausted. The last chunk is checked directly if no other chunk is in
+     * flight, which is the case of every chunk of a small input.
+     */
+    private void submitChunks() {
+        int window = pool.getParallelism() * CHUNKS_PER_WORKER;
+        while (inFlight.size() < window && !inputRead) {
+            List<TupleBatch> chunk = new ArrayList<>();
+            int chunkRows = 0;
+            while (chunkRows < PARALLEL_CHUNK_ROWS) {
+                TupleBatch batch = childOperator.getNextBatch();
+                if (batch == null) {
+                    inputRead = true;
+                    break;
+                }
+                if (batch.getSize() > 0) {
+                    chunk.add(batch);
+                    chunkRows += batch.getSize();
+                }
+            }
+            if (chunk.isEmpty()) return;
+
+            if (inputRead && inFlight.isEmpty()) {
+                inFlight.add(CompletableFuture.completedFuture(chunk));
+            } else {
+                inFlight.add(pool.submit(() -> deduplicate(chunk)));
+            }
+            chunkPositions.add(submittedPosition);
+            submittedPosition += chunkRows;
+        }
+    }
+
+    /**
+     * Removes the rows of a chunk already seen earlier in the chunk, on a worker thread.
+     * @param chunk The batches of the chunk.
+     * @return The first occurrence of each row of the chunk, in input order.
+     */
+    private List<TupleBatch> deduplicate(List<TupleBatch> chunk) {
+        GroupHashTable chunkRows = new GroupHashTable(keyColumns.length, 0);
+        List<TupleBatch> result = new ArrayList<>();
+        long[][] output = new long[keyColumns.length][TupleBatch.DEFAULT_CAPACITY];
+        int size = 0;
+        for (TupleBatch batch : chunk) {
+            long[][] columns = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int i = 0; i < batch.getSize(); i++) {
+                int row = selection[i];
+                if (chunkRows.findOrInsert(columns, row, keyColumns) < chunkRows.size() - 1) continue;
+
+                for (int c = 0; c < keyColumns.length; c++) {
+                    output[c][size] = columns[c][row];
+                }
+                if (++size == TupleBatch.DEFAULT_CAPACITY) {
+                    result.add(new TupleBatch(output, size));
+                    output = new long[keyColumns.length][TupleBatch.DEFAULT_CAPACITY];
+                    size = 0;
+                }
+            }
+        }
+        if (size > 0) {
+            result.add(new TupleBatch(output, size));
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the rows left in a chunk.
+     * @param chunk The deduplication task.
+     * @return The batches of the chunk.
+     * @throws RuntimeException If the worker failed, with the failure as cause.
+     */
+    private static List<TupleBatch> await(Future<List<TupleBatch>> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while removing duplicates in parallel", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error removing duplicates in parallel", e.getCause());
+        }
+    }
+
+    /**
+     * Narrows the selection of a batch to the rows not seen before.
+     * @param batch The batch to filter in place.
+     */
+    private void keepFirstOccurrences(TupleBatch batch) {
+        long[][] columns = batch.getColumns();
+        int[] selection = batch.getSelection();
+        int size = batch.getSize();
+        int selected = 0;
+        for (int i = 0; i < size; i++) {
+            int row = selection[i];
+            if (seenRows.add(columns, row, keyColumns, position++, NO_VALUES)) {
+                selection[selected++] = row;
+            }
+        }
+        batch.setSize(selected);
+    }
+
+    /**
+     * Collects the next distinct rows first seen after the table spilled; the rows seen
+     * before were output while the input was read.
+     * @return A batch of unique rows, or null once every spilled row has been returned.
+     */
+    private TupleBatch nextSpilledBatch() {
+        TupleBatch batch = new TupleBatch(keyColumns.length, TupleBatch.DEFAULT_CAPACITY);
+        long[] values = new long[keyColumns.length];
+        while (!batch.isFull() && seenRows.next()) {
+            if (seenRows.getPosition() < seenRows.getSpillPosition()) continue;
+            for (int k = 0; k < values.length; k++) {
+                values[k] = seenRows.getKey(k);
+            }
+            batch.addRow(values);
+        }
+        return batch.getSize() > 0 ? batch : null;
     }
 
     /**
@@ -54,8 +269,19 @@ public class DistinctOperator extends Operator {
      */
     @Override
     public void reset() {
+        for (Future<List<TupleBatch>> chunk : inFlight) {
+            chunk.cancel(false);
+        }
+        inFlight.clear();
+        chunkPositions.clear();
+        submittedPosition = 0;
+        inputRead = false;
+        chunkBatches = null;
         childOperator.reset();
-        seenTuples.clear(); // Clear memory
-        nextTuple = fetchNextUniqueTuple(); // Reload distinct tuples
+        seenRows.clear(); // Clear memory and spilled files
+        position = 0;
+        childExhausted = false;
+        currentBatch = null;
+        currentIndex = 0;
     }
 }
@@ -0,0 +1,145 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import ed.inf.adbs.blazedb.utility.Parser;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.*;
+
+/**
+ * HashJoinOperator performs an equi-join between two tables using an in-memory hash table.
+ * The right child is read once and hashed on its join columns; the left child is then
+ * streamed and probes the table, so the output keeps the same order as a nested loop join.
+ * Neither child is read before the first tuple is requested, so that the semi-join filters
+ * published by the build sides of the joins above are in place when the left child is read.
+ */
+public class HashJoinOperator extends Operator {
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final List<Integer> leftKeyIndices;
+    private final List<Integer> rightKeyIndices;
+    private final CompiledPredicate predicate; // Null when there is no WHERE clause
+    private final Map<Object, List<Tuple>> hashTable;
+    private boolean built; // Whether the hash table has been built
+    private Tuple leftTuple;
+    private Iterator<Tuple> matches;
+
+    /**
+     * Initializes the HashJoinOperator. The hash table is built on the right child when the
+     * first tuple is requested.
+     * @param leftChild The left (probe) child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param parser The parser containing the join condition.
+     */
+    public HashJoinOperator(Operator leftChild,
+                            Operator rightChild,
+                            List<Integer> leftKeyIndices,
+                            List<Integer> rightKeyIndices,
+                            Parser parser) {
+        this(leftChild, rightChild, leftKeyIndices, rightKeyIndices, parser.getWhereClause());
+    }
+
+    /**
+     * Initializes the HashJoinOperator. The hash table is built on the right child when the
+     * first tuple is requested.
+     * @param leftChild The left (probe) child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     */
+    public HashJoinOperator(Operator leftChild,
+                            Operator rightChild,
+                            List<Integer> leftKeyIndices,
+                            List<Integer> rightKeyIndices,
+                            Expression condition) {
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftKeyIndices = leftKeyIndices;
+        this.rightKeyIndices = rightKeyIndices;
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
+        this.hashTable = new HashMap<>();
+    }
+
+    /**
+     * Reads every tuple of the right child into the hash table, keyed by its join columns.
+     */
+    private void buildHashTable() {
+        Tuple tuple;
+        while ((tuple = rightChild.getNextTuple()) != null) {
+            hashTable.computeIfAbsent(extractKey(tuple, rightKeyIndices), key -> new ArrayList<>()).add(tuple);
+        }
+    }
+
+    /**
+     * Looks up the right tuples matching the given left tuple.
+     * @param tuple The left tuple to probe with, may be null.
+     * @return An iterator over the matching right tuples.
+     */
+    private Iterator<Tuple> probe(Tuple tuple) {
+        if (tuple == null) return Collections.emptyIterator();
+        return hashTable.getOrDefault(extractKey(tuple, leftKeyIndices), Collections.emptyList()).iterator();
+    }
+
+    /**
+     * Extracts the join key of a tuple.
+     * @param tuple The tuple to extract the key from.
+     * @param keyIndices The indices of the join columns.
+     * @return The single join value, or a list of values for a composite key.
+     */
+    private Object extractKey(Tuple tuple, List<Integer> keyIndices) {
+        if (keyIndices.size() == 1) {
+            return tuple.getValue(keyIndices.get(0));
+        }
+        List<Long> key = new ArrayList<>(keyIndices.size());
+        for (int index : keyIndices) {
+            key.add(tuple.getValue(index));
+        }
+        return key;
+    }
+
+    /**
+     * Retrieves the next tuple resulting from the join between the left and right tables.
+     * Remaining WHERE conditions are evaluated on each matching pair.
+     * @return The joined tuple, or null if no more tuples are available.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!built) {
+            buildHashTable();
+            built = true;
+            leftTuple = leftChild.getNextTuple();
+            matches = probe(leftTuple);
+        }
+        while (leftTuple != null) {
+            while (matches.hasNext()) {
+                Tuple rightTuple = matches.next();
+                Tuple joinedTuple = Tuple.concat(leftTuple, rightTuple);
+
+                if (predicate == null || predicate.test(joinedTuple.getValues())) {
+                    return joinedTuple;
+                }
+            }
+            leftTuple = leftChild.getNextTuple();
+            matches = probe(leftTuple);
+        }
+
+        return null;
+    }
+
+    /**
+     * Resets the probe side. The hash table is kept, as the build side does not change.
+     */
+    @Override
+    public void reset() {
+        leftChild.reset();
+        if (built) {
+            leftTuple = leftChild.getNextTuple();
+            matches = probe(leftTuple);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.utility.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.utility.Schema;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * IndexScanOperator reads the rows of a table whose indexed column lies within a range.
+ * The matching row offsets are looked up in the index and sorted, so rows are read
+ * in file order and the output matches that of a full scan followed by a selection.
+ * The table file is closed once the last matching row has been read, and reopened by a reset.
+ */
+public class IndexScanOperator extends Operator {
+    private final File tableFile;
+    private FileChannel channel; // Null once the scan is exhausted
+    private final BPlusTreeIndex index;
+    private final long lower;
+    private final long upper;
+    private long[] offsets; // Offsets of the matching rows in file order, looked up on first use
+    private int nextRow;
+    private ByteBuffer readBuffer;
+
+    /**
+     * Initializes the IndexScanOperator for a given table and index range.
+     * @param tableName The name of the table to scan.
+     * @param index The index over one column of the table.
+     * @param lower The inclusive lower bound of the indexed column.
+     * @param upper The inclusive upper bound of the indexed column.
+     * @throws IOException if the table file cannot be opened.
+     */
+    public IndexScanOperator(String tableName, BPlusTreeIndex index, long lower, long upper) throws IOException {
+        DatabaseCatalog catalog = DatabaseCatalog.getInstance();
+        this.tableFile = catalog.getTableFile(tableName);
+        this.channel = openTable();
+        this.index = index;
+        this.lower = lower;
+        this.upper = upper;
+        this.schema = Schema.forTable(tableName);
+        this.readBuffer = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * Opens the table file for reading.
+     * @return The channel of the table file.
+     * @throws IOException if the table file cannot be opened.
+     */
+    private FileChannel openTable() throws IOException {
+        return FileChannel.open(tableFile.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Reads the row starting at a given offset of the table file.
+     * @param offset The byte offset of the row.
+     * @return The row as a CSV line.
+     * @throws IOException if the file cannot be read.
+     */
+    private String readLine(long offset) throws IOException {
+        readBuffer.clear();
+        while (true) {
+            int read = channel.read(readBuffer, offset + readBuffer.position());
+            byte[] bytes = readBuffer.array();
+            for (int i = 0; i < readBuffer.position(); i++) {
+                if (bytes[i] == '\n') {
+                    return new String(bytes, 0, i, StandardCharsets.US_ASCII);
+                }
+            }
+            if (read < 0) {
+                return new String(bytes, 0, readBuffer.position(), StandardCharsets.US_ASCII);
+            }
+            if (!readBuffer.hasRemaining()) { // Row longer than the buffer
+                readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2).put(readBuffer.flip());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the next matching tuple from the table file.
+     * @return The next tuple or null if there are no more tuples.
+     * @throws NumberFormatException if a row does not have one integer field per column.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            if (offsets == null) {
+                offsets = index.lookup(lower, upper);
+                Arrays.sort(offsets);
+            }
+            if (nextRow >= offsets.length) {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                return null;
+            }
+            if (channel == null) {
+                channel = openTable();
+            }
+
+            long[] values = new long[schema.size()];
+            if (Tuple.parseCSV(readLine(offsets[nextRow++]), values) != values.length) {
+                throw new NumberFormatException("Invalid row in " + tableFile);
+            }
+            return new Tuple(values);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Resets the scan to the first matching row. The table file is reopened by the next read if needed.
+     */
+    @Override
+    public void reset() {
+        nextRow = 0;
+    }
+}
@@ -1,36 +1,44 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
-import ed.inf.adbs.blazedb.utility.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
 import ed.inf.adbs.blazedb.utility.Parser;
 import net.sf.jsqlparser.expression.Expression;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * JoinOperator performs a nested loop join between two tables.
  */
 public class JoinOperator extends Operator {
     private final Operator leftChild;
     private final Operator rightChild;
-    private final Expression joinCondition;
-    private final List<String> tableOrder;
+    private final CompiledPredicate predicate; // Null when there is no WHERE clause
     private Tuple leftTuple;
 
     /**
      * Initializes the JoinOperator with left and right child operators and the parser.
      * @param leftChild The left child operator.
      * @param rightChild The right child operator.
-     * @param parser The parser containing the join condition and table order.
+     * @param parser The parser containing the join condition.
      */
     public JoinOperator(Operator leftChild,
                         Operator rightChild,
                         Parser parser) {
+        this(leftChild, rightChild, parser.getWhereClause());
+    }
+
+    /**
+     * Initializes the JoinOperator with left and right child operators and the join condition.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param condition The condition joined tuples must satisfy, may be null.
+     */
+    public JoinOperator(Operator leftChild,
+                        Operator rightChild,
+                        Expression condition) {
         this.leftChild = leftChild;
         this.rightChild = rightChild;
-        this.joinCondition = parser.getWhereClause();
-        this.tableOrder = parser.getTableOrder();
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
         this.leftTuple = leftChild.getNextTuple();  // Start with first left tuple
     }
 
@@ -44,13 +52,9 @@ public class JoinOperator extends Operator {
 
         while (leftTuple != null) { // Loop over left table
             while ((rightTuple = rightChild.getNextTuple()) != null) { // Loop over right table
-                List<String> combinedValues = new ArrayList<>(leftTuple.getValues());
-                combinedValues.addAll(rightTuple.getValues());
-
-                Tuple joinedTuple = new Tuple(combinedValues.toArray(new String[0]));
+                Tuple joinedTuple = Tuple.concat(leftTuple, rightTuple);
 
-                // Use ExpressionEvaluator with provided schema map
-                if (joinCondition == null || new ExpressionEvaluator(tableOrder, joinedTuple).evaluate(joinCondition)) {
+                if (predicate == null || predicate.test(joinedTuple.getValues())) {
                     return joinedTuple;
                 }
             }
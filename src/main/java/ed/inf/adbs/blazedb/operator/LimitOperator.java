@@ -0,0 +1,82 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+
+/**
+ * LimitOperator implements LIMIT and OFFSET: it skips the first {@code offset} rows of its
+ * child and returns at most {@code limit} of the following ones. Once the limit is reached,
+ * the child is no longer pulled, so the rest of the input is never produced.
+ */
+public class LimitOperator extends Operator {
+    private final Operator childOperator;
+    private final long limit; // Maximum number of rows returned
+    private final long offset; // Number of leading rows skipped
+    private long skipped; // Rows skipped so far
+    private long returned; // Rows returned so far
+
+    /**
+     * Initializes the LimitOperator.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param limit The maximum number of rows returned, {@code Long.MAX_VALUE} for no limit.
+     * @param offset The number of leading rows skipped.
+     */
+    public LimitOperator(Operator childOperator, long limit, long offset) {
+        this.childOperator = childOperator;
+        this.schema = childOperator.getSchema();
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the next tuple within the limit.
+     * @return The next tuple, or null once the limit is reached or the child is exhausted.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (returned >= limit) return null;
+        for (; skipped < offset; skipped++) {
+            if (childOperator.getNextTuple() == null) return null;
+        }
+
+        Tuple tuple = childOperator.getNextTuple();
+        if (tuple != null) returned++;
+        return tuple;
+    }
+
+    /**
+     * Returns the next batch within the limit. Skipped and excess rows are dropped by
+     * narrowing the selection vector of the child batch.
+     * @return The next batch, or null once the limit is reached or the child is exhausted.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch;
+        while (returned < limit && (batch = childOperator.getNextBatch()) != null) {
+            int size = batch.getSize();
+            int skip = (int) Math.min(size, offset - skipped);
+            int take = (int) Math.min(size - skip, limit - returned);
+            if (skip > 0) {
+                int[] selection = batch.getSelection();
+                System.arraycopy(selection, skip, selection, 0, take);
+            }
+            batch.setSize(take);
+            skipped += skip;
+            returned += take;
+            if (take > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resets the operator to start from the beginning.
+     */
+    @Override
+    public void reset() {
+        childOperator.reset();
+        skipped = 0;
+        returned = 0;
+    }
+}
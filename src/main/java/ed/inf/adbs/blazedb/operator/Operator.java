@@ -1,12 +1,23 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.Schema;
 
 /**
  * The abstract Operator class for the iterator model.
  * Feel free to modify this class, but must keep getNextTuple() and reset()
  */
 public abstract class Operator {
+    protected Schema schema; // Layout of the produced tuples, set by each operator's constructor
+
+    /**
+     * Returns the layout of the tuples produced by this operator.
+     * @return The output schema.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
 
     /**
      * Retrieves the next tuple from the iterator.
@@ -14,8 +25,27 @@ public abstract class Operator {
      */
     public abstract Tuple getNextTuple();
 
+    /**
+     * Retrieves the next batch of rows from the iterator.
+     * The default implementation adapts {@link #getNextTuple()} by collecting up to
+     * {@link TupleBatch#DEFAULT_CAPACITY} tuples; operators with a native batch
+     * implementation override it. A returned batch may have no selected rows.
+     * @return A TupleBatch holding the next rows, or NULL if EOF reached.
+     */
+    public TupleBatch getNextBatch() {
+        Tuple tuple = getNextTuple();
+        if (tuple == null) return null;
+
+        TupleBatch batch = new TupleBatch(tuple.size(), TupleBatch.DEFAULT_CAPACITY);
+        batch.addRow(tuple.getValues());
+        while (!batch.isFull() && (tuple = getNextTuple()) != null) {
+            batch.addRow(tuple.getValues());
+        }
+        return batch;
+    }
+
     /**
      * Resets the iterator to the start.
      */
     public abstract void reset();
-}
\ No newline at end of file
+}
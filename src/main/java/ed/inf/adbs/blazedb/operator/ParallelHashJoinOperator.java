@@ -0,0 +1,287 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import ed.inf.adbs.blazedb.utility.ConcurrentJoinTable;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelHashJoinOperator performs an equi-join like {@link HashJoinOperator}, with both of
+ * its phases spread over the worker pool of the {@link ExecutionConfig}.
+ * <p>
+ * The right (build) child is read into columns, which the workers insert concurrently into a
+ * lock-free {@link ConcurrentJoinTable}. The left (probe) child is then cut into chunks of
+ * consecutive rows, each probed by a worker task that forms the matching pairs and evaluates
+ * the remaining condition on them. A bounded window of chunks is in flight, and their batches
+ * are returned in chunk order; as the table returns the matches of a key in build input order,
+ * the output is the same as that of a {@link HashJoinOperator}. Inputs too small to be worth
+ * splitting are processed on the calling thread. As in a {@link HashJoinOperator}, neither
+ * child is read before the first batch is requested.
+ */
+public class ParallelHashJoinOperator extends Operator {
+    private static final int PARALLEL_BUILD_ROWS = 1 << 14; // Fewer build rows are inserted by the calling thread
+    private static final int PROBE_CHUNK_ROWS = 1 << 14; // Probe rows per worker task
+    private static final int CHUNKS_PER_WORKER = 2; // Chunks in flight per worker thread
+
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final int[] leftKeyIndices;
+    private final int[] rightKeyIndices;
+    private final int leftWidth;
+    private final int rightWidth;
+    private final CompiledPredicate predicate; // Null when there is no remaining condition
+    private ConcurrentJoinTable table; // The right rows, indexed on their join columns, null until the first batch
+    private final ForkJoinPool pool;
+    private final int window; // Max chunks in flight
+    private final Deque<Future<List<TupleBatch>>> inFlight; // Chunks submitted, in probe order
+    private boolean leftExhausted;
+    private Iterator<TupleBatch> batches; // Batches of the chunk being returned
+    private TupleBatch currentBatch; // Batch whose rows are returned by getNextTuple
+    private int currentIndex;
+
+    /**
+     * Initializes the ParallelHashJoinOperator with the worker pool of the {@link ExecutionConfig}.
+     * The hash table is built on the right child when the first batch is requested.
+     * @param leftChild The left (probe) child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     */
+    public ParallelHashJoinOperator(Operator leftChild,
+                                    Operator rightChild,
+                                    List<Integer> leftKeyIndices,
+                                    List<Integer> rightKeyIndices,
+                                    Expression condition) {
+        this(leftChild, rightChild, leftKeyIndices, rightKeyIndices, condition,
+                ExecutionConfig.getInstance().getWorkerPool());
+    }
+
+    /**
+     * Initializes the ParallelHashJoinOperator. The hash table is built on the right child when
+     * the first batch is requested.
+     * @param leftChild The left (probe) child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     * @param pool The worker pool building and probing the table.
+     */
+    public ParallelHashJoinOperator(Operator leftChild,
+                                    Operator rightChild,
+                                    List<Integer> leftKeyIndices,
+                                    List<Integer> rightKeyIndices,
+                                    Expression condition,
+                                    ForkJoinPool pool) {
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.leftKeyIndices = leftKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.rightKeyIndices = rightKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.leftWidth = leftChild.getSchema().size();
+        this.rightWidth = rightChild.getSchema().size();
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
+        this.pool = pool;
+        this.window = pool.getParallelism() * CHUNKS_PER_WORKER;
+        this.inFlight = new ArrayDeque<>();
+    }
+
+    /**
+     * Reads every row of the right child into columns and indexes them on the join columns.
+     * @return The join table.
+     */
+    private ConcurrentJoinTable buildTable() {
+        long[][] columns = new long[rightWidth][TupleBatch.DEFAULT_CAPACITY];
+        int capacity = TupleBatch.DEFAULT_CAPACITY;
+        int rowCount = 0;
+        TupleBatch batch;
+        while ((batch = rightChild.getNextBatch()) != null) {
+            int count = batch.getSize();
+            if (rowCount + count > capacity) {
+                capacity = Math.max(capacity * 2, rowCount + count);
+                for (int c = 0; c < rightWidth; c++) {
+                    columns[c] = Arrays.copyOf(columns[c], capacity);
+                }
+            }
+            long[][] source = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int c = 0; c < rightWidth; c++) {
+                for (int i = 0; i < count; i++) {
+                    columns[c][rowCount + i] = source[c][selection[i]];
+                }
+            }
+            rowCount += count;
+        }
+        return new ConcurrentJoinTable(columns, rowCount, rightKeyIndices,
+                rowCount >= PARALLEL_BUILD_ROWS ? pool : null);
+    }
+
+    /**
+     * Retrieves the next tuple resulting from the join between the left and right inputs.
+     * @return The joined tuple, or null if no more tuples are available.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (currentBatch == null || currentIndex >= currentBatch.getSize()) {
+            currentBatch = getNextBatch();
+            currentIndex = 0;
+            if (currentBatch == null) return null;
+        }
+        return currentBatch.getTuple(currentIndex++);
+    }
+
+    /**
+     * Retrieves the next batch of joined rows, in probe order, waiting for its chunk if a
+     * worker is still probing it.
+     * @return The next batch of joined rows, or null if no more tuples are available.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (table == null) {
+            table = buildTable();
+        }
+        while (batches == null || !batches.hasNext()) {
+            submitChunks();
+            Future<List<TupleBatch>> chunk = inFlight.poll();
+            if (chunk == null) return null;
+            batches = await(chunk).iterator();
+        }
+        return batches.next();
+    }
+
+    /**
+     * Reads chunks of the left child and submits them to the worker pool until the window is
+     * full or the left child is exhausted. The last chunk is probed on the calling thread if
+     * no other chunk is in flight, which is the case of every chunk of a small input.
+     */
+    private void submitChunks() {
+        while (inFlight.size() < window && !leftExhausted && table.size() > 0) {
+            List<TupleBatch> chunk = new ArrayList<>();
+            int chunkRows = 0;
+            while (chunkRows < PROBE_CHUNK_ROWS) {
+                TupleBatch batch = leftChild.getNextBatch();
+                if (batch == null) {
+                    leftExhausted = true;
+                    break;
+                }
+                if (batch.getSize() > 0) {
+                    chunk.add(batch);
+                    chunkRows += batch.getSize();
+                }
+            }
+            if (chunk.isEmpty()) return;
+
+            if (leftExhausted && inFlight.isEmpty()) {
+                inFlight.add(CompletableFuture.completedFuture(probe(chunk)));
+            } else {
+                inFlight.add(pool.submit(() -> probe(chunk)));
+            }
+        }
+    }
+
+    /**
+     * Probes the table with a chunk of left rows, pairing each with its matches in build order.
+     * @param chunk The batches of the chunk.
+     * @return The non-empty batches of joined rows satisfying the remaining condition.
+     */
+    private List<TupleBatch> probe(List<TupleBatch> chunk) {
+        List<TupleBatch> result = new ArrayList<>();
+        long[][] rightColumns = table.getColumns();
+        TupleBatch output = new TupleBatch(leftWidth + rightWidth, TupleBatch.DEFAULT_CAPACITY);
+        long[][] outputColumns = output.getColumns();
+        int size = 0;
+
+        for (TupleBatch batch : chunk) {
+            long[][] columns = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int i = 0; i < batch.getSize(); i++) {
+                int row = selection[i];
+                int slot = table.find(columns, row, leftKeyIndices);
+                if (slot < 0) continue;
+
+                for (int match = table.getStart(slot); match < table.getEnd(slot); match++) {
+                    int rightRow = table.getRow(match);
+                    for (int c = 0; c < leftWidth; c++) {
+                        outputColumns[c][size] = columns[c][row];
+                    }
+                    for (int c = 0; c < rightWidth; c++) {
+                        outputColumns[leftWidth + c][size] = rightColumns[c][rightRow];
+                    }
+                    if (++size == TupleBatch.DEFAULT_CAPACITY) {
+                        emit(new TupleBatch(outputColumns, size), result);
+                        outputColumns = new long[leftWidth + rightWidth][TupleBatch.DEFAULT_CAPACITY];
+                        size = 0;
+                    }
+                }
+            }
+        }
+        if (size > 0) {
+            emit(new TupleBatch(outputColumns, size), result);
+        }
+        return result;
+    }
+
+    /**
+     * Filters a batch of joined rows by the remaining condition, and keeps it if rows remain.
+     * @param batch The batch of joined rows.
+     * @param result The batches kept.
+     */
+    private void emit(TupleBatch batch, List<TupleBatch> result) {
+        if (predicate != null) {
+            predicate.filter(batch);
+        }
+        if (batch.getSize() > 0) {
+            result.add(batch);
+        }
+    }
+
+    /**
+     * Waits for the joined rows of a chunk.
+     * @param chunk The probe task.
+     * @return The batches of the chunk.
+     * @throws RuntimeException If the worker failed, with the failure as cause.
+     */
+    private static List<TupleBatch> await(Future<List<TupleBatch>> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while joining in parallel", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error joining in parallel", e.getCause());
+        }
+    }
+
+    /**
+     * Resets the probe side, cancelling the chunks in flight. The table is kept, as the build
+     * side does not change.
+     */
+    @Override
+    public void reset() {
+        for (Future<List<TupleBatch>> chunk : inFlight) {
+            chunk.cancel(false);
+        }
+        inFlight.clear();
+        leftChild.reset();
+        leftExhausted = false;
+        batches = null;
+        currentBatch = null;
+        currentIndex = 0;
+    }
+}
@@ -0,0 +1,235 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.Schema;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+/**
+ * ParallelScanOperator scans a table with several worker threads (morsel-driven execution).
+ * The memory-mapped table file is split into morsels, byte ranges of about {@code morselSize}
+ * bytes cut at row boundaries. Each morsel is a task of the worker pool of the
+ * {@link ExecutionConfig}: a worker scans it and runs the rows through its own instance of the
+ * pipeline above the scan (typically a selection and a projection), collecting the resulting batches.
+ * <p>
+ * A bounded window of morsels is in flight at a time, and their batches are returned in morsel
+ * order, so the output is identical to that of the serial pipeline over the whole table.
+ */
+public class ParallelScanOperator extends Operator {
+    public static final int DEFAULT_MORSEL_SIZE = 1 << 20; // Bytes of table file per morsel
+    private static final int MORSELS_PER_WORKER = 2; // Morsels in flight per worker thread
+
+    private final Schema tableSchema;
+    private final File tableFile;
+    private final UnaryOperator<Operator> pipeline; // Builds the operators above the scan of a morsel
+    private final ByteBuffer mapped; // The whole table file
+    private final int[] morselStarts; // Byte offset of the first row of each morsel, then the file size
+    private final ForkJoinPool pool;
+    private final int window; // Max morsels in flight
+    private final Deque<Future<List<TupleBatch>>> inFlight; // Morsels submitted, in morsel order
+    private int nextMorsel; // Next morsel to submit
+    private Iterator<TupleBatch> batches; // Batches of the morsel being returned
+    private TupleBatch currentBatch; // Batch whose rows are returned by getNextTuple
+    private int currentIndex;
+
+    /**
+     * Initializes the ParallelScanOperator with the morsel size and worker pool of the {@link ExecutionConfig}.
+     * @param tableName The name of the table to scan.
+     * @param pipeline Builds the pipeline run over the scan of each morsel; it must create new operators on each call.
+     * @throws FileNotFoundException if the table file cannot be found or mapped.
+     */
+    public ParallelScanOperator(String tableName, UnaryOperator<Operator> pipeline) throws FileNotFoundException {
+        this(tableName, pipeline, DEFAULT_MORSEL_SIZE, ExecutionConfig.getInstance().getWorkerPool());
+    }
+
+    /**
+     * Initializes the ParallelScanOperator.
+     * @param tableName The name of the table to scan.
+     * @param pipeline Builds the pipeline run over the scan of each morsel; it must create new operators on each call.
+     * @param morselSize The approximate number of bytes of each morsel.
+     * @param pool The worker pool running the morsels.
+     * @throws FileNotFoundException if the table file cannot be found or mapped.
+     */
+    public ParallelScanOperator(String tableName, UnaryOperator<Operator> pipeline, int morselSize, ForkJoinPool pool)
+            throws FileNotFoundException {
+        this.tableSchema = Schema.forTable(tableName);
+        this.tableFile = DatabaseCatalog.getInstance().getTableFile(tableName);
+        this.pipeline = pipeline;
+        this.mapped = mapFile(tableFile);
+        this.morselStarts = splitMorsels(mapped, morselSize);
+        this.pool = pool;
+        this.window = pool.getParallelism() * MORSELS_PER_WORKER;
+        this.inFlight = new ArrayDeque<>();
+        this.schema = pipeline.apply(morselScan(0, 0)).getSchema();
+    }
+
+    /**
+     * Maps the whole table file into memory.
+     * @param tableFile The table file.
+     * @return The mapped bytes.
+     * @throws FileNotFoundException if the table file cannot be found or mapped.
+     */
+    private static MappedByteBuffer mapFile(File tableFile) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(tableFile.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            FileNotFoundException notFound = new FileNotFoundException("Cannot map table file: " + tableFile);
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    /**
+     * Splits a table file into morsels of about {@code morselSize} bytes, each ending right
+     * after a newline so that no row spans two morsels.
+     * @param mapped The mapped table file.
+     * @param morselSize The approximate number of bytes of each morsel.
+     * @return The start of each morsel, followed by the file size.
+     */
+    private static int[] splitMorsels(ByteBuffer mapped, int morselSize) {
+        int size = mapped.limit();
+        List<Integer> starts = new ArrayList<>();
+        int start = 0;
+        while (start < size) {
+            starts.add(start);
+            int end = (int) Math.min(size, (long) start + morselSize);
+            while (end < size && mapped.get(end - 1) != '\n') {
+                end++;
+            }
+            start = end;
+        }
+        starts.add(size);
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Creates a scan over a byte range of the table file.
+     * @param from The first byte of the range.
+     * @param to The end of the range, exclusive.
+     * @return The scan of the rows in the range.
+     */
+    private ScanOperator morselScan(int from, int to) {
+        ByteBuffer rows = mapped.duplicate();
+        rows.position(from).limit(to);
+        return new ScanOperator(tableSchema, tableFile, rows.slice());
+    }
+
+    /**
+     * Returns the number of morsels the table file is split into.
+     * @return The morsel count.
+     */
+    public int getMorselCount() {
+        return morselStarts.length - 1;
+    }
+
+    /**
+     * Retrieves the next tuple produced by the pipeline.
+     * @return The next tuple or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (currentBatch == null || currentIndex >= currentBatch.getSize()) {
+            currentBatch = getNextBatch();
+            currentIndex = 0;
+            if (currentBatch == null) return null;
+        }
+        return currentBatch.getTuple(currentIndex++);
+    }
+
+    /**
+     * Retrieves the next batch produced by the pipeline, in morsel order, waiting for the
+     * morsel if a worker is still processing it.
+     * @return The next batch or null if there are no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        while (batches == null || !batches.hasNext()) {
+            submitMorsels();
+            Future<List<TupleBatch>> morsel = inFlight.poll();
+            if (morsel == null) return null;
+            batches = await(morsel).iterator();
+        }
+        return batches.next();
+    }
+
+    /**
+     * Submits morsels to the worker pool until the window is full or every morsel is submitted.
+     */
+    private void submitMorsels() {
+        while (inFlight.size() < window && nextMorsel < getMorselCount()) {
+            int from = morselStarts[nextMorsel];
+            int to = morselStarts[nextMorsel + 1];
+            inFlight.add(pool.submit(() -> runMorsel(from, to)));
+            nextMorsel++;
+        }
+    }
+
+    /**
+     * Runs the pipeline over one morsel, on a worker thread.
+     * @param from The first byte of the morsel.
+     * @param to The end of the morsel, exclusive.
+     * @return The non-empty batches produced by the pipeline.
+     */
+    private List<TupleBatch> runMorsel(int from, int to) {
+        Operator operator = pipeline.apply(morselScan(from, to));
+        List<TupleBatch> result = new ArrayList<>();
+        TupleBatch batch;
+        while ((batch = operator.getNextBatch()) != null) {
+            if (batch.getSize() > 0) result.add(batch);
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the result of a morsel.
+     * @param morsel The morsel task.
+     * @return The batches of the morsel.
+     * @throws RuntimeException If the worker failed, with the failure as cause.
+     */
+    private static List<TupleBatch> await(Future<List<TupleBatch>> morsel) {
+        try {
+            return morsel.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning in parallel", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error scanning in parallel", e.getCause());
+        }
+    }
+
+    /**
+     * Resets the scan to the first morsel, cancelling the morsels in flight.
+     */
+    @Override
+    public void reset() {
+        for (Future<List<TupleBatch>> morsel : inFlight) {
+            morsel.cancel(false);
+        }
+        inFlight.clear();
+        nextMorsel = 0;
+        batches = null;
+        currentBatch = null;
+        currentIndex = 0;
+    }
+}
@@ -1,21 +1,23 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
 import ed.inf.adbs.blazedb.utility.Parser;
+import ed.inf.adbs.blazedb.utility.Schema;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.AllTableColumns;
 import net.sf.jsqlparser.statement.select.SelectItem;
 import net.sf.jsqlparser.expression.Expression;
 
 import java.util.*;
 
-import static ed.inf.adbs.blazedb.Helper.getIndices;
-
 /**
  * ProjectOperator extracts only specific columns from tuples.
  */
 public class ProjectOperator extends Operator {
     private final Operator childOperator;
     private final List<SelectItem<?>> selectItems;
-    private final List<Integer> selectedColumnIndexes;
+    private final int[] selectedColumnIndexes;
 
     /**
      * Initializes the ProjectOperator for the given child operator and parser.
@@ -29,12 +31,39 @@ public class ProjectOperator extends Operator {
         if (isSelectAll()) {
             this.selectedColumnIndexes = null;  // NULL means return full tuple
         } else {
-            this.selectedColumnIndexes = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>();
             for (SelectItem<?> selectItem : selectItems) {
                 Expression expression = selectItem.getExpression();
-                this.selectedColumnIndexes.addAll(getIndices(expression, parser.getTableOrder()));
+                if (expression instanceof AllTableColumns) {
+                    for (int index : childOperator.getSchema().tableColumns(((AllTableColumns) expression).getTable().getName())) {
+                        indices.add(index);
+                    }
+                } else if (expression instanceof Column) {
+                    indices.add(childOperator.getSchema().resolve(((Column) expression).getFullyQualifiedName()));
+                } else {
+                    throw new IllegalArgumentException("Unsupported select item: " + selectItem);
+                }
             }
+            this.selectedColumnIndexes = indices.stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.schema = selectedColumnIndexes == null ? childOperator.getSchema()
+                : childOperator.getSchema().project(selectedColumnIndexes);
+    }
+
+    /**
+     * Initializes a ProjectOperator rearranging the child tuples into a given layout.
+     * @param childOperator The operator producing the tuples to project.
+     * @param schema The output schema, made of columns of the child schema.
+     * @throws IllegalArgumentException If a column is not part of the child schema.
+     */
+    public ProjectOperator(Operator childOperator, Schema schema) {
+        this.childOperator = childOperator;
+        this.selectItems = List.of();
+        this.selectedColumnIndexes = new int[schema.size()];
+        for (int i = 0; i < selectedColumnIndexes.length; i++) {
+            selectedColumnIndexes[i] = childOperator.getSchema().resolve(schema.getColumns().get(i));
         }
+        this.schema = schema;
     }
 
     /**
@@ -49,13 +78,29 @@ public class ProjectOperator extends Operator {
         if (isSelectAll()) {
             return tuple;  // Return full tuple
         } else {
-            List<String> projectedValues = new ArrayList<>();
-            for (Integer selectedColumnIndex : selectedColumnIndexes) {
-                String value = tuple.getValue(selectedColumnIndex).replaceAll("\\s", "");
-                projectedValues.add(value);
+            long[] projectedValues = new long[selectedColumnIndexes.length];
+            for (int i = 0; i < selectedColumnIndexes.length; i++) {
+                projectedValues[i] = tuple.getValue(selectedColumnIndexes[i]);
             }
-            return new Tuple(projectedValues.toArray(new String[0]));
+            return new Tuple(projectedValues);
+        }
+    }
+
+    /**
+     * Retrieves the next batch from the child operator with only the selected columns.
+     * The projected batch shares the column arrays and selection vector of the child batch.
+     * @return The projected batch or null if there are no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch = childOperator.getNextBatch();
+        if (batch == null || isSelectAll()) return batch;
+
+        long[][] projectedColumns = new long[selectedColumnIndexes.length][];
+        for (int i = 0; i < selectedColumnIndexes.length; i++) {
+            projectedColumns[i] = batch.getColumns()[selectedColumnIndexes[i]];
         }
+        return new TupleBatch(batch, projectedColumns);
     }
 
     /**
@@ -0,0 +1,422 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import ed.inf.adbs.blazedb.utility.Hashing;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * RadixJoinOperator performs an equi-join with a radix-partitioned hash join, for build sides
+ * far larger than the CPU caches. Probing one hash table over the whole build side misses the
+ * cache on nearly every row; instead, both inputs are read into memory and partitioned on the
+ * low bits of the hash of their join key, until each build partition is small enough for its
+ * hash table to stay in cache. Partitioning takes several passes of at most
+ * {@link #BITS_PER_PASS} bits, so that each pass writes to few enough partitions at a time.
+ * Matching partitions are then joined independently, on the worker pool of the
+ * {@link ExecutionConfig} when the parallelism is above 1.
+ * <p>
+ * Partitioning is stable, so within a partition the rows keep their input order. The matches
+ * are gathered per left row, and the output has the same order as that of a
+ * {@link HashJoinOperator}: left rows in input order, each paired with its matches in right
+ * input order. Neither input is read before the first batch is requested, so that the
+ * semi-join filters published by the build sides of the joins above are in place.
+ */
+public class RadixJoinOperator extends Operator {
+    private static final int PARTITION_ROWS = 1 << 13; // Target build rows per partition, whose hash table fits in the L2 cache
+    private static final int BITS_PER_PASS = 8; // Radix bits per partitioning pass
+    private static final int MAX_RADIX_BITS = 16; // Leaves enough hash bits for the partition hash tables
+
+    private final int[] leftKeyIndices;
+    private final int[] rightKeyIndices;
+    private final int leftWidth;
+    private final int rightWidth;
+    private final CompiledPredicate predicate; // Null when there is no remaining condition
+    private final Operator leftChild;
+    private final Operator rightChild;
+    private final ForkJoinPool pool; // Null to join the partitions on the calling thread
+    private Rows leftRows; // Null until the first batch
+    private Rows rightRows;
+    private int radixBits; // Hash bits the inputs are partitioned on
+    private int[] matchStarts; // Start of the matches of each left row within matches, then their total
+    private int[] matches; // Right rows matching each left row, grouped by left row, in right input order
+    private int nextLeftRow; // Left row of the next joined rows
+    private int nextMatch; // Next match of that row
+    private TupleBatch currentBatch; // Batch whose rows are returned by getNextTuple
+    private int currentIndex;
+
+    /**
+     * Initializes the RadixJoinOperator, using the worker pool of the {@link ExecutionConfig}
+     * if its parallelism is above 1. The inputs are joined when the first batch is requested.
+     * @param leftChild The left child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     */
+    public RadixJoinOperator(Operator leftChild,
+                             Operator rightChild,
+                             List<Integer> leftKeyIndices,
+                             List<Integer> rightKeyIndices,
+                             Expression condition) {
+        this(leftChild, rightChild, leftKeyIndices, rightKeyIndices, condition,
+                ExecutionConfig.getInstance().getParallelism() > 1 ? ExecutionConfig.getInstance().getWorkerPool() : null);
+    }
+
+    /**
+     * Initializes the RadixJoinOperator. The inputs are joined when the first batch is requested.
+     * @param leftChild The left child operator.
+     * @param rightChild The right (build) child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     * @param pool The worker pool joining the partitions, or null to join them on the calling thread.
+     */
+    public RadixJoinOperator(Operator leftChild,
+                             Operator rightChild,
+                             List<Integer> leftKeyIndices,
+                             List<Integer> rightKeyIndices,
+                             Expression condition,
+                             ForkJoinPool pool) {
+        this.leftKeyIndices = leftKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.rightKeyIndices = rightKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.leftWidth = leftChild.getSchema().size();
+        this.rightWidth = rightChild.getSchema().size();
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.pool = pool;
+    }
+
+    /**
+     * Chooses the number of hash bits to partition on, so that build partitions have about
+     * {@link #PARTITION_ROWS} rows.
+     * @param buildRows The number of build rows.
+     * @return The number of radix bits.
+     */
+    static int radixBits(int buildRows) {
+        int bits = 0;
+        while (bits < MAX_RADIX_BITS && ((long) PARTITION_ROWS << bits) < buildRows) {
+            bits++;
+        }
+        return bits;
+    }
+
+    /**
+     * Reads both inputs, the build side first, partitions them, joins each pair of matching
+     * partitions and gathers the matches of every left row.
+     */
+    private void join() {
+        rightRows = new Rows(rightChild);
+        leftRows = new Rows(leftChild);
+        radixBits = radixBits(rightRows.size);
+        Partitions build = new Partitions(rightRows, rightKeyIndices, radixBits);
+        Partitions probe = new Partitions(leftRows, leftKeyIndices, radixBits);
+        int partitionCount = 1 << radixBits;
+
+        List<int[]> partitionMatches = new ArrayList<>(); // Pairs (left row, right row) of each partition
+        if (pool == null || partitionCount == 1) {
+            for (int partition = 0; partition < partitionCount; partition++) {
+                partitionMatches.add(joinPartition(build, probe, partition));
+            }
+        } else {
+            List<Future<int[]>> tasks = new ArrayList<>();
+            for (int partition = 0; partition < partitionCount; partition++) {
+                int current = partition;
+                tasks.add(pool.submit(() -> joinPartition(build, probe, current)));
+            }
+            for (Future<int[]> task : tasks) {
+                partitionMatches.add(await(task));
+            }
+        }
+
+        // Group the matches by left row; a left row only has matches in the partition of its key
+        matchStarts = new int[leftRows.size + 1];
+        int total = 0;
+        for (int[] pairs : partitionMatches) {
+            for (int i = 1; i < pairs.length; i += 2) {
+                matchStarts[pairs[i - 1] + 1]++;
+            }
+            total = Math.addExact(total, pairs.length / 2);
+        }
+        for (int row = 0; row < leftRows.size; row++) {
+            matchStarts[row + 1] += matchStarts[row];
+        }
+        matches = new int[total];
+        int[] cursors = Arrays.copyOf(matchStarts, leftRows.size);
+        for (int[] pairs : partitionMatches) {
+            for (int i = 1; i < pairs.length; i += 2) {
+                matches[cursors[pairs[i - 1]]++] = pairs[i];
+            }
+        }
+    }
+
+    /**
+     * Joins a partition of the left rows with the matching partition of the right rows,
+     * through a hash table over the right partition.
+     * @param build The partitioned right rows.
+     * @param probe The partitioned left rows.
+     * @param partition The partition number.
+     * @return The matching pairs, as consecutive (left row, right row) values, in left input
+     *         order and then in right input order.
+     */
+    private int[] joinPartition(Partitions build, Partitions probe, int partition) {
+        int buildStart = build.bounds[partition];
+        int buildEnd = build.bounds[partition + 1];
+        int probeStart = probe.bounds[partition];
+        int probeEnd = probe.bounds[partition + 1];
+        if (buildStart == buildEnd || probeStart == probeEnd) return new int[0];
+
+        // Chain the build rows by slot, each chain in input order
+        int mask = Integer.highestOneBit(Math.max(1, (buildEnd - buildStart) * 2 - 1) * 2) - 1;
+        int[] heads = new int[mask + 1];
+        Arrays.fill(heads, -1);
+        int[] next = new int[buildEnd - buildStart];
+        for (int i = buildEnd - 1; i >= buildStart; i--) {
+            int slot = (build.hashes[i] >>> radixBits) & mask;
+            next[i - buildStart] = heads[slot];
+            heads[slot] = i;
+        }
+
+        int[] pairs = new int[64];
+        int size = 0;
+        for (int i = probeStart; i < probeEnd; i++) {
+            int hash = probe.hashes[i];
+            long key = probe.keys[i];
+            for (int j = heads[(hash >>> radixBits) & mask]; j >= 0; j = next[j - buildStart]) {
+                if (build.hashes[j] != hash || build.keys[j] != key
+                        || !keyEquals(probe.rows[i], build.rows[j])) continue;
+                if (size == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, size * 2);
+                }
+                pairs[size++] = probe.rows[i];
+                pairs[size++] = build.rows[j];
+            }
+        }
+        return Arrays.copyOf(pairs, size);
+    }
+
+    /**
+     * Compares the join columns of a left row and a right row, beyond the first join column.
+     */
+    private boolean keyEquals(int leftRow, int rightRow) {
+        for (int k = 1; k < leftKeyIndices.length; k++) {
+            if (leftRows.columns[leftKeyIndices[k]][leftRow] != rightRows.columns[rightKeyIndices[k]][rightRow]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the matches of a partition.
+     * @param task The partition join task.
+     * @return The matching pairs.
+     * @throws RuntimeException If the worker failed, with the failure as cause.
+     */
+    private static int[] await(Future<int[]> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while joining partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error joining partitions", e.getCause());
+        }
+    }
+
+    /**
+     * Retrieves the next tuple resulting from the join between the left and right inputs.
+     * @return The joined tuple, or null if no more tuples are available.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        while (currentBatch == null || currentIndex >= currentBatch.getSize()) {
+            currentBatch = getNextBatch();
+            currentIndex = 0;
+            if (currentBatch == null) return null;
+        }
+        return currentBatch.getTuple(currentIndex++);
+    }
+
+    /**
+     * Retrieves the next batch of joined rows, filtered by the remaining condition.
+     * @return The next batch of joined rows, or null if no more tuples are available.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        if (leftRows == null) {
+            join();
+        }
+        while (nextLeftRow < leftRows.size) {
+            long[][] columns = new long[leftWidth + rightWidth][TupleBatch.DEFAULT_CAPACITY];
+            int size = 0;
+            while (size < TupleBatch.DEFAULT_CAPACITY && nextLeftRow < leftRows.size) {
+                if (nextMatch < matchStarts[nextLeftRow]) {
+                    nextMatch = matchStarts[nextLeftRow];
+                }
+                if (nextMatch >= matchStarts[nextLeftRow + 1]) {
+                    nextLeftRow++;
+                    continue;
+                }
+                int rightRow = matches[nextMatch++];
+                for (int c = 0; c < leftWidth; c++) {
+                    columns[c][size] = leftRows.columns[c][nextLeftRow];
+                }
+                for (int c = 0; c < rightWidth; c++) {
+                    columns[leftWidth + c][size] = rightRows.columns[c][rightRow];
+                }
+                size++;
+            }
+
+            TupleBatch batch = new TupleBatch(columns, size);
+            if (predicate != null) {
+                predicate.filter(batch);
+            }
+            if (batch.getSize() > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resets the operator to the first joined row. The join is not computed again.
+     */
+    @Override
+    public void reset() {
+        nextLeftRow = 0;
+        nextMatch = 0;
+        currentBatch = null;
+        currentIndex = 0;
+    }
+
+    /**
+     * The rows of an input, read into memory column by column.
+     */
+    private static class Rows {
+        private long[][] columns;
+        private int size;
+
+        /**
+         * Reads every row of an operator.
+         * @param child The operator.
+         */
+        Rows(Operator child) {
+            int width = child.getSchema().size();
+            this.columns = new long[width][TupleBatch.DEFAULT_CAPACITY];
+            int capacity = TupleBatch.DEFAULT_CAPACITY;
+            TupleBatch batch;
+            while ((batch = child.getNextBatch()) != null) {
+                int count = batch.getSize();
+                if (size + count > capacity) {
+                    capacity = Math.max(capacity * 2, size + count);
+                    for (int c = 0; c < width; c++) {
+                        columns[c] = Arrays.copyOf(columns[c], capacity);
+                    }
+                }
+                long[][] source = batch.getColumns();
+                int[] selection = batch.getSelection();
+                for (int c = 0; c < width; c++) {
+                    for (int i = 0; i < count; i++) {
+                        columns[c][size + i] = source[c][selection[i]];
+                    }
+                }
+                size += count;
+            }
+        }
+    }
+
+    /**
+     * The rows of an input partitioned on the low bits of the hash of their join key. Each
+     * partitioned row carries its hash and first join column, so that joining a partition
+     * reads contiguous memory, and its row number.
+     */
+    private static class Partitions {
+        private int[] hashes;
+        private long[] keys; // First join column of each row
+        private int[] rows; // Row number within the input
+        private int[] bounds; // Start of each partition, then the row count
+
+        /**
+         * Partitions the rows of an input, in passes of at most {@link #BITS_PER_PASS} bits.
+         * @param input The rows.
+         * @param keyIndices The join column indices.
+         * @param radixBits The number of hash bits to partition on.
+         */
+        Partitions(Rows input, int[] keyIndices, int radixBits) {
+            int size = input.size;
+            this.hashes = new int[size];
+            this.keys = new long[size];
+            this.rows = new int[size];
+            long[] firstKeys = input.columns[keyIndices[0]];
+            for (int row = 0; row < size; row++) {
+                hashes[row] = Hashing.hashKey(input.columns, row, keyIndices);
+                keys[row] = firstKeys[row];
+                rows[row] = row;
+            }
+            this.bounds = new int[] {0, size};
+
+            for (int shift = 0; shift < radixBits; shift += BITS_PER_PASS) {
+                partitionPass(shift, Math.min(BITS_PER_PASS, radixBits - shift));
+            }
+        }
+
+        /**
+         * Splits every current partition on some more hash bits, keeping the rows of each
+         * new partition in their current order.
+         * @param shift The position of the lowest hash bit of the pass.
+         * @param bits The number of hash bits of the pass.
+         */
+        private void partitionPass(int shift, int bits) {
+            int fanOut = 1 << bits;
+            int partitionCount = bounds.length - 1;
+            int[] newHashes = new int[hashes.length];
+            long[] newKeys = new long[keys.length];
+            int[] newRows = new int[rows.length];
+            int[] newBounds = new int[partitionCount * fanOut + 1];
+
+            int[] cursors = new int[fanOut];
+            for (int partition = 0; partition < partitionCount; partition++) {
+                int start = bounds[partition];
+                int end = bounds[partition + 1];
+
+                Arrays.fill(cursors, 0);
+                for (int i = start; i < end; i++) {
+                    cursors[(hashes[i] >>> shift) & (fanOut - 1)]++;
+                }
+                int offset = start;
+                for (int digit = 0; digit < fanOut; digit++) {
+                    int count = cursors[digit];
+                    cursors[digit] = offset;
+                    newBounds[partition * fanOut + digit] = offset;
+                    offset += count;
+                }
+                for (int i = start; i < end; i++) {
+                    int target = cursors[(hashes[i] >>> shift) & (fanOut - 1)]++;
+                    newHashes[target] = hashes[i];
+                    newKeys[target] = keys[i];
+                    newRows[target] = rows[i];
+                }
+            }
+            newBounds[partitionCount * fanOut] = hashes.length;
+
+            this.hashes = newHashes;
+            this.keys = newKeys;
+            this.rows = newRows;
+            this.bounds = newBounds;
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.DatabaseCatalog;
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.ColumnBounds;
+import ed.inf.adbs.blazedb.utility.Schema;
+import ed.inf.adbs.blazedb.utility.ZoneMap;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * ScanOperator reads tuples from a table file and iterates over them.
+ * By default the table file is memory-mapped and integers are parsed straight from
+ * its bytes; files too large to map, or scans with memory mapping disabled in the
+ * {@link ExecutionConfig}, fall back to a buffered line reader.
+ * When given a zone map and column bounds, the scan skips the blocks of rows
+ * whose min/max values cannot satisfy the bounds.
  */
 public class ScanOperator extends Operator {
     private BufferedReader reader;
+    private ByteBuffer buffer; // Non-null when the table file is memory-mapped
     private final File tableFile;
+    private final long[] rowBuffer; // Reused row buffer for batch reads
+    private final ZoneMap zoneMap; // Null when every row is scanned
+    private final ColumnBounds bounds;
+    private int nextBlock;
+    private int rowsLeftInBlock;
+    private long position; // Byte offset of the reader, tracked at block boundaries
 
     /**
      * Initializes the ScanOperator for a given table.
@@ -17,9 +37,53 @@ public class ScanOperator extends Operator {
      * @throws FileNotFoundException if the table file cannot be found.
      */
     public ScanOperator(String tableName) throws FileNotFoundException {
+        this(tableName, null, null);
+    }
+
+    /**
+     * Initializes the ScanOperator for a given table, skipping blocks ruled out by a zone map.
+     * The zone map must have been built from the current table file.
+     * @param tableName The name of the table to scan.
+     * @param zoneMap The zone map of the table, or null to scan every row.
+     * @param bounds The column bounds rows must lie within, or null to scan every row.
+     * @throws FileNotFoundException if the table file cannot be found.
+     */
+    public ScanOperator(String tableName, ZoneMap zoneMap, ColumnBounds bounds) throws FileNotFoundException {
+        this.zoneMap = bounds == null ? null : zoneMap;
+        this.bounds = bounds;
         DatabaseCatalog catalog = DatabaseCatalog.getInstance();
         this.tableFile = catalog.getTableFile(tableName);
-        openFile();
+        this.schema = Schema.forTable(tableName);
+        this.rowBuffer = new long[schema.size()];
+        if (ExecutionConfig.getInstance().isMemoryMappedScan() && tableFile.length() <= Integer.MAX_VALUE) {
+            mapFile();
+        } else {
+            openFile();
+        }
+    }
+
+    /**
+     * Initializes a ScanOperator over a range of whole rows of a memory-mapped table file,
+     * as read by one worker of a {@link ParallelScanOperator}.
+     * @param schema The schema of the table.
+     * @param tableFile The table file, named in error messages.
+     * @param rows The mapped bytes of the rows, starting at position 0.
+     */
+    ScanOperator(Schema schema, File tableFile, ByteBuffer rows) {
+        this.zoneMap = null;
+        this.bounds = null;
+        this.tableFile = tableFile;
+        this.schema = schema;
+        this.rowBuffer = new long[schema.size()];
+        this.buffer = rows;
+    }
+
+    /**
+     * Indicates whether the scan skips blocks of rows using a zone map.
+     * @return True if a zone map restricts the scan.
+     */
+    public boolean isZoneMapped() {
+        return zoneMap != null;
     }
 
     /**
@@ -30,6 +94,145 @@ public class ScanOperator extends Operator {
         reader = new BufferedReader(new FileReader(tableFile));
     }
 
+    /**
+     * Maps the whole table file into memory. The channel is closed right away,
+     * as the mapping stays valid on its own.
+     * @throws FileNotFoundException if the table file cannot be found or mapped.
+     */
+    private void mapFile() throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(tableFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            FileNotFoundException notFound = new FileNotFoundException("Cannot map table file: " + tableFile);
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    /**
+     * Reads the next row of the table file into the given array, skipping
+     * the blocks ruled out by the zone map if there is one.
+     * @param values The array receiving the row values.
+     * @return True if a row was read, false at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean readRow(long[] values) throws IOException {
+        if (zoneMap != null) {
+            while (rowsLeftInBlock == 0) {
+                if (nextBlock >= zoneMap.getBlockCount()) {
+                    return false;
+                }
+                int block = nextBlock++;
+                if (zoneMap.mayMatch(block, bounds)) {
+                    seek(zoneMap.getBlockOffset(block));
+                    rowsLeftInBlock = zoneMap.getBlockRowCount(block);
+                    position = block + 1 < zoneMap.getBlockCount() ? zoneMap.getBlockOffset(block + 1) : -1;
+                }
+            }
+            rowsLeftInBlock--;
+        }
+        return readNextRow(values);
+    }
+
+    /**
+     * Moves the scan to a byte offset of the table file, at the start of a block.
+     * The buffered reader can only move forward; the table files are ASCII, so
+     * characters and bytes match.
+     * @param offset The byte offset.
+     * @throws IOException if the file cannot be read.
+     */
+    private void seek(long offset) throws IOException {
+        if (buffer != null) {
+            buffer.position((int) offset);
+        } else if (offset > position) {
+            reader.skip(offset - position);
+        }
+    }
+
+    /**
+     * Reads the next row at the current position of the table file.
+     * @param values The array receiving the row values.
+     * @return True if a row was read, false at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean readNextRow(long[] values) throws IOException {
+        if (buffer != null) {
+            return readMappedRow(values);
+        }
+
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+        } while (line.isBlank()); // Skip empty lines, e.g. a trailing newline
+        if (Tuple.parseCSV(line, values) != values.length) {
+            throw new NumberFormatException("Invalid row in " + tableFile);
+        }
+        return true;
+    }
+
+    /**
+     * Parses the next row straight from the mapped bytes, skipping blank lines. As in
+     * {@link Tuple#parseCSV}, whitespace is allowed around a field but not within it.
+     * @param values The array receiving the row values.
+     * @return True if a row was read, false at the end of the file.
+     * @throws NumberFormatException if the row is not a list of comma-separated integers
+     *         with one value per column.
+     */
+    private boolean readMappedRow(long[] values) {
+        int field = 0;
+        long value = 0;
+        boolean negative = false;
+        boolean hasDigits = false;
+        boolean ended = false; // Whitespace followed the digits of the field
+
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b >= '0' && b <= '9') {
+                if (ended || value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    throw new NumberFormatException("Invalid row in " + tableFile);
+                }
+                value = value * 10 + (b - '0');
+                hasDigits = true;
+            } else if (b == ',' || b == '\n') {
+                if (hasDigits && field < values.length) {
+                    values[field++] = negative ? -value : value;
+                } else if (hasDigits || negative || b == ',' || field > 0) {
+                    throw new NumberFormatException("Invalid row in " + tableFile);
+                }
+                value = 0;
+                negative = false;
+                hasDigits = false;
+                ended = false;
+                if (b == '\n' && field > 0) {
+                    if (field < values.length) {
+                        throw new NumberFormatException("Invalid row in " + tableFile);
+                    }
+                    return true;
+                }
+            } else if (b == '-' && !hasDigits && !negative) {
+                negative = true;
+            } else if ((b == ' ' || b == '\t' || b == '\r') && (hasDigits || !negative)) {
+                ended = hasDigits;
+            } else {
+                throw new NumberFormatException("Invalid row in " + tableFile);
+            }
+        }
+
+        // Last row without a trailing newline
+        if (hasDigits && field == values.length - 1) {
+            values[field] = negative ? -value : value;
+            return true;
+        } else if (hasDigits || negative || field > 0) {
+            throw new NumberFormatException("Invalid row in " + tableFile);
+        }
+        return false;
+    }
+
     /**
      * Retrieves the next tuple from the table file.
      * @return The next tuple or null if there are no more tuples.
@@ -37,11 +240,30 @@ public class ScanOperator extends Operator {
     @Override
     public Tuple getNextTuple() {
         try {
-            String line = reader.readLine();
-            if (line == null) {
+            long[] values = new long[rowBuffer.length];
+            return readRow(values) ? new Tuple(values) : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the next batch of rows, parsing each row straight into the batch columns.
+     * @return The next batch or null if there are no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        try {
+            if (!readRow(rowBuffer)) {
                 return null;
             }
-            return new Tuple(line.split(","));
+
+            TupleBatch batch = new TupleBatch(rowBuffer.length, TupleBatch.DEFAULT_CAPACITY);
+            do {
+                batch.addRow(rowBuffer);
+            } while (!batch.isFull() && readRow(rowBuffer));
+            return batch;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -49,10 +271,18 @@ public class ScanOperator extends Operator {
     }
 
     /**
-     * Resets the file reader to the beginning of the table file.
+     * Resets the scan to the beginning of the table file. A mapped file is simply
+     * rewound; otherwise the file reader is reopened.
      */
     @Override
     public void reset() {
+        nextBlock = 0;
+        rowsLeftInBlock = 0;
+        position = 0;
+        if (buffer != null) {
+            buffer.rewind();
+            return;
+        }
         try {
             reader.close();
             openFile();
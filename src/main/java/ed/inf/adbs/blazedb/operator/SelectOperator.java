@@ -1,30 +1,38 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
 import ed.inf.adbs.blazedb.utility.Parser;
 import net.sf.jsqlparser.expression.Expression;
-import ed.inf.adbs.blazedb.utility.ExpressionEvaluator;
-
-import java.util.List;
 
 /**
  * SelectOperator filters tuples based on WHERE conditions.
+ * The WHERE clause is compiled once for the schema of the child; conditions on
+ * columns the child does not produce are left to the operators above.
  */
 public class SelectOperator extends Operator {
     private final Operator childOperator;
-    private final Expression whereClause;
-    private final List<String> tableOrder;
+    private final CompiledPredicate predicate; // Null when there is no WHERE clause
 
     /**
-     * Initializes the SelectOperator with child operator, parser, and table order.
+     * Initializes the SelectOperator with child operator and parser.
      * @param childOperator The child operator to retrieve tuples from.
      * @param parser The parser containing WHERE clause.
-     * @param tableOrder The order of the tables.
      */
-    public SelectOperator(Operator childOperator, Parser parser, List<String> tableOrder) {
+    public SelectOperator(Operator childOperator, Parser parser) {
+        this(childOperator, parser.getWhereClause());
+    }
+
+    /**
+     * Initializes the SelectOperator with child operator and condition.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param condition The condition tuples must satisfy, may be null.
+     */
+    public SelectOperator(Operator childOperator, Expression condition) {
         this.childOperator = childOperator;
-        this.whereClause = parser.getWhereClause();
-        this.tableOrder = tableOrder;
+        this.schema = childOperator.getSchema();
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
     }
 
     /**
@@ -35,14 +43,32 @@ public class SelectOperator extends Operator {
     public Tuple getNextTuple() {
         Tuple tuple;
         while ((tuple = childOperator.getNextTuple()) != null) {
-            ExpressionEvaluator evaluator = new ExpressionEvaluator(tableOrder, tuple);
-            if (whereClause == null || evaluator.evaluate(whereClause)) {
+            if (predicate == null || predicate.test(tuple.getValues())) {
                 return tuple;
             }
         }
         return null;
     }
 
+    /**
+     * Retrieves the next batch of rows, narrowing its selection vector to the rows
+     * that satisfy the WHERE clause condition. Batches left empty are skipped.
+     * @return The next filtered batch or null if no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch;
+        while ((batch = childOperator.getNextBatch()) != null) {
+            if (predicate != null) {
+                predicate.filter(batch);
+            }
+            if (batch.getSize() > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
     /**
      * Resets the child operator to the beginning.
      */
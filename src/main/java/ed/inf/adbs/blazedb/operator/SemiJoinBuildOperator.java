@@ -0,0 +1,121 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.BloomFilter;
+import ed.inf.adbs.blazedb.utility.SemiJoinFilter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SemiJoinBuildOperator passes the rows of the build side of a hash join through unchanged,
+ * collecting their join keys on the way. Once its input has been read entirely, it publishes
+ * a {@link BloomFilter} of the keys of each {@link SemiJoinFilter}, which the
+ * {@link SemiJoinFilterOperator}s on the probe side then apply.
+ */
+public class SemiJoinBuildOperator extends Operator {
+    private final Operator childOperator;
+    private final List<SemiJoinFilter> filters;
+    private final int[] columnIndices; // Position of the build column of each filter in the child tuples
+    private long[][] keys; // Keys read so far for each filter, null once published
+    private int keyCount;
+
+    /**
+     * Initializes the SemiJoinBuildOperator.
+     * @param childOperator The build side of the join.
+     * @param filters The semi-join filters of the join.
+     */
+    public SemiJoinBuildOperator(Operator childOperator, List<SemiJoinFilter> filters) {
+        this.childOperator = childOperator;
+        this.schema = childOperator.getSchema();
+        this.filters = filters;
+        this.columnIndices = new int[filters.size()];
+        for (int i = 0; i < columnIndices.length; i++) {
+            columnIndices[i] = schema.resolve(filters.get(i).getBuildColumn());
+        }
+        this.keys = new long[filters.size()][TupleBatch.DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Retrieves the next tuple of the build side, collecting its keys.
+     * @return The next tuple, or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        Tuple tuple = childOperator.getNextTuple();
+        if (keys != null) {
+            if (tuple == null) {
+                publish();
+            } else {
+                ensureCapacity(1);
+                for (int i = 0; i < columnIndices.length; i++) {
+                    keys[i][keyCount] = tuple.getValue(columnIndices[i]);
+                }
+                keyCount++;
+            }
+        }
+        return tuple;
+    }
+
+    /**
+     * Retrieves the next batch of the build side, collecting the keys of its selected rows.
+     * @return The next batch, or null if no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch = childOperator.getNextBatch();
+        if (keys != null) {
+            if (batch == null) {
+                publish();
+            } else {
+                ensureCapacity(batch.getSize());
+                int[] selection = batch.getSelection();
+                for (int i = 0; i < columnIndices.length; i++) {
+                    long[] column = batch.getColumns()[columnIndices[i]];
+                    for (int j = 0; j < batch.getSize(); j++) {
+                        keys[i][keyCount + j] = column[selection[j]];
+                    }
+                }
+                keyCount += batch.getSize();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Grows the key arrays to hold some more keys.
+     * @param count The number of keys about to be added.
+     */
+    private void ensureCapacity(int count) {
+        if (keyCount + count <= keys[0].length) return;
+        int capacity = Math.max(keys[0].length * 2, keyCount + count);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Arrays.copyOf(keys[i], capacity);
+        }
+    }
+
+    /**
+     * Builds the Bloom filter of the keys of each filter and publishes it.
+     */
+    private void publish() {
+        for (int i = 0; i < columnIndices.length; i++) {
+            BloomFilter bloomFilter = new BloomFilter(keyCount);
+            for (int j = 0; j < keyCount; j++) {
+                bloomFilter.add(keys[i][j]);
+            }
+            filters.get(i).publish(bloomFilter);
+        }
+        keys = null;
+    }
+
+    /**
+     * Resets the child operator to the beginning. Keys collected from a partial read are
+     * discarded; once published, the filters are kept, as the build side does not change.
+     */
+    @Override
+    public void reset() {
+        childOperator.reset();
+        keyCount = 0;
+    }
+}
@@ -0,0 +1,99 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.BloomFilter;
+import ed.inf.adbs.blazedb.utility.SemiJoinFilter;
+
+import java.util.List;
+
+/**
+ * SemiJoinFilterOperator drops the rows of a scanned table that cannot match the build side
+ * of a hash join further up the plan: rows whose column value is not in the published
+ * {@link SemiJoinFilter} of that join. Filters not published yet let every row through.
+ */
+public class SemiJoinFilterOperator extends Operator {
+    private final Operator childOperator;
+    private final List<SemiJoinFilter> filters;
+    private final int[] columnIndices; // Position of the probed column of each filter in the child tuples
+
+    /**
+     * Initializes the SemiJoinFilterOperator.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param filters The semi-join filters of the child's table.
+     */
+    public SemiJoinFilterOperator(Operator childOperator, List<SemiJoinFilter> filters) {
+        this.childOperator = childOperator;
+        this.schema = childOperator.getSchema();
+        this.filters = filters;
+        this.columnIndices = new int[filters.size()];
+        for (int i = 0; i < columnIndices.length; i++) {
+            columnIndices[i] = schema.resolve(filters.get(i).getProbeColumn());
+        }
+    }
+
+    /**
+     * Retrieves the next tuple that may have a match in every published build side.
+     * @return The next tuple, or null if no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        Tuple tuple;
+        while ((tuple = childOperator.getNextTuple()) != null) {
+            if (mightMatch(tuple)) {
+                return tuple;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests a tuple against every published filter.
+     */
+    private boolean mightMatch(Tuple tuple) {
+        for (int i = 0; i < columnIndices.length; i++) {
+            BloomFilter keys = filters.get(i).getKeys();
+            if (keys != null && !keys.mightContain(tuple.getValue(columnIndices[i]))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the next batch of rows, narrowing its selection vector to the rows that may
+     * have a match in every published build side. Batches left empty are skipped.
+     * @return The next filtered batch or null if no more tuples.
+     */
+    @Override
+    public TupleBatch getNextBatch() {
+        TupleBatch batch;
+        while ((batch = childOperator.getNextBatch()) != null) {
+            long[][] columns = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int i = 0; i < columnIndices.length; i++) {
+                BloomFilter keys = filters.get(i).getKeys();
+                if (keys == null) continue;
+
+                long[] column = columns[columnIndices[i]];
+                int kept = 0;
+                for (int j = 0; j < batch.getSize(); j++) {
+                    if (keys.mightContain(column[selection[j]])) {
+                        selection[kept++] = selection[j];
+                    }
+                }
+                batch.setSize(kept);
+            }
+            if (batch.getSize() > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resets the child operator to the beginning.
+     */
+    @Override
+    public void reset() {
+        childOperator.reset();
+    }
+}
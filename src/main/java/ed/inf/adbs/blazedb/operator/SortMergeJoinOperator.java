@@ -0,0 +1,177 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ExecutionConfig;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import net.sf.jsqlparser.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SortMergeJoinOperator performs an equi-join by sorting both inputs on their join columns
+ * and merging them. The inputs are sorted by {@link SortOperator}s, which spill sorted runs to
+ * disk when an input exceeds the sort buffer, so the join works in bounded memory however
+ * large its inputs are.
+ * <p>
+ * The merge advances whichever input has the smaller key. When the keys are equal, the run of
+ * right tuples with that key is marked by buffering it, and restored for every following left
+ * tuple with the same key, so duplicate keys on both sides produce every matching pair. Only
+ * one run of equal right keys is held in memory at a time.
+ * <p>
+ * The output is ordered by join key; within a key, left tuples keep their input order, and
+ * each is paired with the right tuples in their input order. The inputs are sorted when the
+ * first tuple is requested, the right one first, so that the semi-join filters published by
+ * the build sides of the hash joins above are in place when they are read.
+ */
+public class SortMergeJoinOperator extends Operator {
+    private final Operator leftInput;
+    private final Operator rightInput;
+    private final int bufferSize;
+    private Operator leftChild; // Left input, sorted on its join columns, null until the first tuple
+    private Operator rightChild; // Right input, sorted on its join columns
+    private final int[] leftKeyIndices;
+    private final int[] rightKeyIndices;
+    private final CompiledPredicate predicate; // Null when there is no remaining condition
+    private final List<Tuple> rightRun; // Right tuples sharing the key of the current left tuple
+    private Tuple leftTuple;
+    private Tuple rightTuple; // Next right tuple after the run
+    private int runIndex; // Next tuple of the run to pair with the current left tuple
+
+    /**
+     * Initializes the SortMergeJoinOperator with the sort buffer size of the {@link ExecutionConfig}.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     */
+    public SortMergeJoinOperator(Operator leftChild,
+                                 Operator rightChild,
+                                 List<Integer> leftKeyIndices,
+                                 List<Integer> rightKeyIndices,
+                                 Expression condition) {
+        this(leftChild, rightChild, leftKeyIndices, rightKeyIndices, condition,
+                ExecutionConfig.getInstance().getSortBufferSize());
+    }
+
+    /**
+     * Initializes the SortMergeJoinOperator. Both inputs are sorted when the first tuple is requested.
+     * @param leftChild The left child operator.
+     * @param rightChild The right child operator.
+     * @param leftKeyIndices The join column indices within the left tuples.
+     * @param rightKeyIndices The join column indices within the right tuples.
+     * @param condition The remaining condition matching pairs must satisfy, may be null.
+     * @param bufferSize The maximum number of tuples kept in memory per sorted run.
+     */
+    public SortMergeJoinOperator(Operator leftChild,
+                                 Operator rightChild,
+                                 List<Integer> leftKeyIndices,
+                                 List<Integer> rightKeyIndices,
+                                 Expression condition,
+                                 int bufferSize) {
+        this.leftKeyIndices = leftKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.rightKeyIndices = rightKeyIndices.stream().mapToInt(Integer::intValue).toArray();
+        this.leftInput = leftChild;
+        this.rightInput = rightChild;
+        this.bufferSize = bufferSize;
+        this.schema = leftChild.getSchema().concat(rightChild.getSchema());
+        this.predicate = condition == null ? null : CompiledPredicate.compile(condition, schema);
+        this.rightRun = new ArrayList<>();
+    }
+
+    /**
+     * Positions the merge on the first tuple of each sorted input.
+     */
+    private void start() {
+        rightRun.clear();
+        runIndex = 0;
+        leftTuple = leftChild.getNextTuple();
+        rightTuple = rightChild.getNextTuple();
+    }
+
+    /**
+     * Retrieves the next tuple resulting from the join between the left and right inputs.
+     * Remaining WHERE conditions are evaluated on each matching pair.
+     * @return The joined tuple, or null if no more tuples are available.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (leftChild == null) {
+            rightChild = new SortOperator(rightInput, rightKeyIndices, bufferSize);
+            leftChild = new SortOperator(leftInput, leftKeyIndices, bufferSize);
+            start();
+        }
+        while (true) {
+            // Pair the current left tuple with the run of right tuples sharing its key
+            while (runIndex < rightRun.size()) {
+                Tuple joinedTuple = Tuple.concat(leftTuple, rightRun.get(runIndex++));
+                if (predicate == null || predicate.test(joinedTuple.getValues())) {
+                    return joinedTuple;
+                }
+            }
+
+            if (!rightRun.isEmpty()) {
+                leftTuple = leftChild.getNextTuple();
+                runIndex = 0;
+                if (leftTuple != null && compareKeys(leftTuple, rightRun.get(0)) == 0) {
+                    continue; // Restore the run for the next left tuple with the same key
+                }
+                rightRun.clear();
+            }
+
+            if (leftTuple == null || rightTuple == null) {
+                return null;
+            }
+            int comparison = compareKeys(leftTuple, rightTuple);
+            if (comparison < 0) {
+                leftTuple = leftChild.getNextTuple();
+            } else if (comparison > 0) {
+                rightTuple = rightChild.getNextTuple();
+            } else {
+                // Mark the run of right tuples with the key of the left tuple
+                Tuple first = rightTuple;
+                while (rightTuple != null && compareRightKeys(rightTuple, first) == 0) {
+                    rightRun.add(rightTuple);
+                    rightTuple = rightChild.getNextTuple();
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the join key of a left tuple with that of a right tuple.
+     * @return A negative integer, zero, or a positive integer if the left key is smaller, equal or greater.
+     */
+    private int compareKeys(Tuple left, Tuple right) {
+        for (int k = 0; k < leftKeyIndices.length; k++) {
+            int comparison = Long.compare(left.getValue(leftKeyIndices[k]), right.getValue(rightKeyIndices[k]));
+            if (comparison != 0) return comparison;
+        }
+        return 0;
+    }
+
+    /**
+     * Compares the join keys of two right tuples.
+     * @return A negative integer, zero, or a positive integer if the first key is smaller, equal or greater.
+     */
+    private int compareRightKeys(Tuple first, Tuple second) {
+        for (int index : rightKeyIndices) {
+            int comparison = Long.compare(first.getValue(index), second.getValue(index));
+            if (comparison != 0) return comparison;
+        }
+        return 0;
+    }
+
+    /**
+     * Resets the merge. Inputs sorted in memory are replayed without sorting them again;
+     * inputs sorted externally are sorted again, as their runs are deleted once merged.
+     */
+    @Override
+    public void reset() {
+        if (leftChild == null) return; // Not sorted yet
+        leftChild.reset();
+        rightChild.reset();
+        start();
+    }
+}
@@ -1,86 +1,359 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
 import ed.inf.adbs.blazedb.utility.Parser;
+import ed.inf.adbs.blazedb.utility.Schema;
 import net.sf.jsqlparser.statement.select.OrderByElement;
-import net.sf.jsqlparser.expression.Expression;
 
+import java.io.*;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-
-import static ed.inf.adbs.blazedb.Helper.getIndices;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * SortOperator sorts tuples based on ORDER BY columns.
+ * Inputs that fit in the configured sort buffer are sorted in memory. Larger inputs are
+ * sorted externally: sorted runs are spilled to temporary files and k-way merged. Each run
+ * file is deleted as soon as the merge has read it to the end.
+ * Large buffers are sorted by several worker threads when parallelism is configured.
  */
 public class SortOperator extends Operator {
+    private static final int PARALLEL_SORT_SLICE = 1 << 14; // Min tuples per slice sorted by a worker
     private final Operator childOperator;
-    private final List<OrderByElement> orderByElements;
+    private final int[] sortIndices; // Positions of the ORDER BY columns in the child tuples
     private final List<Tuple> sortedTuples;
-    private final List<String> tableOrder;
+    private final int bufferSize;
+    private final List<File> runFiles;
+    private PriorityQueue<RunReader> mergeQueue;
     private int currentIndex;
 
     /**
      * Initializes the SortOperator with child operator and parser.
+     * The sort buffer size is taken from the {@link ExecutionConfig}.
      * @param childOperator The child operator to retrieve tuples from.
      * @param parser The parser to extract ORDER BY columns.
      */
     public SortOperator(Operator childOperator, Parser parser) {
+        this(childOperator, parser, ExecutionConfig.getInstance().getSortBufferSize());
+    }
+
+    /**
+     * Initializes the SortOperator with child operator, parser and sort buffer size.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param parser The parser to extract ORDER BY columns.
+     * @param bufferSize The maximum number of tuples kept in memory per sorted run.
+     */
+    public SortOperator(Operator childOperator, Parser parser, int bufferSize) {
+        this(childOperator, resolveSortIndices(childOperator.getSchema(), parser.getOrderByElements()), bufferSize);
+    }
+
+    /**
+     * Initializes the SortOperator with child operator, sort columns and sort buffer size.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param sortIndices The positions of the sort columns in the child tuples, by priority.
+     * @param bufferSize The maximum number of tuples kept in memory per sorted run.
+     */
+    public SortOperator(Operator childOperator, int[] sortIndices, int bufferSize) {
         this.childOperator = childOperator;
-        this.orderByElements = parser.getOrderByElements();
-        this.tableOrder = parser.getTableOrder();
+        this.schema = childOperator.getSchema();
+        this.sortIndices = sortIndices;
+        this.bufferSize = bufferSize;
         this.sortedTuples = new ArrayList<>();
+        this.runFiles = new ArrayList<>();
         this.currentIndex = 0;
         loadAndSortTuples();
     }
 
+    /**
+     * Resolves the ORDER BY columns against the schema of the child tuples.
+     * @param schema The schema of the child tuples.
+     * @param orderByElements The ORDER BY elements, may be null.
+     * @return The positions of the ORDER BY columns.
+     * @throws IllegalArgumentException If an ORDER BY column is not produced by the child.
+     */
+    static int[] resolveSortIndices(Schema schema, List<OrderByElement> orderByElements) {
+        if (orderByElements == null) {
+            return new int[0];
+        }
+        int[] indices = new int[orderByElements.size()];
+        for (int i = 0; i < indices.length; i++) {
+            String column = orderByElements.get(i).getExpression().toString();
+            if (schema.indexOf(column) < 0) {
+                throw new IllegalArgumentException("Invalid ORDER BY column: " + column);
+            }
+            indices[i] = schema.indexOf(column);
+        }
+        return indices;
+    }
+
     /**
      * Loads tuples from the child operator and sorts them based on ORDER BY.
+     * Whenever the buffer fills up, its sorted content is spilled to a run file.
      */
     private void loadAndSortTuples() {
         Tuple tuple;
         while ((tuple = childOperator.getNextTuple()) != null) {
             sortedTuples.add(tuple);
+            if (sortedTuples.size() >= bufferSize && sortIndices.length > 0) {
+                spillRun();
+            }
+        }
+
+        if (runFiles.isEmpty()) {
+            if (sortIndices.length > 0) {
+                sortBuffer();
+            }
+            return;
+        }
+
+        if (!sortedTuples.isEmpty()) {
+            spillRun();
+        }
+        openMerge();
+    }
+
+    /**
+     * Sorts the buffered tuples. Large buffers are cut into slices sorted in parallel by the
+     * worker pool of the {@link ExecutionConfig}, which are then merged; on equal keys the merge
+     * takes the tuple of the earlier slice, so the result is the same stable order as a serial sort.
+     */
+    private void sortBuffer() {
+        TupleComparator comparator = new TupleComparator(sortIndices);
+        ExecutionConfig config = ExecutionConfig.getInstance();
+        int sliceCount = Math.min(config.getParallelism(), sortedTuples.size() / PARALLEL_SORT_SLICE);
+        if (sliceCount <= 1) {
+            sortedTuples.sort(comparator);
+            return;
+        }
+
+        List<Future<Tuple[]>> sortedSlices = new ArrayList<>();
+        for (int i = 0; i < sliceCount; i++) {
+            Tuple[] slice = sortedTuples.subList(sortedTuples.size() * i / sliceCount,
+                    sortedTuples.size() * (i + 1) / sliceCount).toArray(new Tuple[0]);
+            sortedSlices.add(config.getWorkerPool().submit(() -> {
+                Arrays.sort(slice, comparator);
+                return slice;
+            }));
+        }
+
+        Tuple[][] slices = new Tuple[sliceCount][];
+        try {
+            for (int i = 0; i < sliceCount; i++) {
+                slices[i] = sortedSlices.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while sorting", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error sorting in parallel", e.getCause());
+        }
+
+        int[] heads = new int[sliceCount];
+        PriorityQueue<Integer> merge = new PriorityQueue<>(sliceCount, (s1, s2) -> {
+            int comparison = comparator.compare(slices[s1][heads[s1]], slices[s2][heads[s2]]);
+            return comparison != 0 ? comparison : Integer.compare(s1, s2);
+        });
+        for (int i = 0; i < sliceCount; i++) {
+            merge.add(i);
+        }
+        sortedTuples.clear();
+        while (!merge.isEmpty()) {
+            int slice = merge.poll();
+            sortedTuples.add(slices[slice][heads[slice]++]);
+            if (heads[slice] < slices[slice].length) {
+                merge.add(slice);
+            }
+        }
+    }
+
+    /**
+     * Sorts the buffered tuples and writes them to a new temporary run file.
+     */
+    private void spillRun() {
+        sortBuffer();
+        try {
+            File runFile = File.createTempFile("blazedb-sort-", ".run");
+            runFile.deleteOnExit(); // In case the merge never gets to the end of the run
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(runFile)))) {
+                for (Tuple tuple : sortedTuples) {
+                    writeTuple(output, tuple);
+                }
+            }
+            runFiles.add(runFile);
+            sortedTuples.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error spilling sorted run", e);
         }
+    }
+
+    /**
+     * Opens every run file and primes the merge queue with the first tuple of each run.
+     */
+    private void openMerge() {
+        closeMerge();
+        TupleComparator comparator = new TupleComparator(sortIndices);
+        mergeQueue = new PriorityQueue<>(Math.max(1, runFiles.size()), (r1, r2) -> {
+            int comparison = comparator.compare(r1.current, r2.current);
+            return comparison != 0 ? comparison : Integer.compare(r1.runIndex, r2.runIndex); // Keep the sort stable
+        });
+
+        try {
+            for (int i = 0; i < runFiles.size(); i++) {
+                RunReader reader = new RunReader(runFiles.get(i), i);
+                if (reader.advance()) {
+                    mergeQueue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening sorted runs", e);
+        }
+    }
 
-        if (!orderByElements.isEmpty()) {
-            sortedTuples.sort(new TupleComparator(orderByElements, tableOrder));
+    /**
+     * Closes any run readers still held by the merge queue, deleting their run files.
+     */
+    private void closeMerge() {
+        if (mergeQueue == null) return;
+        for (RunReader reader : mergeQueue) {
+            reader.close();
         }
+        mergeQueue.clear();
     }
 
     /**
-     * Returns the next tuple from the sorted list.
+     * Returns the next tuple in sorted order, either from memory or from the run merge.
      * @return The next tuple if available, otherwise null.
      */
     @Override
     public Tuple getNextTuple() {
-        return (currentIndex < sortedTuples.size()) ? sortedTuples.get(currentIndex++) : null;
+        if (mergeQueue == null) {
+            return (currentIndex < sortedTuples.size()) ? sortedTuples.get(currentIndex++) : null;
+        }
+
+        RunReader reader = mergeQueue.poll();
+        if (reader == null) return null;
+
+        Tuple tuple = reader.current;
+        try {
+            if (reader.advance()) {
+                mergeQueue.add(reader);
+            } else {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading sorted run", e);
+        }
+        return tuple;
     }
 
     /**
-     * Resets the current index to start from the beginning.
+     * Resets the operator to start from the beginning of the sorted output. The run files of an
+     * external sort are deleted as they are merged, so its input is read and sorted again.
      */
     @Override
     public void reset() {
         currentIndex = 0;
+        if (mergeQueue != null) {
+            closeMerge();
+            mergeQueue = null;
+            runFiles.clear();
+            sortedTuples.clear();
+            childOperator.reset();
+            loadAndSortTuples();
+        }
+    }
+
+    /**
+     * Writes a tuple in the binary run format: the arity followed by each value as a long.
+     * @param output The stream to write to.
+     * @param tuple The tuple to write.
+     * @throws IOException If writing fails.
+     */
+    private static void writeTuple(DataOutputStream output, Tuple tuple) throws IOException {
+        output.writeInt(tuple.size());
+        for (long value : tuple.getValues()) {
+            output.writeLong(value);
+        }
+    }
+
+    /**
+     * Sequential reader over a spilled run file.
+     */
+    private static class RunReader {
+        private final File runFile;
+        private final DataInputStream input;
+        private final int runIndex;
+        private Tuple current;
+
+        /**
+         * Opens a run file for reading.
+         * @param runFile The run file.
+         * @param runIndex The position of the run in spill order, used to keep the merge stable.
+         * @throws IOException If the file cannot be opened.
+         */
+        RunReader(File runFile, int runIndex) throws IOException {
+            this.runFile = runFile;
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+            this.runIndex = runIndex;
+        }
+
+        /**
+         * Reads the next tuple of the run into {@code current}.
+         * @return True if a tuple was read, false at the end of the run.
+         * @throws IOException If reading fails.
+         */
+        boolean advance() throws IOException {
+            int arity;
+            try {
+                arity = input.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+
+            long[] values = new long[arity];
+            for (int i = 0; i < arity; i++) {
+                values[i] = input.readLong();
+            }
+            current = new Tuple(values);
+            return true;
+        }
+
+        /**
+         * Closes and deletes the run file.
+         * @throws UncheckedIOException If the file cannot be closed or deleted.
+         */
+        void close() {
+            try {
+                input.close();
+                Files.deleteIfExists(runFile.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error closing sorted run", e);
+            }
+        }
     }
 
     /**
      * Custom comparator for sorting tuples based on ORDER BY columns.
      */
-    private static class TupleComparator implements Comparator<Tuple> {
-        private final List<OrderByElement> orderByElements;
-        private final List<String> tableOrder;
+    static class TupleComparator implements Comparator<Tuple> {
+        private final int[] sortIndices;
 
         /**
-         * Initializes the comparator with ORDER BY elements and table order.
-         * @param orderByElements The ORDER BY columns.
-         * @param tableOrder The order of the tables.
+         * Initializes the comparator with the positions of the ORDER BY columns.
+         * @param sortIndices The positions of the ORDER BY columns, by priority.
          */
-        public TupleComparator(List<OrderByElement> orderByElements, List<String> tableOrder) {
-            this.orderByElements = orderByElements;
-            this.tableOrder = tableOrder;
+        public TupleComparator(int[] sortIndices) {
+            this.sortIndices = sortIndices;
         }
 
         /**
@@ -91,19 +364,8 @@ public class SortOperator extends Operator {
          */
         @Override
         public int compare(Tuple t1, Tuple t2) {
-            for (OrderByElement orderBy : orderByElements) {
-                Expression expression = orderBy.getExpression();
-                List<Integer> indices = getIndices(expression, tableOrder);
-
-                if (indices.isEmpty() || indices.get(0) == -2) {
-                    throw new IllegalArgumentException("Invalid ORDER BY column: " + expression);
-                }
-
-                int index = indices.get(0);
-                int val1 = Integer.parseInt(t1.getValue(index));
-                int val2 = Integer.parseInt(t2.getValue(index));
-
-                int comparison = Integer.compare(val1, val2);
+            for (int index : sortIndices) {
+                int comparison = Long.compare(t1.getValue(index), t2.getValue(index));
                 if (comparison != 0) return comparison;
             }
             return 0;
@@ -1,114 +1,357 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.Tuple;
-import ed.inf.adbs.blazedb.utility.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.GroupHashTable;
 import ed.inf.adbs.blazedb.utility.Parser;
+import ed.inf.adbs.blazedb.utility.Schema;
+import ed.inf.adbs.blazedb.utility.SpillingGroupTable;
 
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static ed.inf.adbs.blazedb.Helper.extractSumExpression;
-import static ed.inf.adbs.blazedb.Helper.getIndices;
 
 /**
  * SumOperator handles GROUP BY and SUM aggregation for multiple sum columns.
  * It processes tuples, groups them by specified columns, and computes the SUM for each group.
+ * Input is consumed batch by batch, with the column indices of the GROUP BY and SUM
+ * expressions resolved against the child schema once up front. Groups are kept in a
+ * {@link GroupHashTable}, so aggregating a row allocates nothing, and are output in the
+ * order they are first seen. Sums are exact 64-bit integers; an overflow is an error.
+ * When the number of groups exceeds the configured budget, the groups are spilled to disk
+ * by the {@link SpillingGroupTable}, which keeps the same output order and deletes its run
+ * files as it returns their groups; a spilled aggregation is therefore computed again on reset.
+ * <p>
+ * With a parallelism above 1, aggregation runs in two phases: the input is cut into chunks of
+ * consecutive rows, each pre-aggregated by a worker of the {@link ExecutionConfig} pool into
+ * its own partial table, and the partial groups are then combined into the final table in
+ * chunk order. A group first seen in an earlier chunk, or earlier within a chunk, is thus
+ * still combined first, and the output order is the same as that of a serial aggregation.
  */
 public class SumOperator extends Operator {
+    private static final int PARALLEL_CHUNK_ROWS = 1 << 16; // Input rows pre-aggregated by one worker task
+    private static final int CHUNKS_PER_WORKER = 2; // Chunks in flight per worker thread
+
     private final Operator childOperator;
     private final List<String> groupByColumns;
     private final List<String> sumColumns;
-    private final List<String> selectColumns;
-    private final Map<List<String>, List<Integer>> groupSumMap;
-    private Iterator<Map.Entry<List<String>, List<Integer>>> iterator;
-    private final List<String> tableOrder;
+    private final SpillingGroupTable groups; // Groups with their sums, in first-seen order
+    private final Schema childSchema;
+    private final int[] groupByIndices;
+    private final int[] selectGroupPositions; // Position of each selected column within the group key
+    private final long[] sumConstants; // Constant factor of each SUM product
+    private final int[][] sumIndices; // Column factors of each SUM product
 
     /**
      * Initializes SumOperator with the child operator and parser information.
+     * The group budget is taken from the {@link ExecutionConfig}.
      * @param childOperator The child operator to retrieve tuples from.
      * @param parser The parser to extract GROUP BY, SUM, and SELECT columns.
      */
     public SumOperator(Operator childOperator, Parser parser) {
+        this(childOperator, parser, ExecutionConfig.getInstance().getAggregationGroupBudget());
+    }
+
+    /**
+     * Initializes SumOperator with the child operator, parser information and group budget.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param parser The parser to extract GROUP BY, SUM, and SELECT columns.
+     * @param groupBudget The maximum number of groups kept in memory.
+     */
+    public SumOperator(Operator childOperator, Parser parser, int groupBudget) {
         this.childOperator = childOperator;
         this.groupByColumns = parser.getGroupByColumns();
-        this.tableOrder = parser.getTableOrder();
         this.sumColumns = parser.getSumColumns();
-        this.selectColumns = parser.getSelectColumns();
-        this.groupSumMap = new LinkedHashMap<>();
+        this.childSchema = childOperator.getSchema();
+        this.groupByIndices = resolveGroupByIndices();
+        this.selectGroupPositions = resolveSelectGroupPositions(parser.getSelectColumns());
+        this.schema = outputSchema(parser.getSelectColumns());
+        this.sumConstants = new long[sumColumns.size()];
+        this.sumIndices = new int[sumColumns.size()][];
+        resolveSumProducts();
+        this.groups = new SpillingGroupTable(groupByIndices.length, sumColumns.size(), groupBudget);
         aggregateTuples();
-        this.iterator = groupSumMap.entrySet().iterator();
     }
 
     /**
-     * Groups the tuples and computes SUM for the specified columns.
+     * Resolves the column indices of the GROUP BY columns.
+     * @return The GROUP BY column indices, empty if there is no GROUP BY.
      */
-    private void aggregateTuples() {
-        Tuple tuple;
-        while ((tuple = childOperator.getNextTuple()) != null) {
-            List<String> groupKey = extractGroupKey(tuple);
-            ExpressionEvaluator evaluator = new ExpressionEvaluator(tableOrder, tuple);
-
-            List<Integer> sumValues = new ArrayList<>();
-            for (String sumColumn : sumColumns) {
-                sumValues.add(evaluator.evaluateSumExpression(extractSumExpression(sumColumn)));
+    private int[] resolveGroupByIndices() {
+        if (groupByColumns == null) {
+            return new int[0];
+        }
+        int[] indices = new int[groupByColumns.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = childSchema.resolve(groupByColumns.get(i));
+        }
+        return indices;
+    }
+
+    /**
+     * Resolves the selected (non-SUM) columns to their positions within the group key.
+     * @param selectColumns The selected columns.
+     * @return The positions within the group key.
+     * @throws IllegalArgumentException If a selected column is not a GROUP BY column.
+     */
+    private int[] resolveSelectGroupPositions(List<String> selectColumns) {
+        int[] positions = new int[selectColumns.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = groupByColumns == null ? -1 : groupByColumns.indexOf(selectColumns.get(i));
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("Selected column is not grouped: " + selectColumns.get(i));
             }
+        }
+        return positions;
+    }
+
+    /**
+     * Builds the schema of the output tuples: the selected columns followed by the SUM columns.
+     * @param selectColumns The selected columns.
+     * @return The output schema.
+     */
+    private Schema outputSchema(List<String> selectColumns) {
+        List<String> columns = new ArrayList<>(selectColumns);
+        columns.addAll(sumColumns);
+        return new Schema(columns);
+    }
 
-            groupSumMap.merge(groupKey, sumValues, (existingSums, newSums) -> {
-                for (int i = 0; i < existingSums.size(); i++) {
-                    existingSums.set(i, existingSums.get(i) + newSums.get(i));
+    /**
+     * Splits each SUM expression (e.g. SUM(Enrolled.H * 2)) into its constant
+     * factor and the column indices of its column factors.
+     */
+    private void resolveSumProducts() {
+        for (int s = 0; s < sumColumns.size(); s++) {
+            long constant = 1;
+            List<Integer> indices = new ArrayList<>();
+            for (String factor : extractSumExpression(sumColumns.get(s)).split("\\*")) {
+                factor = factor.replaceAll("\\s", "");
+                if (factor.contains(".")) {
+                    indices.add(childSchema.resolve(factor));
+                } else {
+                    constant *= Long.parseLong(factor);
                 }
-                return existingSums;
-            });
+            }
+            sumConstants[s] = constant;
+            sumIndices[s] = indices.stream().mapToInt(Integer::intValue).toArray();
         }
     }
 
     /**
-     * Returns the next tuple from the grouped results.
-     * @return The next tuple with group values and computed SUM values.
+     * Groups the tuples and computes SUM for the specified columns, in parallel if the
+     * configured parallelism allows it.
+     * @throws ArithmeticException If a sum overflows 64 bits.
      */
-    @Override
-    public Tuple getNextTuple() {
-        if (!iterator.hasNext()) return null;
+    private void aggregateTuples() {
+        ExecutionConfig config = ExecutionConfig.getInstance();
+        if (config.getParallelism() > 1) {
+            aggregateInParallel(config.getWorkerPool());
+        } else {
+            long position = 0;
+            TupleBatch batch;
+            while ((batch = childOperator.getNextBatch()) != null) {
+                position = aggregateBatch(batch, position);
+            }
+        }
+        groups.finish();
+    }
 
-        Map.Entry<List<String>, List<Integer>> entry = iterator.next();
-        List<String> resultValues = new ArrayList<>();
+    /**
+     * Adds the selected rows of a batch to the final groups.
+     * @param batch The batch.
+     * @param position The input position of the first selected row.
+     * @return The input position following the batch.
+     */
+    private long aggregateBatch(TupleBatch batch, long position) {
+        long[][] columns = batch.getColumns();
+        int[] selection = batch.getSelection();
+        long[] products = new long[sumColumns.size()];
+        for (int i = 0; i < batch.getSize(); i++, position++) {
+            computeProducts(columns, selection[i], products);
+            groups.add(columns, selection[i], groupByIndices, position, products);
+        }
+        return position;
+    }
 
-        if (!selectColumns.isEmpty()) {
-            for (String column : selectColumns) {
-                int index = groupByColumns.indexOf(column);
-                resultValues.add(entry.getKey().get(index));
+    /**
+     * Computes the product of every SUM expression for a row.
+     * @param columns The columns of a batch.
+     * @param row The row within the columns.
+     * @param products Receives the product of each SUM expression.
+     * @throws ArithmeticException If a product overflows 64 bits.
+     */
+    private void computeProducts(long[][] columns, int row, long[] products) {
+        for (int s = 0; s < sumIndices.length; s++) {
+            long product = sumConstants[s];
+            for (int index : sumIndices[s]) {
+                product = Math.multiplyExact(product, columns[index][row]);
             }
+            products[s] = product;
         }
+    }
+
+    /**
+     * Aggregates the input in two phases. The child batches are gathered into chunks of about
+     * {@link #PARALLEL_CHUNK_ROWS} rows, each pre-aggregated by a worker task; a bounded window
+     * of chunks is in flight, and their partial groups are combined in chunk order. An input
+     * smaller than one chunk is aggregated directly.
+     * @param pool The worker pool.
+     */
+    private void aggregateInParallel(ForkJoinPool pool) {
+        int window = pool.getParallelism() * CHUNKS_PER_WORKER;
+        Deque<Future<long[][]>> inFlight = new ArrayDeque<>();
+        Deque<Long> chunkPositions = new ArrayDeque<>(); // Input position of the first row of each chunk in flight
+        List<TupleBatch> chunk = new ArrayList<>();
+        int chunkRows = 0;
+        long position = 0;
 
-        if (!sumColumns.isEmpty()) {
-            entry.getValue().forEach(sum -> resultValues.add(String.valueOf(sum)));
+        TupleBatch batch;
+        while ((batch = childOperator.getNextBatch()) != null) {
+            if (batch.getSize() == 0) continue;
+            chunk.add(batch);
+            chunkRows += batch.getSize();
+            if (chunkRows >= PARALLEL_CHUNK_ROWS) {
+                if (inFlight.size() >= window) {
+                    combine(awaitPartial(inFlight.poll()), chunkPositions.poll());
+                }
+                List<TupleBatch> rows = chunk;
+                inFlight.add(pool.submit(() -> preAggregate(rows)));
+                chunkPositions.add(position);
+                position += chunkRows;
+                chunk = new ArrayList<>();
+                chunkRows = 0;
+            }
         }
 
-        return new Tuple(resultValues.toArray(new String[0]));
+        if (inFlight.isEmpty()) {
+            for (TupleBatch rows : chunk) {
+                position = aggregateBatch(rows, position);
+            }
+            return;
+        }
+        if (chunkRows > 0) {
+            List<TupleBatch> rows = chunk;
+            inFlight.add(pool.submit(() -> preAggregate(rows)));
+            chunkPositions.add(position);
+        }
+        while (!inFlight.isEmpty()) {
+            combine(awaitPartial(inFlight.poll()), chunkPositions.poll());
+        }
     }
 
     /**
-     * Resets the iterator to start from the beginning of the grouped results.
+     * Pre-aggregates a chunk of rows into a partial table, on a worker thread.
+     * @param chunk The batches of the chunk.
+     * @return The partial groups in first-seen order, as columns: the group key followed by the sums.
+     * @throws ArithmeticException If a sum overflows 64 bits.
      */
-    @Override
-    public void reset() {
-        iterator = groupSumMap.entrySet().iterator();
+    private long[][] preAggregate(List<TupleBatch> chunk) {
+        GroupHashTable partial = new GroupHashTable(groupByIndices.length, sumColumns.size());
+        long[] products = new long[sumColumns.size()];
+        for (TupleBatch batch : chunk) {
+            long[][] columns = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int i = 0; i < batch.getSize(); i++) {
+                computeProducts(columns, selection[i], products);
+                int group = partial.findOrInsert(columns, selection[i], groupByIndices);
+                for (int s = 0; s < products.length; s++) {
+                    partial.add(group, s, products[s]);
+                }
+            }
+        }
+
+        long[][] partialColumns = new long[groupByIndices.length + sumColumns.size()][partial.size()];
+        for (int group = 0; group < partial.size(); group++) {
+            for (int k = 0; k < groupByIndices.length; k++) {
+                partialColumns[k][group] = partial.getKey(group, k);
+            }
+            for (int s = 0; s < sumColumns.size(); s++) {
+                partialColumns[groupByIndices.length + s][group] = partial.getValue(group, s);
+            }
+        }
+        return partialColumns;
     }
 
     /**
-     * Extracts the group key from a tuple based on the GROUP BY columns.
-     * @param tuple The tuple from which the group key is extracted.
-     * @return A list of values corresponding to the GROUP BY columns.
+     * Combines the partial groups of a chunk into the final groups. A new group is given the
+     * position of the chunk plus its rank within the chunk, which keeps positions increasing
+     * and ordered as the groups were first seen.
+     * @param partialColumns The partial groups, as returned by {@link #preAggregate}.
+     * @param chunkPosition The input position of the first row of the chunk.
+     * @throws ArithmeticException If a sum overflows 64 bits.
      */
-    private List<String> extractGroupKey(Tuple tuple) {
-        List<String> key = new ArrayList<>();
-        if (groupByColumns == null) {
-            key.add("");
-            return key;
+    private void combine(long[][] partialColumns, long chunkPosition) {
+        int[] keyColumns = new int[groupByIndices.length];
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumns[k] = k;
         }
-        for (String column : groupByColumns) {
-            int index = getIndices(column, tableOrder).get(0);
-            key.add(tuple.getValue(index));
+        int groupCount = partialColumns[0].length;
+        long[] sums = new long[sumColumns.size()];
+        for (int group = 0; group < groupCount; group++) {
+            for (int s = 0; s < sums.length; s++) {
+                sums[s] = partialColumns[keyColumns.length + s][group];
+            }
+            groups.add(partialColumns, group, keyColumns, chunkPosition + group, sums);
+        }
+    }
+
+    /**
+     * Waits for the partial groups of a chunk.
+     * @param chunk The pre-aggregation task.
+     * @return The partial groups.
+     * @throws RuntimeException If the worker failed, with the failure as cause.
+     */
+    private static long[][] awaitPartial(Future<long[][]> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while aggregating in parallel", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error aggregating in parallel", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the next tuple from the grouped results.
+     * @return The next tuple with group values and computed SUM values.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!groups.next()) return null;
+
+        long[] values = new long[selectGroupPositions.length + sumColumns.size()];
+        for (int i = 0; i < selectGroupPositions.length; i++) {
+            values[i] = groups.getKey(selectGroupPositions[i]);
+        }
+        for (int s = 0; s < sumColumns.size(); s++) {
+            values[selectGroupPositions.length + s] = groups.getValue(s);
+        }
+        return new Tuple(values);
+    }
+
+    /**
+     * Resets the iterator to start from the beginning of the grouped results. The groups of a
+     * spilled aggregation are deleted as they are returned, so its input is read and aggregated again.
+     */
+    @Override
+    public void reset() {
+        if (groups.isSpilled()) {
+            groups.clear();
+            childOperator.reset();
+            aggregateTuples();
+        } else {
+            groups.rewind();
         }
-        return key;
     }
 }
@@ -0,0 +1,130 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import ed.inf.adbs.blazedb.utility.Parser;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * TopNOperator implements ORDER BY followed by LIMIT and OFFSET without sorting the whole input.
+ * It keeps the first {@code offset + limit} rows in sort order in a bounded max-heap: a row is
+ * only materialized if it sorts before the largest row of a full heap, which it then replaces.
+ * Rows with equal ORDER BY values are kept in input order, so the result is the same as that
+ * of a {@link SortOperator} followed by a {@link LimitOperator}.
+ */
+public class TopNOperator extends Operator {
+    private final Operator childOperator;
+    private final int[] sortIndices; // Positions of the ORDER BY columns in the child tuples
+    private final long offset; // Number of leading rows skipped
+    private final List<Tuple> topTuples; // The rows returned, in sort order
+    private int currentIndex;
+
+    /**
+     * Initializes the TopNOperator with child operator, parser and row counts.
+     * @param childOperator The child operator to retrieve tuples from.
+     * @param parser The parser to extract ORDER BY columns.
+     * @param limit The maximum number of rows returned.
+     * @param offset The number of leading rows skipped.
+     * @throws IllegalArgumentException If {@code offset + limit} exceeds the capacity of a heap.
+     */
+    public TopNOperator(Operator childOperator, Parser parser, long limit, long offset) {
+        if (limit > Integer.MAX_VALUE - 8 - offset) { // limit + offset may overflow
+            throw new IllegalArgumentException("Too many rows for a Top-N heap: LIMIT " + limit + " OFFSET " + offset);
+        }
+        this.childOperator = childOperator;
+        this.schema = childOperator.getSchema();
+        this.sortIndices = SortOperator.resolveSortIndices(schema, parser.getOrderByElements());
+        this.offset = offset;
+        this.topTuples = new ArrayList<>();
+        selectTopTuples((int) (limit + offset));
+    }
+
+    /**
+     * Reads the whole input, keeping the first rows in sort order.
+     * @param count The number of rows kept.
+     */
+    private void selectTopTuples(int count) {
+        if (count == 0) return;
+
+        // Max-heap on (sort key, input position): its head is the row to evict first
+        Comparator<Entry> order = Comparator.comparing((Entry entry) -> entry.tuple,
+                new SortOperator.TupleComparator(sortIndices)).thenComparingLong(entry -> entry.position);
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.min(count, 1 << 16), order.reversed());
+        long position = 0;
+
+        TupleBatch batch;
+        while ((batch = childOperator.getNextBatch()) != null) {
+            long[][] columns = batch.getColumns();
+            int[] selection = batch.getSelection();
+            for (int i = 0; i < batch.getSize(); i++, position++) {
+                if (heap.size() < count) {
+                    heap.add(new Entry(batch.getTuple(i), position));
+                } else if (sortsBefore(columns, selection[i], heap.peek().tuple)) {
+                    heap.poll();
+                    heap.add(new Entry(batch.getTuple(i), position));
+                }
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(order);
+        for (Entry entry : entries) {
+            topTuples.add(entry.tuple);
+        }
+    }
+
+    /**
+     * Compares a row of a batch with a tuple on the ORDER BY columns. A row equal to the tuple
+     * does not sort before it, since it comes later in the input.
+     * @return True if the row sorts strictly before the tuple.
+     */
+    private boolean sortsBefore(long[][] columns, int row, Tuple tuple) {
+        for (int index : sortIndices) {
+            int comparison = Long.compare(columns[index][row], tuple.getValue(index));
+            if (comparison != 0) return comparison < 0;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next tuple in sorted order, after the skipped rows.
+     * @return The next tuple if available, otherwise null.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (currentIndex < offset) {
+            currentIndex = (int) Math.min(offset, topTuples.size());
+        }
+        return currentIndex < topTuples.size() ? topTuples.get(currentIndex++) : null;
+    }
+
+    /**
+     * Resets the operator to start from the beginning of the sorted output.
+     */
+    @Override
+    public void reset() {
+        currentIndex = 0;
+    }
+
+    /**
+     * A row kept in the heap, with its input position to keep equal rows in input order.
+     */
+    private static class Entry {
+        private final Tuple tuple;
+        private final long position;
+
+        /**
+         * Constructs a heap entry.
+         * @param tuple The row.
+         * @param position The input position of the row.
+         */
+        Entry(Tuple tuple, long position) {
+            this.tuple = tuple;
+            this.position = position;
+        }
+    }
+}
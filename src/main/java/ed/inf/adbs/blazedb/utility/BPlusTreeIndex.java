@@ -0,0 +1,343 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.Tuple;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * BPlusTreeIndex is a persistent B+-tree over one integer column of a table, mapping each
+ * value to the byte offsets of the rows holding it in the CSV table file.
+ * <p>
+ * The index file is a sequence of fixed-size pages. Page 0 is the header, which also records the
+ * size and modification time of the CSV file so that an index of a file modified since is
+ * recognized as stale. The tree is bulk
+ * loaded, so the leaves are full and stored contiguously from page 1 in key order, followed
+ * by the inner levels up to the root. A leaf holds (key, row offset) entries sorted by key and
+ * then by offset; an inner page holds the smallest key of each of its children and their page
+ * numbers. Since the leaves are full, the position of an entry in the leaf sequence is its rank,
+ * which lets {@link #countRange} count matching rows without reading the leaves in between.
+ */
+public class BPlusTreeIndex {
+    public static final int MAGIC = 0x424C5A49; // "BLZI"
+    public static final int PAGE_SIZE = 4096;
+    private static final int PAGE_HEADER_SIZE = 2 * Integer.BYTES; // Entry count + unused
+    static final int LEAF_CAPACITY = (PAGE_SIZE - PAGE_HEADER_SIZE) / (2 * Long.BYTES);
+    static final int INNER_CAPACITY = (PAGE_SIZE - PAGE_HEADER_SIZE) / (Long.BYTES + Integer.BYTES);
+
+    private final File file;
+    @Getter
+    private final int column; // Index of the indexed column in the table schema
+    @Getter
+    private final long entryCount;
+    private final int rootPage; // -1 for an empty index
+    private final int height; // Number of levels, 1 when the root is a leaf
+    private final long tableSize; // Size of the CSV file when the index was built
+    private final long tableLastModified; // Modification time of the CSV file when the index was built
+
+    /**
+     * Opens an index file and reads its header.
+     *
+     * @param file The index file.
+     * @throws IOException If the file cannot be read or is not an index file.
+     */
+    public BPlusTreeIndex(File file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readPage(channel, 0);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an index file: " + file);
+            }
+            this.column = header.getInt();
+            this.entryCount = header.getLong();
+            this.rootPage = header.getInt();
+            this.height = header.getInt();
+            this.tableSize = header.getLong();
+            this.tableLastModified = header.getLong();
+        }
+    }
+
+    /**
+     * Checks whether the index describes the current content of a table file.
+     *
+     * @param csvFile The CSV table file.
+     * @return True if the file has the size and modification time recorded when the index was built.
+     */
+    public boolean isUpToDate(File csvFile) {
+        return csvFile.length() == tableSize && csvFile.lastModified() == tableLastModified;
+    }
+
+    /**
+     * Returns the byte offsets of the rows whose key lies in [lower, upper].
+     * The offsets are returned in key order.
+     *
+     * @param lower The inclusive lower bound.
+     * @param upper The inclusive upper bound.
+     * @return The row offsets.
+     * @throws IOException If the index file cannot be read.
+     */
+    public long[] lookup(long lower, long upper) throws IOException {
+        if (rootPage < 0 || lower > upper) {
+            return new long[0];
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long first = rank(channel, lower);
+            long end = upper == Long.MAX_VALUE ? entryCount : rank(channel, upper + 1);
+            long[] offsets = new long[(int) Math.max(0, end - first)];
+
+            int page = (int) (first / LEAF_CAPACITY) + 1;
+            int slot = (int) (first % LEAF_CAPACITY);
+            for (int i = 0; i < offsets.length; page++, slot = 0) {
+                ByteBuffer leaf = readPage(channel, page);
+                int count = leaf.getInt(0);
+                for (; slot < count && i < offsets.length; slot++) {
+                    offsets[i++] = leaf.getLong(entryPosition(slot) + Long.BYTES);
+                }
+            }
+            return offsets;
+        }
+    }
+
+    /**
+     * Counts the rows whose key lies in [lower, upper], reading one path of the tree per bound.
+     *
+     * @param lower The inclusive lower bound.
+     * @param upper The inclusive upper bound.
+     * @return The number of matching rows.
+     * @throws IOException If the index file cannot be read.
+     */
+    public long countRange(long lower, long upper) throws IOException {
+        if (rootPage < 0 || lower > upper) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = upper == Long.MAX_VALUE ? entryCount : rank(channel, upper + 1);
+            return end - rank(channel, lower);
+        }
+    }
+
+    /**
+     * Finds the rank of the first entry whose key is greater than or equal to a given key.
+     *
+     * @param channel The open index file.
+     * @param key The key to search for.
+     * @return The rank of the entry, or the entry count if all keys are smaller.
+     * @throws IOException If the index file cannot be read.
+     */
+    private long rank(FileChannel channel, long key) throws IOException {
+        int page = rootPage;
+        for (int level = height; level > 1; level--) {
+            ByteBuffer inner = readPage(channel, page);
+            int count = inner.getInt(0);
+            // Descend into the last child starting strictly below the key, as equal keys may start in it
+            int child = 0;
+            int low = 1, high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (inner.getLong(PAGE_HEADER_SIZE + mid * Long.BYTES) < key) {
+                    child = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            page = inner.getInt(PAGE_HEADER_SIZE + INNER_CAPACITY * Long.BYTES + child * Integer.BYTES);
+        }
+
+        ByteBuffer leaf = readPage(channel, page);
+        int low = 0, high = leaf.getInt(0);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (leaf.getLong(entryPosition(mid)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.min((long) (page - 1) * LEAF_CAPACITY + low, entryCount);
+    }
+
+    /**
+     * Returns the position of a leaf entry within its page.
+     */
+    private static int entryPosition(int slot) {
+        return PAGE_HEADER_SIZE + slot * 2 * Long.BYTES;
+    }
+
+    /**
+     * Reads one page of the index file.
+     */
+    private static ByteBuffer readPage(FileChannel channel, int page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated index file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Scans a CSV table file and writes the index of one of its columns.
+     *
+     * @param csvFile The CSV table file.
+     * @param indexFile The index file to write.
+     * @param columnCount The number of columns of the table.
+     * @param column The index of the column to index.
+     * @throws IOException If a file cannot be read or written.
+     * @throws NumberFormatException If a row does not have exactly {@code columnCount} integer fields.
+     */
+    public static void write(File csvFile, File indexFile, int columnCount, int column) throws IOException {
+        long tableSize = csvFile.length();
+        long tableLastModified = csvFile.lastModified();
+        long[] keys = new long[1024];
+        long[] offsets = new long[1024];
+        int entries = 0;
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(csvFile))) {
+            long[] row = new long[columnCount];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = 0; // Byte offset following the last byte read
+            long lineStart = 0;
+
+            int b = 0;
+            while (b != -1) {
+                line.reset();
+                lineStart = position;
+                while ((b = input.read()) != -1) {
+                    position++;
+                    if (b == '\n') break;
+                    line.write(b);
+                }
+
+                String text = line.toString(StandardCharsets.US_ASCII);
+                if (text.isBlank()) continue;
+
+                if (Tuple.parseCSV(text, row) != columnCount) {
+                    throw new NumberFormatException("Invalid row in " + csvFile);
+                }
+                if (entries == keys.length) {
+                    keys = Arrays.copyOf(keys, entries * 2);
+                    offsets = Arrays.copyOf(offsets, entries * 2);
+                }
+                keys[entries] = row[column];
+                offsets[entries++] = lineStart;
+            }
+        }
+
+        int[] order = sortByKey(keys, entries);
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTree(channel, column, keys, offsets, order, tableSize, tableLastModified);
+        }
+    }
+
+    /**
+     * Sorts the entries by key. The sort is stable, so entries with equal keys stay in file order.
+     *
+     * @return The entry indices in key order.
+     */
+    private static int[] sortByKey(long[] keys, int entries) {
+        int[] order = new int[entries];
+        int[] merged = new int[entries];
+        for (int i = 0; i < entries; i++) order[i] = i;
+
+        // Bottom-up merge sort
+        for (int width = 1; width < entries; width *= 2) {
+            for (int start = 0; start < entries; start += 2 * width) {
+                int mid = Math.min(start + width, entries);
+                int end = Math.min(start + 2 * width, entries);
+                int left = start, right = mid, out = start;
+                while (left < mid && right < end) {
+                    merged[out++] = keys[order[right]] < keys[order[left]] ? order[right++] : order[left++];
+                }
+                while (left < mid) merged[out++] = order[left++];
+                while (right < end) merged[out++] = order[right++];
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Bulk loads the tree: writes the full leaves, then each inner level up to the root, then the header.
+     */
+    private static void writeTree(FileChannel channel, int column, long[] keys, long[] offsets, int[] order,
+                                  long tableSize, long tableLastModified) throws IOException {
+        int entries = order.length;
+        int leafCount = (entries + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+
+        // Smallest key and page of each node of the level being written
+        long[] levelKeys = new long[leafCount];
+        int[] levelPages = new int[leafCount];
+        int nextPage = 1;
+
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            int first = leaf * LEAF_CAPACITY;
+            int count = Math.min(LEAF_CAPACITY, entries - first);
+            clearPage(page).putInt(count).putInt(0);
+            for (int slot = 0; slot < count; slot++) {
+                page.putLong(keys[order[first + slot]]).putLong(offsets[order[first + slot]]);
+            }
+            writePage(channel, nextPage, page);
+            levelKeys[leaf] = keys[order[first]];
+            levelPages[leaf] = nextPage++;
+        }
+
+        int height = leafCount > 0 ? 1 : 0;
+        int levelSize = leafCount;
+        while (levelSize > 1) {
+            int parentCount = (levelSize + INNER_CAPACITY - 1) / INNER_CAPACITY;
+            for (int parent = 0; parent < parentCount; parent++) {
+                int first = parent * INNER_CAPACITY;
+                int count = Math.min(INNER_CAPACITY, levelSize - first);
+                clearPage(page).putInt(count).putInt(0);
+                for (int child = 0; child < count; child++) {
+                    page.putLong(PAGE_HEADER_SIZE + child * Long.BYTES, levelKeys[first + child]);
+                    page.putInt(PAGE_HEADER_SIZE + INNER_CAPACITY * Long.BYTES + child * Integer.BYTES,
+                            levelPages[first + child]);
+                }
+                writePage(channel, nextPage, page);
+                levelKeys[parent] = levelKeys[first];
+                levelPages[parent] = nextPage++;
+            }
+            levelSize = parentCount;
+            height++;
+        }
+
+        clearPage(page).putInt(MAGIC).putInt(column).putLong(entries);
+        page.putInt(leafCount > 0 ? levelPages[0] : -1).putInt(height);
+        page.putLong(tableSize).putLong(tableLastModified);
+        writePage(channel, 0, page);
+    }
+
+    /**
+     * Zeroes a page buffer and rewinds it.
+     */
+    private static ByteBuffer clearPage(ByteBuffer page) {
+        Arrays.fill(page.array(), (byte) 0);
+        return page.clear();
+    }
+
+    /**
+     * Writes a whole page buffer at its place in the index file.
+     */
+    private static void writePage(FileChannel channel, int pageNumber, ByteBuffer page) throws IOException {
+        page.clear(); // The whole page is written, whatever was put in it
+        long position = (long) pageNumber * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            channel.write(page, position + page.position());
+        }
+    }
+}
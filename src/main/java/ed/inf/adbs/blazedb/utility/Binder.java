@@ -0,0 +1,137 @@
+package ed.inf.adbs.blazedb.utility;
+
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.AllTableColumns;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.*;
+
+/**
+ * Binder is the semantic analysis phase between the {@link Parser} and the {@link Planner}.
+ * It resolves every table and column referenced by the query against the catalog, reporting
+ * unknown names before any operator is built, and records the schemas the Planner needs.
+ */
+public class Binder {
+    private final Parser parser;
+    private final Map<String, Schema> tableSchemas;
+    private final Schema schema;
+    private final Map<String, Set<Integer>> referencedColumns;
+    private final Map<String, Set<Integer>> outputColumns; // Columns used outside the WHERE clause
+    private boolean bindingWhereClause;
+
+    /**
+     * Binds a parsed query.
+     *
+     * @param parser The parsed query.
+     * @return The bound query.
+     * @throws IllegalArgumentException If the query refers to an unknown table or column.
+     */
+    public static BoundQuery bind(Parser parser) {
+        return new Binder(parser).bindQuery();
+    }
+
+    /**
+     * Resolves the schemas of the tables of a query.
+     *
+     * @param parser The parsed query.
+     */
+    private Binder(Parser parser) {
+        this.parser = parser;
+        this.tableSchemas = new LinkedHashMap<>();
+        this.referencedColumns = new HashMap<>();
+        this.outputColumns = new HashMap<>();
+        for (String tableName : parser.getTableOrder()) {
+            tableSchemas.put(tableName, Schema.forTable(tableName));
+            referencedColumns.put(tableName, new TreeSet<>());
+            outputColumns.put(tableName, new TreeSet<>());
+        }
+        this.schema = Schema.forTables(parser.getTableOrder());
+    }
+
+    /**
+     * Resolves every column reference of the query: SELECT (including SUM arguments and
+     * {@code *}), WHERE, GROUP BY and ORDER BY.
+     *
+     * @return The bound query.
+     */
+    private BoundQuery bindQuery() {
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                bindColumn(column.getFullyQualifiedName());
+            }
+
+            @Override
+            public void visit(AllColumns allColumns) {
+                for (String column : schema.getColumns()) {
+                    bindColumn(column);
+                }
+            }
+
+            @Override
+            public void visit(AllTableColumns allTableColumns) {
+                Schema tableSchema = tableSchemas.get(allTableColumns.getTable().getName());
+                if (tableSchema == null) {
+                    throw new IllegalArgumentException("Table not in FROM clause: " + allTableColumns.getTable());
+                }
+                for (String column : tableSchema.getColumns()) {
+                    bindColumn(column);
+                }
+            }
+        };
+
+        for (SelectItem<?> selectItem : parser.getSelectItems()) {
+            selectItem.getExpression().accept(visitor);
+        }
+        if (parser.getWhereClause() != null) {
+            bindingWhereClause = true;
+            parser.getWhereClause().accept(visitor);
+            bindingWhereClause = false;
+        }
+        if (parser.getOrderByElements() != null) {
+            for (OrderByElement orderByElement : parser.getOrderByElements()) {
+                orderByElement.getExpression().accept(visitor);
+            }
+        }
+        if (parser.getGroupByColumns() != null) {
+            for (String groupByColumn : parser.getGroupByColumns()) {
+                bindColumn(groupByColumn);
+            }
+        }
+
+        return new BoundQuery(parser, tableSchemas, schema, toLists(referencedColumns), toLists(outputColumns));
+    }
+
+    /**
+     * Copies sets of column positions into immutable sorted lists.
+     */
+    private static Map<String, List<Integer>> toLists(Map<String, Set<Integer>> columnSets) {
+        Map<String, List<Integer>> columns = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> entry : columnSets.entrySet()) {
+            columns.put(entry.getKey(), List.copyOf(entry.getValue()));
+        }
+        return columns;
+    }
+
+    /**
+     * Checks that a column belongs to a table of the query and records its use.
+     *
+     * @param qualifiedName The qualified column name, e.g. Student.A.
+     * @throws IllegalArgumentException If the column is unknown.
+     */
+    private void bindColumn(String qualifiedName) {
+        String tableName = qualifiedName.contains(".") ? qualifiedName.substring(0, qualifiedName.indexOf('.')) : "";
+        Schema tableSchema = tableSchemas.get(tableName);
+        if (tableSchema == null) {
+            throw new IllegalArgumentException("Table not in FROM clause: " + qualifiedName);
+        }
+        int column = tableSchema.resolve(qualifiedName);
+        referencedColumns.get(tableName).add(column);
+        if (!bindingWhereClause) {
+            outputColumns.get(tableName).add(column);
+        }
+    }
+}
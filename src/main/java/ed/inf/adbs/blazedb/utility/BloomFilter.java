@@ -0,0 +1,62 @@
+package ed.inf.adbs.blazedb.utility;
+
+/**
+ * BloomFilter is a compact, approximate set of 64-bit keys. Membership tests may return false
+ * positives, but never false negatives: a key that was added is always reported as possibly
+ * present. The filter is blocked: all the bits of a key fall in a single 64-bit word, so a test
+ * reads one word of memory, at the cost of slightly more false positives (about 2% at its
+ * expected number of keys) than a classic Bloom filter of the same size.
+ */
+public class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_COUNT = 5; // Bits set per key, each chosen by 6 bits of the hash
+    private static final int MAX_WORDS = 1 << 24;
+
+    private final long[] words;
+    private final int wordMask; // Number of words minus one; the number of words is a power of two
+
+    /**
+     * Constructs an empty filter.
+     *
+     * @param expectedKeys The number of keys expected to be added.
+     */
+    public BloomFilter(int expectedKeys) {
+        long wanted = Math.max(1L, (long) expectedKeys * BITS_PER_KEY / 64);
+        int wordCount = wanted >= MAX_WORDS ? MAX_WORDS : Integer.highestOneBit((int) wanted * 2 - 1);
+        this.words = new long[wordCount];
+        this.wordMask = wordCount - 1;
+    }
+
+    /**
+     * Adds a key to the filter.
+     *
+     * @param key The key.
+     */
+    public void add(long key) {
+        long hash = Hashing.mix64(key);
+        words[(int) (hash >>> 32) & wordMask] |= bitMask(hash);
+    }
+
+    /**
+     * Tests whether a key may have been added to the filter.
+     *
+     * @param key The key.
+     * @return False if the key was certainly not added, true if it possibly was.
+     */
+    public boolean mightContain(long key) {
+        long hash = Hashing.mix64(key);
+        long mask = bitMask(hash);
+        return (words[(int) (hash >>> 32) & wordMask] & mask) == mask;
+    }
+
+    /**
+     * Selects the bits of a key within its word, from the low 30 bits of its hash.
+     */
+    private static long bitMask(long hash) {
+        long mask = 0;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            mask |= 1L << (hash >>> (6 * i));
+        }
+        return mask;
+    }
+}
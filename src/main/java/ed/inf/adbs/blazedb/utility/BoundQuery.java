@@ -0,0 +1,43 @@
+package ed.inf.adbs.blazedb.utility;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BoundQuery is the result of binding a parsed query against the database catalog
+ * (see {@link Binder}). Every column reference of the query is known to exist, and the
+ * schemas of the scanned tables and of their join are resolved once for the Planner.
+ */
+@Getter
+public class BoundQuery {
+    private final Parser parser; // The parsed query
+    private final List<String> tableOrder; // Tables in FROM order
+    private final Map<String, Schema> tableSchemas; // TableName -> Schema of its scan
+    private final Schema schema; // Schema of the join of every table, in FROM order
+    private final Map<String, List<Integer>> referencedColumns; // TableName -> Sorted positions of the columns used
+    private final Map<String, List<Integer>> outputColumns; // TableName -> Sorted positions of the columns used outside WHERE
+
+    /**
+     * Constructs a bound query.
+     *
+     * @param parser The parsed query.
+     * @param tableSchemas The schema of each table of the query.
+     * @param schema The schema of the join of every table.
+     * @param referencedColumns The positions of the columns of each table the query uses.
+     * @param outputColumns The positions of the columns of each table used by SELECT, GROUP BY or ORDER BY.
+     */
+    BoundQuery(Parser parser,
+               Map<String, Schema> tableSchemas,
+               Schema schema,
+               Map<String, List<Integer>> referencedColumns,
+               Map<String, List<Integer>> outputColumns) {
+        this.parser = parser;
+        this.tableOrder = parser.getTableOrder();
+        this.tableSchemas = tableSchemas;
+        this.schema = schema;
+        this.referencedColumns = referencedColumns;
+        this.outputColumns = outputColumns;
+    }
+}
@@ -0,0 +1,115 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.List;
+
+/**
+ * CardinalityEstimator estimates the number of rows produced by scans, selections and joins
+ * from the row counts and distinct-value estimates of the {@link DatabaseCatalog}.
+ * Comparisons with constants are estimated from the histograms of the table statistics
+ * collected by {@code Analyzer}. Conjuncts are assumed to be independent; without statistics,
+ * the textbook default selectivities are used, and equi-joins are assumed to join a key with
+ * a foreign key.
+ */
+public class CardinalityEstimator {
+    static final double EQUALITY_SELECTIVITY = 0.1; // Column = constant, without distinct-value estimate
+    static final double RANGE_SELECTIVITY = 1.0 / 3; // Column compared with a constant
+    static final double INEQUALITY_SELECTIVITY = 0.9; // Column != constant, without distinct-value estimate
+
+    private final DatabaseCatalog catalog;
+
+    /**
+     * Constructs an estimator over the tables of a catalog.
+     *
+     * @param catalog The database catalog.
+     */
+    public CardinalityEstimator(DatabaseCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Estimates the number of rows of a table satisfying its single-table conditions.
+     *
+     * @param tableName The name of the table.
+     * @param conditions The conjuncts referring only to this table.
+     * @return The estimated number of rows, at least 1.
+     */
+    public double tableRows(String tableName, List<Expression> conditions) {
+        return Math.max(1, catalog.estimateRowCount(tableName) * selectivity(conditions));
+    }
+
+    /**
+     * Estimates the fraction of rows satisfying every conjunct of a list.
+     *
+     * @param conjuncts The conjuncts.
+     * @return The combined selectivity.
+     */
+    public double selectivity(List<Expression> conjuncts) {
+        double selectivity = 1;
+        for (Expression conjunct : conjuncts) {
+            selectivity *= selectivity(conjunct);
+        }
+        return selectivity;
+    }
+
+    /**
+     * Estimates the fraction of rows (or pairs of rows, for join conditions) satisfying a conjunct.
+     *
+     * @param conjunct The conjunct.
+     * @return The selectivity, between 0 and 1.
+     */
+    public double selectivity(Expression conjunct) {
+        if (!(conjunct instanceof ComparisonOperator)) {
+            return 1;
+        }
+        BinaryExpression comparison = (BinaryExpression) conjunct;
+        Expression left = comparison.getLeftExpression();
+        Expression right = comparison.getRightExpression();
+
+        if (left instanceof Column && right instanceof Column) {
+            if (conjunct instanceof EqualsTo) {
+                return 1 / Math.max(distinctValues((Column) left), distinctValues((Column) right));
+            }
+            return conjunct instanceof NotEqualsTo ? INEQUALITY_SELECTIVITY : RANGE_SELECTIVITY;
+        }
+
+        Column column = left instanceof Column ? (Column) left : right instanceof Column ? (Column) right : null;
+        if (column == null || !(left instanceof LongValue || right instanceof LongValue)) {
+            return 1; // Constant comparisons are folded away
+        }
+        String tableName = column.getTable().getName();
+        long distinct = catalog.estimateDistinctValues(tableName, column.getColumnName());
+        if (conjunct instanceof NotEqualsTo) {
+            return distinct > 0 ? 1 - 1.0 / distinct : INEQUALITY_SELECTIVITY;
+        }
+
+        TableStatistics statistics = catalog.getTableStatistics(tableName);
+        if (statistics != null) {
+            List<String> schema = catalog.getTableSchema(tableName);
+            int index = schema.indexOf(column.getColumnName());
+            ColumnBounds bounds = ColumnBounds.fromWhereClause(conjunct, tableName, schema);
+            double fraction = statistics.rangeFraction(index, bounds.getLower(index), bounds.getUpper(index));
+            if (conjunct instanceof EqualsTo && fraction > 0) {
+                return Math.max(fraction, 1.0 / Math.max(1, distinct)); // Frequent values span several buckets
+            }
+            return fraction;
+        }
+        return conjunct instanceof EqualsTo ? EQUALITY_SELECTIVITY : RANGE_SELECTIVITY;
+    }
+
+    /**
+     * Estimates the number of distinct values of a column, falling back to the row count of
+     * its table (i.e. assuming a key) when the catalog has no estimate.
+     */
+    private double distinctValues(Column column) {
+        String tableName = column.getTable().getName();
+        long distinct = catalog.estimateDistinctValues(tableName, column.getColumnName());
+        return Math.max(1, distinct > 0 ? distinct : catalog.estimateRowCount(tableName));
+    }
+}
@@ -0,0 +1,161 @@
+package ed.inf.adbs.blazedb.utility;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static ed.inf.adbs.blazedb.Helper.getConjuncts;
+
+/**
+ * ColumnBounds holds an inclusive value range per column of a table, derived from the
+ * WHERE conjuncts that compare a column of that table with a constant (e.g. Student.B > 500).
+ * Every row satisfying the WHERE clause lies within the bounds, so they can be used to skip
+ * data that cannot match. Conditions that do not restrict a range (such as !=) are ignored.
+ */
+public class ColumnBounds {
+    private final long[] lower;
+    private final long[] upper;
+
+    /**
+     * Constructs unrestricted bounds.
+     *
+     * @param columnCount The number of columns of the table.
+     */
+    public ColumnBounds(int columnCount) {
+        this.lower = new long[columnCount];
+        this.upper = new long[columnCount];
+        Arrays.fill(lower, Long.MIN_VALUE);
+        Arrays.fill(upper, Long.MAX_VALUE);
+    }
+
+    /**
+     * Derives the bounds of a table's columns from a WHERE clause.
+     *
+     * @param whereClause The WHERE clause, may be null.
+     * @param tableName The name of the table.
+     * @param schema The column names of the table.
+     * @return The bounds implied by the single-table comparisons of the WHERE clause.
+     */
+    public static ColumnBounds fromWhereClause(Expression whereClause, String tableName, List<String> schema) {
+        ColumnBounds bounds = new ColumnBounds(schema.size());
+        for (Expression conjunct : getConjuncts(whereClause)) {
+            if (!(conjunct instanceof ComparisonOperator)) continue;
+
+            ComparisonOperator comparison = (ComparisonOperator) conjunct;
+            Expression left = comparison.getLeftExpression();
+            Expression right = comparison.getRightExpression();
+            boolean flipped = false;
+            if (left instanceof LongValue && right instanceof Column) {
+                Expression swap = left;
+                left = right;
+                right = swap;
+                flipped = true;
+            }
+            if (!(left instanceof Column) || !(right instanceof LongValue)) continue;
+
+            Column column = (Column) left;
+            if (column.getTable() == null || !tableName.equals(column.getTable().getName())) continue;
+            int index = schema.indexOf(column.getColumnName());
+            if (index < 0) continue;
+
+            bounds.restrict(index, comparison, ((LongValue) right).getValue(), flipped);
+        }
+        return bounds;
+    }
+
+    /**
+     * Narrows the range of a column with a comparison against a constant.
+     *
+     * @param column The column index.
+     * @param comparison The comparison.
+     * @param value The constant.
+     * @param flipped True if the constant is the left operand (e.g. 5 < Student.A).
+     */
+    private void restrict(int column, ComparisonOperator comparison, long value, boolean flipped) {
+        boolean greater = comparison instanceof GreaterThan || comparison instanceof GreaterThanEquals;
+        boolean less = comparison instanceof MinorThan || comparison instanceof MinorThanEquals;
+        boolean inclusive = comparison instanceof GreaterThanEquals || comparison instanceof MinorThanEquals;
+        if (flipped) {
+            boolean swap = greater;
+            greater = less;
+            less = swap;
+        }
+
+        if (comparison instanceof EqualsTo) {
+            lower[column] = Math.max(lower[column], value);
+            upper[column] = Math.min(upper[column], value);
+        } else if (greater) {
+            if (!inclusive && value == Long.MAX_VALUE) {
+                upper[column] = Long.MIN_VALUE; // Nothing is greater: empty range
+                lower[column] = Long.MAX_VALUE;
+            } else {
+                lower[column] = Math.max(lower[column], inclusive ? value : value + 1);
+            }
+        } else if (less) {
+            if (!inclusive && value == Long.MIN_VALUE) {
+                upper[column] = Long.MIN_VALUE; // Nothing is less: empty range
+                lower[column] = Long.MAX_VALUE;
+            } else {
+                upper[column] = Math.min(upper[column], inclusive ? value : value - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the inclusive lower bound of a column.
+     *
+     * @param column The column index.
+     * @return The lower bound, {@code Long.MIN_VALUE} if unrestricted.
+     */
+    public long getLower(int column) {
+        return lower[column];
+    }
+
+    /**
+     * Returns the inclusive upper bound of a column.
+     *
+     * @param column The column index.
+     * @return The upper bound, {@code Long.MAX_VALUE} if unrestricted.
+     */
+    public long getUpper(int column) {
+        return upper[column];
+    }
+
+    /**
+     * Indicates whether a column's range is restricted at all.
+     *
+     * @param column The column index.
+     * @return True if the column has a lower or upper bound.
+     */
+    public boolean isRestricted(int column) {
+        return lower[column] != Long.MIN_VALUE || upper[column] != Long.MAX_VALUE;
+    }
+
+    /**
+     * Indicates whether any column's range is restricted.
+     *
+     * @return True if at least one column has a bound.
+     */
+    public boolean isRestricted() {
+        for (int column = 0; column < lower.length; column++) {
+            if (isRestricted(column)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether values in the range [min, max] may satisfy the bounds of a column.
+     *
+     * @param column The column index.
+     * @param min The smallest value present.
+     * @param max The largest value present.
+     * @return False if no value of the range can satisfy the bounds.
+     */
+    public boolean overlaps(int column, long min, long max) {
+        return min <= upper[column] && max >= lower[column] && lower[column] <= upper[column];
+    }
+}
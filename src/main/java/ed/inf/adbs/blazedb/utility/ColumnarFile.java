@@ -0,0 +1,243 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleBatch;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ColumnarFile reads and writes the binary columnar table format.
+ * <p>
+ * Rows are stored in blocks of {@link #BLOCK_SIZE} rows. Within a block, the values of each
+ * column are stored contiguously as 32-bit big-endian integers, so a reader can fetch only the
+ * columns it needs. The file ends with a footer holding the row count of every block and the
+ * file offset of every column chunk, followed by the footer offset and a magic number. The footer
+ * also records the size and modification time of the CSV file, so that a columnar file of a CSV
+ * file modified since is recognized as stale.
+ */
+public class ColumnarFile implements Closeable {
+    public static final int MAGIC = 0x424C5A54; // "BLZT" ("BLZC" before the CSV size and mtime were recorded)
+    public static final int BLOCK_SIZE = TupleBatch.DEFAULT_CAPACITY;
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final File file;
+    private FileChannel channel; // Null while the file is closed
+    @Getter
+    private final int columnCount;
+    @Getter
+    private final long rowCount;
+    @Getter
+    private final int[] blockRowCounts; // Number of rows in each block
+    private final long[][] columnOffsets; // File offset of each column chunk: [block][column]
+    private final long tableSize; // Size of the CSV file when it was converted
+    private final long tableLastModified; // Modification time of the CSV file when it was converted
+    private final ByteBuffer readBuffer;
+
+    /**
+     * Opens a columnar file and loads its footer. The file stays open for reading until {@link #close()}.
+     *
+     * @param file The columnar file.
+     * @throws IOException If the file cannot be read or is not a valid columnar file.
+     */
+    public ColumnarFile(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer trailer = readFully(channel.size() - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Not a columnar table file: " + file);
+            }
+
+            ByteBuffer footer = readFully(footerOffset, (int) (channel.size() - TRAILER_SIZE - footerOffset));
+            this.tableSize = footer.getLong();
+            this.tableLastModified = footer.getLong();
+            this.columnCount = footer.getInt();
+            this.rowCount = footer.getLong();
+            int blockCount = footer.getInt();
+            this.blockRowCounts = new int[blockCount];
+            this.columnOffsets = new long[blockCount][columnCount];
+            for (int block = 0; block < blockCount; block++) {
+                blockRowCounts[block] = footer.getInt();
+                for (int column = 0; column < columnCount; column++) {
+                    columnOffsets[block][column] = footer.getLong();
+                }
+            }
+            this.readBuffer = ByteBuffer.allocate(BLOCK_SIZE * Integer.BYTES);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the file holds the current content of a table file.
+     *
+     * @param csvFile The CSV table file.
+     * @return True if the file has the size and modification time recorded when it was converted.
+     */
+    public boolean isUpToDate(File csvFile) {
+        return csvFile.length() == tableSize && csvFile.lastModified() == tableLastModified;
+    }
+
+    /**
+     * Returns the number of blocks in the file.
+     *
+     * @return The block count.
+     */
+    public int getBlockCount() {
+        return blockRowCounts.length;
+    }
+
+    /**
+     * Reads the values of one column of one block, reopening the file if it has been closed.
+     *
+     * @param block The block index.
+     * @param column The column index.
+     * @param values The array receiving the values; must hold the rows of the block.
+     * @throws IOException If the file cannot be read.
+     */
+    public void readColumn(int block, int column, long[] values) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        int rows = blockRowCounts[block];
+        readBuffer.clear().limit(rows * Integer.BYTES);
+        long position = columnOffsets[block][column];
+        while (readBuffer.hasRemaining()) {
+            if (channel.read(readBuffer, position + readBuffer.position()) < 0) {
+                throw new EOFException("Truncated columnar table file");
+            }
+        }
+        readBuffer.flip();
+        for (int row = 0; row < rows; row++) {
+            values[row] = readBuffer.getInt();
+        }
+    }
+
+    /**
+     * Reads a region of the file into a new buffer.
+     *
+     * @param position The file offset.
+     * @param length The number of bytes.
+     * @return The buffer, ready to be read.
+     * @throws IOException If the region cannot be read.
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if (position < 0 || length < 0) {
+            throw new IOException("Not a columnar table file");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated columnar table file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Closes the underlying file. The footer stays loaded, and the next read opens the file again.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Converts a CSV table file into the columnar format.
+     *
+     * @param csvFile The CSV table file.
+     * @param columnarFile The columnar file to write.
+     * @param columnCount The number of columns of the table.
+     * @throws IOException If a file cannot be read or written.
+     * @throws IllegalArgumentException If a value does not fit in 32 bits.
+     * @throws NumberFormatException If a row does not have exactly {@code columnCount} integer fields.
+     */
+    public static void write(File csvFile, File columnarFile, int columnCount) throws IOException {
+        long tableSize = csvFile.length();
+        long tableLastModified = csvFile.lastModified();
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+             DataOutputStream output = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(columnarFile)))) {
+            long[][] blockValues = new long[columnCount][BLOCK_SIZE];
+            long[] row = new long[columnCount];
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            long rowCount = 0;
+            long position = 0;
+            int blockCount = 0;
+            int blockRows = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (Tuple.parseCSV(line, row) != columnCount) {
+                    throw new NumberFormatException("Invalid row in " + csvFile);
+                }
+                for (int column = 0; column < columnCount; column++) {
+                    blockValues[column][blockRows] = row[column];
+                }
+                rowCount++;
+                if (++blockRows == BLOCK_SIZE) {
+                    position = writeBlock(output, footer, blockValues, blockRows, position);
+                    blockCount++;
+                    blockRows = 0;
+                }
+            }
+            if (blockRows > 0) {
+                position = writeBlock(output, footer, blockValues, blockRows, position);
+                blockCount++;
+            }
+
+            output.writeLong(tableSize);
+            output.writeLong(tableLastModified);
+            output.writeInt(columnCount);
+            output.writeLong(rowCount);
+            output.writeInt(blockCount);
+            footerBytes.writeTo(output);
+            output.writeLong(position);
+            output.writeInt(MAGIC);
+        }
+    }
+
+    /**
+     * Writes the column chunks of one block and records its entry in the footer.
+     *
+     * @param output The data stream of the file.
+     * @param footer The stream collecting the footer entries.
+     * @param blockValues The block values: [column][row].
+     * @param blockRows The number of rows in the block.
+     * @param position The file offset at which the block starts.
+     * @return The file offset following the block.
+     * @throws IOException If writing fails.
+     */
+    private static long writeBlock(DataOutputStream output,
+                                   DataOutputStream footer,
+                                   long[][] blockValues,
+                                   int blockRows,
+                                   long position) throws IOException {
+        footer.writeInt(blockRows);
+        for (long[] columnValues : blockValues) {
+            footer.writeLong(position);
+            position += (long) blockRows * Integer.BYTES;
+            for (int row = 0; row < blockRows; row++) {
+                long value = columnValues[row];
+                if (value != (int) value) {
+                    throw new IllegalArgumentException("Value does not fit in the columnar format: " + value);
+                }
+                output.writeInt((int) value);
+            }
+        }
+        return position;
+    }
+}
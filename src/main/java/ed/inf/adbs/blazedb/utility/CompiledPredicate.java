@@ -0,0 +1,229 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.TupleBatch;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ed.inf.adbs.blazedb.Helper.getConjuncts;
+
+/**
+ * CompiledPredicate is a WHERE clause compiled once for rows of a known {@link Schema}.
+ * Every conjunct has its column references resolved to offsets and is turned into a
+ * comparison specialized for its operator and operand kinds, so evaluating a row only
+ * compares primitive values.
+ * <p>
+ * Constant folding follows {@link ExpressionEvaluator#evaluate}: conjuncts comparing two
+ * constants are decided at compile time, conjuncts referring to columns outside the schema
+ * (tables not joined yet) are true, and unsupported conditions are false.
+ */
+public class CompiledPredicate {
+    private final RowPredicate[] conjuncts;
+    private final int[] leftIndices; // Column offset of each conjunct's left operand, -1 for a constant
+    private final int[] rightIndices; // Column offset of each conjunct's right operand, -1 for a constant
+    private final long[] leftConstants;
+    private final long[] rightConstants;
+    private final LongComparison[] comparisons;
+    private final boolean alwaysFalse;
+
+    /**
+     * A condition on a row of values.
+     */
+    @FunctionalInterface
+    public interface RowPredicate {
+        boolean test(long[] values);
+    }
+
+    /**
+     * A comparison between two primitive values.
+     */
+    @FunctionalInterface
+    private interface LongComparison {
+        boolean test(long left, long right);
+    }
+
+    /**
+     * Compiles a WHERE clause for rows of the given schema.
+     *
+     * @param expression The WHERE clause, may be null.
+     * @param schema The layout of the rows.
+     * @return The compiled predicate.
+     * @throws IllegalArgumentException If an operand is neither a column nor an integer.
+     */
+    public static CompiledPredicate compile(Expression expression, Schema schema) {
+        return new CompiledPredicate(expression, schema);
+    }
+
+    /**
+     * Compiles the conjuncts of a WHERE clause.
+     */
+    private CompiledPredicate(Expression expression, Schema schema) {
+        List<Expression> kept = new ArrayList<>();
+        List<int[]> indices = new ArrayList<>();
+        boolean folded = false;
+
+        for (Expression conjunct : getConjuncts(expression)) {
+            if (comparisonFor(conjunct) == null) {
+                folded = true; // Unsupported conditions never hold
+                continue;
+            }
+            BinaryExpression binaryExpr = (BinaryExpression) conjunct;
+            int left = operandIndex(binaryExpr.getLeftExpression(), schema);
+            int right = operandIndex(binaryExpr.getRightExpression(), schema);
+            if (left == -2 || right == -2) {
+                continue; // Refers to a column absent from the rows
+            }
+            if (left == -1 && right == -1) {
+                folded |= !comparisonFor(conjunct).test(constant(binaryExpr.getLeftExpression()),
+                        constant(binaryExpr.getRightExpression()));
+                continue;
+            }
+            kept.add(conjunct);
+            indices.add(new int[]{left, right});
+        }
+
+        int count = folded ? 0 : kept.size();
+        this.alwaysFalse = folded;
+        this.conjuncts = new RowPredicate[count];
+        this.leftIndices = new int[count];
+        this.rightIndices = new int[count];
+        this.leftConstants = new long[count];
+        this.rightConstants = new long[count];
+        this.comparisons = new LongComparison[count];
+        for (int i = 0; i < count; i++) {
+            BinaryExpression binaryExpr = (BinaryExpression) kept.get(i);
+            leftIndices[i] = indices.get(i)[0];
+            rightIndices[i] = indices.get(i)[1];
+            leftConstants[i] = leftIndices[i] < 0 ? constant(binaryExpr.getLeftExpression()) : 0;
+            rightConstants[i] = rightIndices[i] < 0 ? constant(binaryExpr.getRightExpression()) : 0;
+            comparisons[i] = comparisonFor(binaryExpr);
+            conjuncts[i] = specialize(binaryExpr, leftIndices[i], rightIndices[i], leftConstants[i], rightConstants[i]);
+        }
+    }
+
+    /**
+     * Evaluates the predicate on a row.
+     *
+     * @param values The values of the row.
+     * @return True if the row satisfies every conjunct.
+     */
+    public boolean test(long[] values) {
+        if (alwaysFalse) return false;
+        for (RowPredicate conjunct : conjuncts) {
+            if (!conjunct.test(values)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the predicate on every selected row of a batch and compacts the batch
+     * selection vector to the rows satisfying it.
+     *
+     * @param batch The batch to filter in place.
+     */
+    public void filter(TupleBatch batch) {
+        if (alwaysFalse) {
+            batch.setSize(0);
+            return;
+        }
+
+        long[][] columns = batch.getColumns();
+        for (int c = 0; c < comparisons.length && batch.getSize() > 0; c++) {
+            long[] leftColumn = leftIndices[c] >= 0 ? columns[leftIndices[c]] : null;
+            long[] rightColumn = rightIndices[c] >= 0 ? columns[rightIndices[c]] : null;
+            LongComparison comparison = comparisons[c];
+
+            int[] selection = batch.getSelection();
+            int size = batch.getSize();
+            int selected = 0;
+            for (int i = 0; i < size; i++) {
+                int row = selection[i];
+                long leftValue = leftColumn != null ? leftColumn[row] : leftConstants[c];
+                long rightValue = rightColumn != null ? rightColumn[row] : rightConstants[c];
+                if (comparison.test(leftValue, rightValue)) {
+                    selection[selected++] = row;
+                }
+            }
+            batch.setSize(selected);
+        }
+    }
+
+    /**
+     * Resolves an operand of a comparison.
+     *
+     * @return The column offset, -1 for a constant, or -2 for a column absent from the rows.
+     */
+    private static int operandIndex(Expression expression, Schema schema) {
+        if (expression instanceof LongValue) {
+            return -1;
+        } else if (expression instanceof Column) {
+            int index = schema.indexOf(((Column) expression).getFullyQualifiedName());
+            return index < 0 ? -2 : index;
+        }
+        throw new IllegalArgumentException("Unsupported expression: " + expression);
+    }
+
+    /**
+     * Returns the value of a constant operand.
+     */
+    private static long constant(Expression expression) {
+        return ((LongValue) expression).getValue();
+    }
+
+    /**
+     * Builds the row predicate of a comparison, specialized for its operator and for
+     * whether its operands are columns or constants.
+     */
+    private static RowPredicate specialize(Expression expression, int l, int r, long lc, long rc) {
+        if (l >= 0 && r >= 0) {
+            if (expression instanceof EqualsTo) return values -> values[l] == values[r];
+            if (expression instanceof NotEqualsTo) return values -> values[l] != values[r];
+            if (expression instanceof GreaterThan) return values -> values[l] > values[r];
+            if (expression instanceof GreaterThanEquals) return values -> values[l] >= values[r];
+            if (expression instanceof MinorThan) return values -> values[l] < values[r];
+            if (expression instanceof MinorThanEquals) return values -> values[l] <= values[r];
+        } else if (l >= 0) {
+            if (expression instanceof EqualsTo) return values -> values[l] == rc;
+            if (expression instanceof NotEqualsTo) return values -> values[l] != rc;
+            if (expression instanceof GreaterThan) return values -> values[l] > rc;
+            if (expression instanceof GreaterThanEquals) return values -> values[l] >= rc;
+            if (expression instanceof MinorThan) return values -> values[l] < rc;
+            if (expression instanceof MinorThanEquals) return values -> values[l] <= rc;
+        } else {
+            if (expression instanceof EqualsTo) return values -> lc == values[r];
+            if (expression instanceof NotEqualsTo) return values -> lc != values[r];
+            if (expression instanceof GreaterThan) return values -> lc > values[r];
+            if (expression instanceof GreaterThanEquals) return values -> lc >= values[r];
+            if (expression instanceof MinorThan) return values -> lc < values[r];
+            if (expression instanceof MinorThanEquals) return values -> lc <= values[r];
+        }
+        throw new IllegalArgumentException("Unsupported expression: " + expression);
+    }
+
+    /**
+     * Returns the primitive comparison implementing a comparison expression.
+     *
+     * @return The comparison, or null if the expression is not a supported comparison.
+     */
+    private static LongComparison comparisonFor(Expression expression) {
+        if (expression instanceof EqualsTo) {
+            return (l, r) -> l == r;
+        } else if (expression instanceof GreaterThan) {
+            return (l, r) -> l > r;
+        } else if (expression instanceof GreaterThanEquals) {
+            return (l, r) -> l >= r;
+        } else if (expression instanceof MinorThan) {
+            return (l, r) -> l < r;
+        } else if (expression instanceof MinorThanEquals) {
+            return (l, r) -> l <= r;
+        } else if (expression instanceof NotEqualsTo) {
+            return (l, r) -> l != r;
+        }
+        return null;
+    }
+}
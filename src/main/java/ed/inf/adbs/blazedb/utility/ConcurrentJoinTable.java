@@ -0,0 +1,244 @@
+package ed.inf.adbs.blazedb.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ConcurrentJoinTable is the hash table of a parallel hash join. It indexes the rows of the
+ * build side, held column-major, on their join key, and is built by several threads at once
+ * without locks: the slots of its open-addressing table are claimed with compare-and-set, each
+ * claimed slot holding the first row inserted with its key, against which the keys of the other
+ * rows are compared.
+ * <p>
+ * Once every row is inserted, the rows are grouped by slot into one array; within a slot they
+ * are kept in input order, so a probe returns the matches of a key in the order of the build
+ * input whatever the interleaving of the inserting threads. The finished table is read-only
+ * and can be probed by any number of threads.
+ */
+public class ConcurrentJoinTable {
+    private static final int EMPTY = -1;
+
+    private final long[][] columns; // The build rows
+    private final int rowCount;
+    private final int[] keyColumns; // Indices of the join columns within the build rows
+    private final int mask; // Slot count minus one; the slot count is a power of two
+    private final AtomicIntegerArray slots; // Row whose key owns each slot, EMPTY if none
+    private final AtomicIntegerArray slotEnds; // Rows per slot, then the end of each slot within rowIds
+    private final int[] rowSlots; // Slot of the key of each row
+    private final int[] rowIds; // Rows grouped by slot, in input order within a slot
+
+    /**
+     * Builds the table over a set of rows.
+     *
+     * @param columns The build rows, column-major.
+     * @param rowCount The number of rows.
+     * @param keyColumns The indices of the join columns.
+     * @param pool The worker pool inserting the rows, or null to build the table on the calling thread.
+     */
+    public ConcurrentJoinTable(long[][] columns, int rowCount, int[] keyColumns, ForkJoinPool pool) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.keyColumns = keyColumns;
+        int capacity = Integer.highestOneBit(Math.max(1, rowCount) * 2 - 1) * 2;
+        this.mask = capacity - 1;
+        this.slots = new AtomicIntegerArray(capacity);
+        this.slotEnds = new AtomicIntegerArray(capacity);
+        this.rowSlots = new int[rowCount];
+        this.rowIds = new int[rowCount];
+        for (int slot = 0; slot < capacity; slot++) {
+            slots.set(slot, EMPTY);
+        }
+        build(pool);
+    }
+
+    /**
+     * Inserts every row, then groups the rows by slot. Each phase is split into one range
+     * of rows (or slots) per worker.
+     */
+    private void build(ForkJoinPool pool) {
+        forEachRange(pool, rowCount, this::insert);
+
+        // Turn the row counts into the end of each slot's rows
+        int end = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            end += slotEnds.get(slot);
+            slotEnds.set(slot, end);
+        }
+
+        forEachRange(pool, rowCount, this::place);
+        forEachRange(pool, mask + 1, this::sortSlots);
+    }
+
+    /**
+     * Finds or claims the slot of the key of each row of a range, and counts the rows per slot.
+     *
+     * @param from The first row.
+     * @param to The end of the range, exclusive.
+     */
+    private void insert(int from, int to) {
+        for (int row = from; row < to; row++) {
+            int slot = Hashing.hashKey(columns, row, keyColumns) & mask;
+            while (true) {
+                int owner = slots.get(slot);
+                if (owner == EMPTY) {
+                    if (slots.compareAndSet(slot, EMPTY, row)) break;
+                    owner = slots.get(slot); // Claimed by another thread in the meantime
+                }
+                if (keyEquals(owner, columns, row, keyColumns)) break;
+                slot = (slot + 1) & mask;
+            }
+            rowSlots[row] = slot;
+            slotEnds.incrementAndGet(slot);
+        }
+    }
+
+    /**
+     * Places the rows of a range within the rows of their slot. Each slot is filled backwards
+     * from its end, so that once every row is placed, the end of a slot is the start of the next.
+     *
+     * @param from The first row.
+     * @param to The end of the range, exclusive.
+     */
+    private void place(int from, int to) {
+        for (int row = from; row < to; row++) {
+            rowIds[slotEnds.decrementAndGet(rowSlots[row])] = row;
+        }
+    }
+
+    /**
+     * Restores the input order of the rows of a range of slots, which the concurrent
+     * placement may have shuffled.
+     *
+     * @param from The first slot.
+     * @param to The end of the range, exclusive.
+     */
+    private void sortSlots(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            int start = getStart(slot);
+            int end = getEnd(slot);
+            if (end - start > 1) {
+                Arrays.sort(rowIds, start, end);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param probeColumns The columns of a batch.
+     * @param row The row within the columns.
+     * @param probeKeyColumns The indices of the key columns, in the same order as the build join columns.
+     * @return The slot of the key, or -1 if no build row has that key.
+     */
+    public int find(long[][] probeColumns, int row, int[] probeKeyColumns) {
+        for (int slot = Hashing.hashKey(probeColumns, row, probeKeyColumns) & mask; ; slot = (slot + 1) & mask) {
+            int owner = slots.get(slot);
+            if (owner == EMPTY) return -1;
+            if (keyEquals(owner, probeColumns, row, probeKeyColumns)) return slot;
+        }
+    }
+
+    /**
+     * Returns the position within {@link #getRow} of the first row of a slot.
+     *
+     * @param slot The slot.
+     * @return The start of the rows of the slot.
+     */
+    public int getStart(int slot) {
+        return slotEnds.get(slot);
+    }
+
+    /**
+     * Returns the position within {@link #getRow} following the last row of a slot.
+     *
+     * @param slot The slot.
+     * @return The end of the rows of the slot, exclusive.
+     */
+    public int getEnd(int slot) {
+        return slot == mask ? rowCount : slotEnds.get(slot + 1);
+    }
+
+    /**
+     * Returns a build row, from the rows grouped by slot.
+     *
+     * @param index The position within the grouped rows.
+     * @return The build row number.
+     */
+    public int getRow(int index) {
+        return rowIds[index];
+    }
+
+    /**
+     * Returns the build rows.
+     *
+     * @return The build rows, column-major.
+     */
+    public long[][] getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of build rows.
+     *
+     * @return The row count.
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * Compares the key of a build row with the key columns of a row.
+     */
+    private boolean keyEquals(int buildRow, long[][] otherColumns, int row, int[] otherKeyColumns) {
+        for (int k = 0; k < keyColumns.length; k++) {
+            if (columns[keyColumns[k]][buildRow] != otherColumns[otherKeyColumns[k]][row]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies a task to consecutive ranges of {@code [0, count)}, one range per worker of
+     * the pool, and waits for every range to be done.
+     *
+     * @param pool The worker pool, or null to run the task on the calling thread.
+     * @param count The end of the whole range.
+     * @param task The task, applied to the start and end of a range.
+     * @throws RuntimeException If a worker failed, with the failure as cause.
+     */
+    private static void forEachRange(ForkJoinPool pool, int count, RangeTask task) {
+        int rangeCount = pool == null ? 1 : Math.min(pool.getParallelism(), Math.max(1, count / 1024));
+        if (rangeCount == 1) {
+            task.run(0, count);
+            return;
+        }
+
+        List<Future<?>> ranges = new ArrayList<>();
+        for (int i = 0; i < rangeCount; i++) {
+            int from = (int) ((long) count * i / rangeCount);
+            int to = (int) ((long) count * (i + 1) / rangeCount);
+            ranges.add(pool.submit(() -> task.run(from, to)));
+        }
+        try {
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building a join table", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error building a join table", e.getCause());
+        }
+    }
+
+    /**
+     * A task over a range of rows or slots.
+     */
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+}
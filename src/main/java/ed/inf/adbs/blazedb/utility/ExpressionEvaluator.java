@@ -10,16 +10,15 @@ import net.sf.jsqlparser.schema.Column;
 import java.util.ArrayList;
 import java.util.List;
 
-import static ed.inf.adbs.blazedb.Helper.getIndices;
-
 /**
  * ExpressionEvaluator evaluates WHERE clause conditions on a given Tuple.
- * It supports different types of binary expressions and arithmetic evaluations like SUM.
- * The class handles logical conditions like AND, comparison operators (>, <, =, !=), and arithmetic operations.
+ * The class handles logical conditions like AND and comparison operators (>, <, =, !=).
+ * It also records which tables each condition refers to, which the Parser uses to find
+ * single-table conditions. Operators evaluate conditions through {@link CompiledPredicate}.
  */
 public class ExpressionEvaluator {
 
-    private final List<String> tableOrder;
+    private final Schema schema;
     private final Tuple tuple;
     private Boolean ignoreFlag;
     private String currentTables;
@@ -28,38 +27,14 @@ public class ExpressionEvaluator {
 
     /**
      * Constructor for the ExpressionEvaluator class.
-     * @param tableOrder The list of table names in the query.
+     * @param schema The layout of the tuple.
      * @param tuple The tuple being evaluated for the WHERE clause.
      */
-    public ExpressionEvaluator(List<String> tableOrder, Tuple tuple) {
-        this.tableOrder = tableOrder;
+    public ExpressionEvaluator(Schema schema, Tuple tuple) {
+        this.schema = schema;
         this.tuple = tuple;
     }
 
-    /**
-     * Evaluates an arithmetic SUM expression on the tuple.
-     * This method assumes that the expression is a multiplication (e.g., SUM(col1 * col2)).
-     * @param expression The SUM expression as a string.
-     * @return The computed product value for the given expression.
-     */
-    public int evaluateSumExpression(String expression) {
-        expression = expression.replaceAll("\\s+", " ");
-        List<String> columns = List.of(expression.split("\\*"));
-        int product = 1;
-
-        for (String column : columns) {
-            if (!column.contains(".")) {
-                int value = Integer.parseInt(column.replaceAll("\\s",""));
-                product *= value;
-                continue;
-            }
-            int columnIndex = getIndices(column.replaceAll("\\s",""), tableOrder).get(0);
-            int value = Integer.parseInt(tuple.getValue(columnIndex).replaceAll("\\s",""));
-            product *= value;
-        }
-        return product;
-    }
-
     /**
      * Evaluates a WHERE clause expression on the tuple.
      * This method handles logical AND expressions and various comparison operators (>, <, =, !=).
@@ -96,8 +71,8 @@ public class ExpressionEvaluator {
         ignoreFlag = false;
         currentTables = "";
 
-        int leftValue = extractValue(expression.getLeftExpression());
-        int rightValue = extractValue(expression.getRightExpression());
+        long leftValue = extractValue(expression.getLeftExpression());
+        long rightValue = extractValue(expression.getRightExpression());
 
         if (!currentTables.isEmpty()) {
             tablesForExpression.add(currentTables);
@@ -121,23 +96,23 @@ public class ExpressionEvaluator {
      * @param expression The expression to extract the value from (could be a column or literal).
      * @return The integer value of the expression.
      */
-    private int extractValue(Expression expression) {
+    private long extractValue(Expression expression) {
         if (expression instanceof LongValue) {
-            return (int) ((LongValue) expression).getValue();
+            return ((LongValue) expression).getValue();
         } else if (expression instanceof Column) {
-            int columnIndex = getIndices(expression, tableOrder).get(0);
+            int columnIndex = schema.indexOf(((Column) expression).getFullyQualifiedName());
 
             if (!currentTables.isEmpty()) {
                 currentTables += ",";
             }
             currentTables += expression.toString().split("\\.")[0].replaceAll("\\s*", "");
 
-            if (columnIndex >= tuple.getValues().size() || columnIndex == -2) {
+            if (columnIndex < 0 || columnIndex >= tuple.size()) {
                 ignoreFlag = true;
                 return 0;
             }
 
-            return Integer.parseInt(tuple.getValue(columnIndex).replaceAll("\\s",""));
+            return tuple.getValue(columnIndex);
         }
         throw new IllegalArgumentException("Unsupported expression: " + expression);
     }
@@ -0,0 +1,164 @@
+package ed.inf.adbs.blazedb.utility;
+
+import java.util.Arrays;
+
+/**
+ * GroupHashTable maps group keys (tuples of GROUP BY values) to rows of 64-bit accumulators
+ * without allocating per input row. It is an open-addressing hash table with linear probing:
+ * the slots hold group numbers, while the keys and accumulators of the groups are stored
+ * contiguously in primitive arrays, group after group. Groups are numbered in the order they
+ * are first seen, so iterating over them by number follows the input order.
+ * <p>
+ * Accumulators use exact arithmetic: a SUM overflowing 64 bits raises an
+ * {@link ArithmeticException} instead of silently wrapping around.
+ */
+public class GroupHashTable {
+    private static final int INITIAL_CAPACITY = 64; // Slots; always a power of two
+    private static final int EMPTY = -1;
+
+    private final int keyWidth;
+    private final int valueWidth;
+    private int[] slots; // Group number stored in each slot, EMPTY if none
+    private int[] hashes; // Hash of the key of each group, so growing does not rehash keys
+    private long[] keys; // keyWidth values per group
+    private long[] values; // valueWidth accumulators per group
+    private int groupCount;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param keyWidth The number of values of a group key.
+     * @param valueWidth The number of accumulators of a group.
+     */
+    public GroupHashTable(int keyWidth, int valueWidth) {
+        this.keyWidth = keyWidth;
+        this.valueWidth = valueWidth;
+        clear();
+    }
+
+    /**
+     * Removes every group.
+     */
+    public void clear() {
+        this.slots = new int[INITIAL_CAPACITY];
+        Arrays.fill(slots, EMPTY);
+        this.hashes = new int[INITIAL_CAPACITY / 2];
+        this.keys = new long[INITIAL_CAPACITY / 2 * keyWidth];
+        this.values = new long[INITIAL_CAPACITY / 2 * valueWidth];
+        this.groupCount = 0;
+    }
+
+    /**
+     * Finds the group of the key made of some columns of a row, creating it with zeroed
+     * accumulators if it is new.
+     *
+     * @param columns The columns of a batch.
+     * @param row The row within the columns.
+     * @param keyColumns The indices of the key columns.
+     * @return The group number.
+     */
+    public int findOrInsert(long[][] columns, int row, int[] keyColumns) {
+        int hash = Hashing.hashKey(columns, row, keyColumns);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int group = slots[slot];
+            if (group == EMPTY) {
+                group = newGroup(hash);
+                for (int k = 0; k < keyWidth; k++) {
+                    keys[group * keyWidth + k] = columns[keyColumns[k]][row];
+                }
+                slots[slot] = group;
+                if (groupCount * 2 > slots.length) grow();
+                return group;
+            }
+            if (hashes[group] == hash && keyEquals(group, columns, row, keyColumns)) {
+                return group;
+            }
+        }
+    }
+
+    /**
+     * Adds a value to an accumulator of a group.
+     *
+     * @param group The group number.
+     * @param accumulator The index of the accumulator.
+     * @param value The value to add.
+     * @throws ArithmeticException If the sum overflows 64 bits.
+     */
+    public void add(int group, int accumulator, long value) {
+        int position = group * valueWidth + accumulator;
+        values[position] = Math.addExact(values[position], value);
+    }
+
+    /**
+     * Returns the number of groups.
+     *
+     * @return The number of groups.
+     */
+    public int size() {
+        return groupCount;
+    }
+
+    /**
+     * Returns a value of the key of a group.
+     *
+     * @param group The group number.
+     * @param k The index of the value within the key.
+     * @return The key value.
+     */
+    public long getKey(int group, int k) {
+        return keys[group * keyWidth + k];
+    }
+
+    /**
+     * Returns an accumulator of a group.
+     *
+     * @param group The group number.
+     * @param accumulator The index of the accumulator.
+     * @return The accumulated value.
+     */
+    public long getValue(int group, int accumulator) {
+        return values[group * valueWidth + accumulator];
+    }
+
+    /**
+     * Allocates the next group number, growing the group arrays if needed.
+     */
+    private int newGroup(int hash) {
+        if (groupCount == hashes.length) {
+            int capacity = hashes.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keys = Arrays.copyOf(keys, capacity * keyWidth);
+            values = Arrays.copyOf(values, capacity * valueWidth);
+        }
+        hashes[groupCount] = hash;
+        return groupCount++;
+    }
+
+    /**
+     * Doubles the number of slots and reinserts every group.
+     */
+    private void grow() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+        for (int group = 0; group < groupCount; group++) {
+            int slot = hashes[group] & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = group;
+        }
+    }
+
+    /**
+     * Compares the key of a group with the key columns of a row.
+     */
+    private boolean keyEquals(int group, long[][] columns, int row, int[] keyColumns) {
+        int offset = group * keyWidth;
+        for (int k = 0; k < keyWidth; k++) {
+            if (keys[offset + k] != columns[keyColumns[k]][row]) return false;
+        }
+        return true;
+    }
+}
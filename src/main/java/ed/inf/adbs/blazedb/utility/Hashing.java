@@ -0,0 +1,59 @@
+package ed.inf.adbs.blazedb.utility;
+
+/**
+ * Hashing gathers the hash functions shared by the hash tables, partitioners and sketches.
+ * They are built on the finalizer of MurmurHash3, which scrambles the bits of a value so that
+ * close values, such as consecutive keys, get unrelated hashes.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Hashes the key made of some columns of a row. Rows with equal keys get equal hashes,
+     * whatever the columns they are read from.
+     *
+     * @param columns The columns of a batch.
+     * @param row The row within the columns.
+     * @param keyColumns The indices of the key columns.
+     * @return The hash of the key.
+     */
+    public static int hashKey(long[][] columns, int row, int[] keyColumns) {
+        int hash = 1;
+        for (int index : keyColumns) {
+            hash = hash * 31 + mix(columns[index][row]);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Scrambles the bits of a value into a 32-bit hash, with the first half of the finalizer.
+     * This is enough to choose a slot or a partition from the low bits of the result.
+     *
+     * @param value The value.
+     * @return The hash of the value.
+     */
+    public static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+    /**
+     * Scrambles the bits of a value into a 64-bit hash with the whole finalizer, so that every
+     * bit of the result depends on every bit of the value.
+     *
+     * @param value The value.
+     * @return The hash of the value.
+     */
+    public static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,51 @@
+package ed.inf.adbs.blazedb.utility;
+
+/**
+ * HyperLogLog estimates the number of distinct values of a stream in constant memory.
+ * Each value is hashed; the first {@code PRECISION} bits of the hash select a register, which
+ * keeps the longest run of leading zeros seen in the remaining bits. The harmonic mean of the
+ * registers gives the estimate, with linear counting used for small cardinalities.
+ * The relative error is about {@code 1.04 / sqrt(2^PRECISION)}, i.e. 1.6%.
+ */
+public class HyperLogLog {
+    static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+
+    private final byte[] registers = new byte[REGISTER_COUNT];
+
+    /**
+     * Adds a value to the stream.
+     *
+     * @param value The value.
+     */
+    public void add(long value) {
+        long hash = Hashing.mix64(value);
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        // Leading zeros of the remaining bits, plus one; the sentinel bit bounds the run
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added.
+     *
+     * @return The estimated number of distinct values.
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.pow(2, -register);
+            if (register == 0) zeros++;
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+        double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros); // Linear counting
+        }
+        return Math.round(estimate);
+    }
+}
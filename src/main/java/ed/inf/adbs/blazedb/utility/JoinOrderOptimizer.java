@@ -0,0 +1,209 @@
+package ed.inf.adbs.blazedb.utility;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.*;
+
+/**
+ * JoinOrderOptimizer chooses the order in which the Planner joins the tables of a query.
+ * Plans are left-deep: every join probes with the tables joined so far and builds on the
+ * joined table, so the order also decides the build and probe sides.
+ * <p>
+ * The cost of a plan is the number of rows it reads, hashes and produces, estimated by a
+ * {@link CardinalityEstimator} from the conjuncts placed by {@link PredicatePushdown}.
+ * Up to {@code MAX_EXHAUSTIVE_TABLES} tables, the cheapest order is found by dynamic
+ * programming over the subsets of tables; larger joins are ordered greedily. The FROM order
+ * is kept unless the chosen order is clearly cheaper, so small queries produce their rows
+ * in the order of the FROM clause.
+ */
+public class JoinOrderOptimizer {
+    static final int MAX_EXHAUSTIVE_TABLES = 10;
+    static final double BUILD_COST = 2; // Cost of inserting a row in a hash table, relative to probing with one
+    static final double MIN_REORDER_COST = 10_000; // FROM order plans cheaper than this are kept
+    static final double MIN_REORDER_GAIN = 1.5; // Factor by which a reordered plan must be cheaper
+
+    private final List<String> tableOrder;
+    private final PredicatePushdown pushdown;
+    private final CardinalityEstimator estimator;
+    private final double[] tableRows; // Estimated rows of each table after its single-table conditions
+
+    /**
+     * Constructs an optimizer for the tables of a query.
+     *
+     * @param tableOrder The tables in FROM order.
+     * @param pushdown The placement of the WHERE conjuncts.
+     * @param estimator The cardinality estimator.
+     */
+    public JoinOrderOptimizer(List<String> tableOrder, PredicatePushdown pushdown, CardinalityEstimator estimator) {
+        this.tableOrder = tableOrder;
+        this.pushdown = pushdown;
+        this.estimator = estimator;
+        this.tableRows = new double[tableOrder.size()];
+        for (int i = 0; i < tableOrder.size(); i++) {
+            tableRows[i] = estimator.tableRows(tableOrder.get(i), pushdown.getTableConditions(tableOrder.get(i)));
+        }
+    }
+
+    /**
+     * Chooses the join order.
+     *
+     * @return The tables in join order.
+     */
+    public List<String> optimize() {
+        if (tableOrder.size() < 2) {
+            return tableOrder;
+        }
+
+        int[] best = tableOrder.size() <= MAX_EXHAUSTIVE_TABLES ? exhaustiveOrder() : greedyOrder();
+        int[] fromOrder = new int[tableOrder.size()];
+        for (int i = 0; i < fromOrder.length; i++) fromOrder[i] = i;
+
+        double fromCost = cost(fromOrder);
+        if (fromCost < MIN_REORDER_COST || cost(best) * MIN_REORDER_GAIN > fromCost) {
+            return tableOrder;
+        }
+
+        List<String> order = new ArrayList<>(best.length);
+        for (int table : best) order.add(tableOrder.get(table));
+        return order;
+    }
+
+    /**
+     * Estimates the cost of joining the tables in a given order.
+     *
+     * @param order The table positions, in join order.
+     * @return The estimated cost.
+     */
+    double cost(int[] order) {
+        double rows = tableRows[order[0]];
+        double cost = rows;
+        List<String> joined = new ArrayList<>(List.of(tableOrder.get(order[0])));
+        for (int i = 1; i < order.length; i++) {
+            double[] step = joinStep(joined, rows, order[i]);
+            cost += step[0];
+            rows = step[1];
+            joined.add(tableOrder.get(order[i]));
+        }
+        return cost;
+    }
+
+    /**
+     * Finds the cheapest left-deep order by dynamic programming over subsets of tables.
+     * Subsets are extended in FROM order and only strictly cheaper plans replace a
+     * previous one, so ties are resolved in favour of the FROM order.
+     */
+    private int[] exhaustiveOrder() {
+        int n = tableOrder.size();
+        double[] costs = new double[1 << n];
+        double[] rows = new double[1 << n];
+        int[][] orders = new int[1 << n][];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        for (int table = 0; table < n; table++) {
+            costs[1 << table] = tableRows[table];
+            rows[1 << table] = tableRows[table];
+            orders[1 << table] = new int[]{table};
+        }
+
+        for (int subset = 1; subset < (1 << n); subset++) {
+            if (orders[subset] == null) continue;
+            List<String> joined = tablesOf(orders[subset]);
+            for (int table = 0; table < n; table++) {
+                if ((subset & (1 << table)) != 0) continue;
+                double[] step = joinStep(joined, rows[subset], table);
+                int extended = subset | (1 << table);
+                if (costs[subset] + step[0] < costs[extended]) {
+                    costs[extended] = costs[subset] + step[0];
+                    rows[extended] = step[1];
+                    orders[extended] = Arrays.copyOf(orders[subset], orders[subset].length + 1);
+                    orders[extended][orders[subset].length] = table;
+                }
+            }
+        }
+        return orders[(1 << n) - 1];
+    }
+
+    /**
+     * Builds an order greedily: starts with the smallest table, then repeatedly joins the
+     * table whose join is the cheapest.
+     */
+    private int[] greedyOrder() {
+        int n = tableOrder.size();
+        boolean[] used = new boolean[n];
+        int[] order = new int[n];
+
+        int first = 0;
+        for (int table = 1; table < n; table++) {
+            if (tableRows[table] < tableRows[first]) first = table;
+        }
+        order[0] = first;
+        used[first] = true;
+        List<String> joined = new ArrayList<>(List.of(tableOrder.get(first)));
+        double rows = tableRows[first];
+
+        for (int i = 1; i < n; i++) {
+            int next = -1;
+            double[] nextStep = null;
+            for (int table = 0; table < n; table++) {
+                if (used[table]) continue;
+                double[] step = joinStep(joined, rows, table);
+                if (next < 0 || step[0] < nextStep[0]) {
+                    next = table;
+                    nextStep = step;
+                }
+            }
+            order[i] = next;
+            used[next] = true;
+            joined.add(tableOrder.get(next));
+            rows = nextStep[1];
+        }
+        return order;
+    }
+
+    /**
+     * Estimates the cost and output size of joining a table to the tables joined so far.
+     * A hash join probes with every left row and inserts every row of the joined table;
+     * a nested loop join without equality compares every pair of rows.
+     *
+     * @param joined The tables joined so far.
+     * @param leftRows The estimated number of rows joined so far.
+     * @param table The position of the joined table.
+     * @return The cost of the join step and the estimated number of rows it produces.
+     */
+    private double[] joinStep(List<String> joined, double leftRows, int table) {
+        String tableName = tableOrder.get(table);
+        List<Expression> conditions = pushdown.getJoinConditions(joined, tableName);
+        double rightRows = tableRows[table];
+        double outputRows = Math.max(1, leftRows * rightRows * estimator.selectivity(conditions));
+
+        double cost = hasEquiJoinKey(conditions, tableName)
+                ? leftRows + BUILD_COST * rightRows + outputRows
+                : leftRows * rightRows + outputRows;
+        return new double[]{cost, outputRows};
+    }
+
+    /**
+     * Checks whether a join condition equates a column of the joined table with a column of another table.
+     */
+    private static boolean hasEquiJoinKey(List<Expression> conditions, String tableName) {
+        for (Expression conjunct : conditions) {
+            if (conjunct instanceof EqualsTo
+                    && ((EqualsTo) conjunct).getLeftExpression() instanceof Column
+                    && ((EqualsTo) conjunct).getRightExpression() instanceof Column
+                    && PredicatePushdown.tablesOf(conjunct).contains(tableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the names of the tables at the given positions.
+     */
+    private List<String> tablesOf(int[] order) {
+        List<String> tables = new ArrayList<>(order.length);
+        for (int table : order) tables.add(tableOrder.get(table));
+        return tables;
+    }
+}
@@ -2,7 +2,10 @@ package ed.inf.adbs.blazedb.utility;
 
 import ed.inf.adbs.blazedb.Tuple;
 import lombok.Getter;
+import net.sf.jsqlparser.expression.AllValue;
 import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NullValue;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
@@ -26,14 +29,23 @@ public class Parser {
     private List<String> groupByColumns; // Stores GROUP BY column names
     private List<String> tableOrder; // Stores the order of tables as they appear in FROM and JOINs
     private Boolean isDistinct; // Indicates whether the DISTINCT keyword is present in the query
+    private Long limit; // Maximum number of rows returned (LIMIT), null if unlimited
+    private long offset; // Number of leading rows skipped (OFFSET), 0 if absent
 
+    /**
+     * Parses the SQL query of a file. Errors in the query are printed, except an invalid
+     * LIMIT or OFFSET row count, which is only checked once the rest of the query is parsed.
+     * @param filename The file holding the query.
+     * @throws IllegalArgumentException If a LIMIT or OFFSET row count is not a non-negative integer constant.
+     */
     public Parser(String filename) {
+        PlainSelect plainSelect = null;
         try {
             // Parse the SQL query from the file using JSQLParser
             Statement statement = CCJSqlParserUtil.parse(new FileReader(filename));
             if (statement instanceof Select) {
                 Select select = (Select) statement;
-                PlainSelect plainSelect = (PlainSelect) select.getPlainSelect(); // Extract the main query structure
+                plainSelect = (PlainSelect) select.getPlainSelect(); // Extract the main query structure
 
                 this.parsedSQL = select.toString(); // Store the parsed SQL string
                 this.selectItems = plainSelect.getSelectItems(); // Retrieve the SELECT clause elements
@@ -62,6 +74,46 @@ public class Parser {
             System.err.println("Exception occurred during parsing");
             e.printStackTrace();
         }
+
+        // Outside the try block: an invalid row count reaches the caller instead of leaving the parser half-built
+        if (plainSelect != null) {
+            extractLimitAndOffset(plainSelect);
+        }
+    }
+
+    /**
+     * Extracts the LIMIT and OFFSET row counts, in either the `LIMIT n OFFSET m` or the `LIMIT m, n` form.
+     * `LIMIT ALL` and `LIMIT NULL` are treated as no limit.
+     * @param plainSelect The parsed SELECT statement.
+     * @throws IllegalArgumentException If a row count is not a non-negative integer constant.
+     */
+    private void extractLimitAndOffset(PlainSelect plainSelect) {
+        Limit limitClause = plainSelect.getLimit();
+        if (limitClause != null) {
+            Expression rowCount = limitClause.getRowCount();
+            if (rowCount != null && !(rowCount instanceof AllValue) && !(rowCount instanceof NullValue)) {
+                this.limit = parseRowCount(rowCount);
+            }
+            if (limitClause.getOffset() != null) {
+                this.offset = parseRowCount(limitClause.getOffset());
+            }
+        }
+        if (plainSelect.getOffset() != null) {
+            this.offset = parseRowCount(plainSelect.getOffset().getOffset());
+        }
+    }
+
+    /**
+     * Parses a LIMIT or OFFSET row count.
+     * @param expression The row count expression.
+     * @return The row count.
+     * @throws IllegalArgumentException If the expression is not a non-negative integer constant.
+     */
+    private static long parseRowCount(Expression expression) {
+        if (!(expression instanceof LongValue) || ((LongValue) expression).getValue() < 0) {
+            throw new IllegalArgumentException("Invalid row count: " + expression);
+        }
+        return ((LongValue) expression).getValue();
     }
 
     /**
@@ -105,8 +157,8 @@ public class Parser {
 
         // Create an instance of ExpressionEvaluator to analyze the WHERE clause
         ExpressionEvaluator evaluator = new ExpressionEvaluator(
-                List.of(new String[] { "" }), // Empty dummy input
-                new Tuple(new String[] { "" }) // Empty tuple input
+                new Schema(List.of()), // Empty dummy input
+                new Tuple(new long[0]) // Empty tuple input
         );
 
         if (whereClause != null) {
@@ -132,6 +184,7 @@ public class Parser {
         System.out.println("WHERE:\t\t " + (whereClause != null ? whereClause : "") ); // WHERE clause details
         System.out.println("ORDER BY:\t " + (orderByElements != null ? orderByElements : "")); // ORDER BY details
         System.out.println("GROUP BY:\t " + (groupByColumns != null ? groupByColumns : "")); // GROUP BY details
+        System.out.println("LIMIT:\t\t " + (limit != null ? limit : "") + (offset > 0 ? " OFFSET " + offset : "")); // LIMIT and OFFSET
         System.out.println("T:\t\t " + nonJoinConditions); // Non-join conditions in WHERE
     }
 }
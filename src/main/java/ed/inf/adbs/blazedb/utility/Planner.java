@@ -1,25 +1,38 @@
 package ed.inf.adbs.blazedb.utility;
 
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import ed.inf.adbs.blazedb.ExecutionConfig;
 import ed.inf.adbs.blazedb.operator.*;
 
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
 import java.io.IOException;
-import java.util.List;
+import java.util.*;
+
+import static ed.inf.adbs.blazedb.Helper.conjunction;
 
 /**
- * The Planner class constructs a query execution plan from a parsed SQL query.
+ * The Planner class constructs a query execution plan from a bound SQL query.
  * It builds an operator tree, starting with scan operations and progressively
- * applying selection, joins, aggregation, projection, sorting, and distinct operators.
+ * applying selection, joins, aggregation, projection, sorting, distinct and limit operators.
+ * Each operator resolves its column references against the schema of its children
+ * when it is built.
  */
 public class Planner {
+    private static final double MAX_INDEX_SELECTIVITY = 0.1; // Largest fraction of rows read through an index
+    private final BoundQuery query;
     private final Parser parser;
 
     /**
-     * Constructs a Planner with a given SQL parser.
+     * Constructs a Planner for a bound query.
      *
-     * @param parser The parsed SQL query representation.
+     * @param query The query, bound by the {@link Binder}.
      */
-    public Planner(Parser parser) {
-        this.parser = parser;
+    public Planner(BoundQuery query) {
+        this.query = query;
+        this.parser = query.getParser();
     }
 
     /**
@@ -30,30 +43,62 @@ public class Planner {
      */
     public Operator buildQueryPlan() throws IOException {
         Operator rootOperator = createBaseOperators();
+        boolean aggregate = parser.getGroupByColumns() != null || !parser.getSumColumns().isEmpty();
+        boolean distinct = parser.getIsDistinct() && !hasUniqueRows();
+        Long limit = parser.getLimit();
+        long offset = parser.getOffset();
 
-        // ✅ Apply ORDER BY if present
+        // ✅ Apply ORDER BY if present; with a LIMIT applying right to the sorted rows, keep only the top rows
+        boolean topN = false;
         if (parser.getOrderByElements() != null) {
-            rootOperator = new SortOperator(rootOperator, parser);
+            topN = limit != null && !aggregate && !distinct
+                    && limit <= ExecutionConfig.getInstance().getSortBufferSize() - offset; // limit + offset may overflow
+            rootOperator = topN
+                    ? new TopNOperator(rootOperator, parser, limit, offset)
+                    : new SortOperator(rootOperator, parser);
         }
 
         // ✅ Apply GROUP BY + SUM, or fallback to Projection
-        if (parser.getGroupByColumns() != null || !parser.getSumColumns().isEmpty()) {
+        if (aggregate) {
             rootOperator = new SumOperator(rootOperator, parser);
         } else {
             rootOperator = new ProjectOperator(rootOperator, parser);
         }
 
-        // ✅ Apply DISTINCT if required
-        if (parser.getIsDistinct()) {
+        // ✅ Apply DISTINCT if required, unless the rows are already unique
+        if (distinct) {
             rootOperator = new DistinctOperator(rootOperator);
         }
 
+        // ✅ Apply LIMIT / OFFSET, unless already applied by the Top-N operator
+        if ((limit != null || offset > 0) && !topN) {
+            rootOperator = new LimitOperator(rootOperator, limit != null ? limit : Long.MAX_VALUE, offset);
+        }
+
         return rootOperator;
     }
 
+    /**
+     * Determines whether the query provably produces no duplicate rows, so that DISTINCT
+     * can be skipped. This holds for aggregations selecting every GROUP BY column, since
+     * each group is output once, and for aggregations without GROUP BY, which output a single row.
+     *
+     * @return True if the output rows are unique.
+     */
+    private boolean hasUniqueRows() {
+        if (parser.getGroupByColumns() == null) {
+            return !parser.getSumColumns().isEmpty();
+        }
+        return parser.getSelectColumns().containsAll(parser.getGroupByColumns());
+    }
+
     /**
      * Creates the base operators for the query plan, including scanning,
-     * filtering (selection), and joins.
+     * filtering (selection), and joins. Tables are joined in the order chosen by the
+     * {@link JoinOrderOptimizer}. Every WHERE conjunct, including those derived
+     * from column equalities, is evaluated by the lowest operator that sees all of its
+     * columns: right above the scan for single-table conjuncts, otherwise at the first
+     * join covering its tables.
      *
      * @return The root {@code Operator} for the base query structure.
      * @throws IOException If an error occurs while accessing database files.
@@ -65,28 +110,326 @@ public class Planner {
             throw new IllegalStateException("No tables found in query.");
         }
 
-        // ✅ Create ScanOperator for the main table
-        String mainTable = tableOrder.get(0);
-        Operator rootOperator = new ScanOperator(mainTable);
+        PredicatePushdown pushdown = new PredicatePushdown(parser.getWhereClause());
+        CardinalityEstimator estimator = new CardinalityEstimator(DatabaseCatalog.getInstance());
+        List<String> joinOrder = new JoinOrderOptimizer(tableOrder, pushdown, estimator).optimize();
 
-        // ✅ Apply Selection (WHERE conditions) for the main table if applicable
-        if (parser.getNonJoinConditions().contains(mainTable)) {
-            rootOperator = new SelectOperator(rootOperator, parser, List.of(mainTable));
-        }
+        // ✅ Plan the semi-join filters carrying the keys of each hash join's build side to the probed scans
+        Map<String, List<SemiJoinFilter>> probeFilters = new HashMap<>();
+        Map<String, List<SemiJoinFilter>> buildFilters = new HashMap<>();
+        planSemiJoinFilters(joinOrder, pushdown, estimator, probeFilters, buildFilters);
 
-        // ✅ Apply Joins if there are multiple tables in the query
-        for (int i = 1; i < tableOrder.size(); i++) {
-            String joinTable = tableOrder.get(i);
-            Operator joinScan = new ScanOperator(joinTable);
+        // ✅ Create the selected scan of the main table
+        Set<String> joinColumns = pushdown.getJoinColumns();
+        ExecutionConfig config = ExecutionConfig.getInstance();
+        String mainTable = joinOrder.get(0);
+        Operator rootOperator = createFilteredScan(mainTable, pushdown.getTableConditions(mainTable), joinColumns,
+                probeFilters.getOrDefault(mainTable, List.of()));
+        List<String> joinedTables = new ArrayList<>(List.of(mainTable));
 
-            // ✅ Apply Selection for the joined table before performing the join
-            if (parser.getNonJoinConditions().contains(joinTable)) {
-                joinScan = new SelectOperator(joinScan, parser, List.of(joinTable));
+        // ✅ Apply Joins if there are multiple tables in the query
+        for (int i = 1; i < joinOrder.size(); i++) {
+            String joinTable = joinOrder.get(i);
+            Operator joinScan = createFilteredScan(joinTable, pushdown.getTableConditions(joinTable), joinColumns,
+                    probeFilters.getOrDefault(joinTable, List.of()));
+            if (buildFilters.containsKey(joinTable)) {
+                joinScan = new SemiJoinBuildOperator(joinScan, buildFilters.get(joinTable));
             }
+            List<Expression> joinConditions = pushdown.getJoinConditions(joinedTables, joinTable);
+
+            // ✅ Use a hash join when an equality links the joined table to the previous ones,
+            // otherwise a block nested loop join that does not rescan the joined table per row
+            List<Integer> leftKeyIndices = new ArrayList<>();
+            List<Integer> rightKeyIndices = new ArrayList<>();
+            List<Expression> residual = extractEquiJoinKeys(joinConditions, rootOperator.getSchema(),
+                    joinScan.getSchema(), leftKeyIndices, rightKeyIndices);
+            double buildRows = estimator.tableRows(joinTable, pushdown.getTableConditions(joinTable));
 
-            rootOperator = new JoinOperator(rootOperator, joinScan, parser);
+            if (leftKeyIndices.isEmpty()) {
+                rootOperator = new BlockNestedLoopJoinOperator(rootOperator, joinScan, conjunction(joinConditions));
+            } else if (!isHashJoin(buildRows)) {
+                // ✅ Too large to hash in memory: sort both sides, spilling if needed, and merge
+                rootOperator = new SortMergeJoinOperator(rootOperator, joinScan, leftKeyIndices, rightKeyIndices,
+                        conjunction(residual));
+            } else if (buildRows >= config.getRadixJoinRows()) {
+                // ✅ Too large for a hash table to stay in cache: join cache-sized partitions
+                rootOperator = new RadixJoinOperator(rootOperator, joinScan, leftKeyIndices, rightKeyIndices,
+                        conjunction(residual));
+            } else if (config.getParallelism() > 1) {
+                // ✅ Build and probe the hash table with the worker threads
+                rootOperator = new ParallelHashJoinOperator(rootOperator, joinScan, leftKeyIndices, rightKeyIndices,
+                        conjunction(residual));
+            } else {
+                rootOperator = new HashJoinOperator(rootOperator, joinScan, leftKeyIndices, rightKeyIndices,
+                        conjunction(residual));
+            }
+            joinedTables.add(joinTable);
         }
 
+        // ✅ Restore the FROM order column layout expected by SELECT *
+        if (!joinOrder.equals(tableOrder)) {
+            List<String> columns = new ArrayList<>();
+            for (String column : query.getSchema().getColumns()) {
+                if (rootOperator.getSchema().indexOf(column) >= 0) columns.add(column);
+            }
+            rootOperator = new ProjectOperator(rootOperator, new Schema(columns));
+        }
         return rootOperator;
     }
+
+    /**
+     * Creates the scan of a table followed by a selection on its single-table conditions and
+     * by a projection dropping the columns no operator above needs, i.e. those used neither
+     * outside the WHERE clause nor by a join condition. A plain scan of a table spanning
+     * several morsels runs in parallel when the configured parallelism allows it, each worker
+     * running its own selection and projection.
+     *
+     * @param tableName The name of the table to scan.
+     * @param conditions The conjuncts referring only to this table.
+     * @param joinColumns The columns referred to by join conditions.
+     * @param semiJoinFilters The semi-join filters probing this table.
+     * @return The scan operator, topped by a {@code SelectOperator} if there are conditions,
+     *         a {@code SemiJoinFilterOperator} if there are semi-join filters and a
+     *         {@code ProjectOperator} if columns can be dropped.
+     * @throws IOException If an error occurs while accessing the table file.
+     */
+    private Operator createFilteredScan(String tableName, List<Expression> conditions, Set<String> joinColumns,
+                                        List<SemiJoinFilter> semiJoinFilters) throws IOException {
+        Schema tableSchema = query.getTableSchemas().get(tableName);
+        Set<Integer> neededColumns = new TreeSet<>(query.getOutputColumns().get(tableName));
+        for (int column = 0; column < tableSchema.size(); column++) {
+            if (joinColumns.contains(tableSchema.getColumns().get(column))) neededColumns.add(column);
+        }
+        Schema outputSchema = neededColumns.size() < tableSchema.size()
+                ? tableSchema.project(neededColumns.stream().mapToInt(Integer::intValue).toArray())
+                : null;
+
+        Operator scan = createScanOperator(tableName, conditions);
+        if (scan instanceof ScanOperator && isParallelScan(tableName, (ScanOperator) scan)) {
+            return new ParallelScanOperator(tableName,
+                    source -> filterAndProject(source, conditions, semiJoinFilters, outputSchema));
+        }
+        return filterAndProject(scan, conditions, semiJoinFilters, outputSchema);
+    }
+
+    /**
+     * Tops a scan with a selection on its conditions, its semi-join filters and a projection
+     * to the needed columns.
+     *
+     * @param scan The scan operator.
+     * @param conditions The conjuncts referring only to the scanned table.
+     * @param semiJoinFilters The semi-join filters probing the scanned table.
+     * @param outputSchema The columns kept, or null to keep every column.
+     * @return The topped operator.
+     */
+    private static Operator filterAndProject(Operator scan, List<Expression> conditions,
+                                             List<SemiJoinFilter> semiJoinFilters, Schema outputSchema) {
+        Operator operator = scan;
+        if (!conditions.isEmpty()) {
+            operator = new SelectOperator(operator, conjunction(conditions));
+        }
+        if (!semiJoinFilters.isEmpty()) {
+            operator = new SemiJoinFilterOperator(operator, semiJoinFilters);
+        }
+        if (outputSchema != null) {
+            operator = new ProjectOperator(operator, outputSchema);
+        }
+        return operator;
+    }
+
+    /**
+     * Plans a semi-join filter for every column equality between a table joined by a hash
+     * join and a table joined before it. The join's build side publishes its keys once read,
+     * and the scan of the other table drops the rows whose value is not among them, since
+     * they cannot produce a joined row. Joins read no input before their first row is pulled,
+     * and then read their build side before their left input, which holds every earlier table;
+     * each filter is thus published before the scan it applies to is read. A filter
+     * is only planned when the build side is estimated smaller than the probed table, as a
+     * build side at least as large rarely rejects enough rows to pay for its filter.
+     *
+     * @param joinOrder The tables in join order.
+     * @param pushdown The WHERE conjuncts, split by the tables they refer to.
+     * @param estimator The estimator of the build side sizes.
+     * @param probeFilters Output map receiving the filters applied to the scan of each table.
+     * @param buildFilters Output map receiving the filters published by the build side of each joined table.
+     */
+    private void planSemiJoinFilters(List<String> joinOrder,
+                                     PredicatePushdown pushdown,
+                                     CardinalityEstimator estimator,
+                                     Map<String, List<SemiJoinFilter>> probeFilters,
+                                     Map<String, List<SemiJoinFilter>> buildFilters) {
+        for (int i = 1; i < joinOrder.size(); i++) {
+            String joinTable = joinOrder.get(i);
+            double buildRows = estimator.tableRows(joinTable, pushdown.getTableConditions(joinTable));
+            if (!isHashJoin(buildRows)) continue;
+
+            List<String> leftTables = joinOrder.subList(0, i);
+            Schema joinSchema = query.getTableSchemas().get(joinTable);
+            for (Expression conjunct : pushdown.getJoinConditions(leftTables, joinTable)) {
+                if (!(conjunct instanceof EqualsTo)) continue;
+                EqualsTo equalsTo = (EqualsTo) conjunct;
+                if (!(equalsTo.getLeftExpression() instanceof Column) || !(equalsTo.getRightExpression() instanceof Column)) {
+                    continue;
+                }
+
+                String probeColumn = ((Column) equalsTo.getLeftExpression()).getFullyQualifiedName();
+                String buildColumn = ((Column) equalsTo.getRightExpression()).getFullyQualifiedName();
+                if (joinSchema.indexOf(probeColumn) >= 0) {
+                    String swap = probeColumn;
+                    probeColumn = buildColumn;
+                    buildColumn = swap;
+                }
+                if (joinSchema.indexOf(buildColumn) < 0) continue;
+
+                // ✅ Only worth it when the build side has fewer keys than the probed table has rows
+                for (String probeTable : leftTables) {
+                    if (query.getTableSchemas().get(probeTable).indexOf(probeColumn) >= 0
+                            && buildRows < estimator.tableRows(probeTable, pushdown.getTableConditions(probeTable))) {
+                        SemiJoinFilter filter = new SemiJoinFilter(probeColumn, buildColumn);
+                        probeFilters.computeIfAbsent(probeTable, table -> new ArrayList<>()).add(filter);
+                        buildFilters.computeIfAbsent(joinTable, table -> new ArrayList<>()).add(filter);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether an equi-join is small enough to be a hash join, which reads its whole
+     * build side into memory, rather than a sort-merge join.
+     *
+     * @param buildRows The estimated number of rows of the joined table.
+     * @return True if the join is a hash join.
+     */
+    private static boolean isHashJoin(double buildRows) {
+        return buildRows <= ExecutionConfig.getInstance().getHashJoinBuildLimit();
+    }
+
+    /**
+     * Determines whether a scan is better run in parallel: it reads every row of a
+     * memory-mapped table file spanning at least two morsels, and more than one worker thread is configured.
+     *
+     * @param tableName The name of the scanned table.
+     * @param scan The scan chosen for the table.
+     * @return True if the table should be scanned by a {@code ParallelScanOperator}.
+     */
+    private static boolean isParallelScan(String tableName, ScanOperator scan) {
+        ExecutionConfig config = ExecutionConfig.getInstance();
+        long size = DatabaseCatalog.getInstance().getTableFile(tableName).length();
+        return config.getParallelism() > 1 && config.isMemoryMappedScan() && !scan.isZoneMapped()
+                && size >= 2L * ParallelScanOperator.DEFAULT_MORSEL_SIZE && size <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates the scan operator for a table. Tables with an up-to-date columnar file are
+     * read with a {@code ColumnarScanOperator} restricted to the columns the query references.
+     * If the table has single-table conditions and an up-to-date zone map, the scan skips
+     * the blocks that cannot satisfy them. Selective conditions on an indexed column are
+     * answered with an {@code IndexScanOperator} instead.
+     *
+     * @param tableName The name of the table to scan.
+     * @param conditions The conjuncts referring only to this table.
+     * @return The scan operator.
+     * @throws IOException If an error occurs while accessing the table file.
+     */
+    private Operator createScanOperator(String tableName, List<Expression> conditions) throws IOException {
+        DatabaseCatalog catalog = DatabaseCatalog.getInstance();
+        ZoneMap zoneMap = null;
+        ColumnBounds bounds = null;
+        if (!conditions.isEmpty()) {
+            bounds = ColumnBounds.fromWhereClause(conjunction(conditions), tableName, catalog.getTableSchema(tableName));
+            zoneMap = bounds.isRestricted() ? catalog.getZoneMap(tableName) : null;
+
+            Operator indexScan = createIndexScanOperator(tableName, bounds);
+            if (indexScan != null) {
+                return indexScan;
+            }
+        }
+
+        if (catalog.getColumnarFile(tableName) != null) {
+            return new ColumnarScanOperator(tableName, query.getReferencedColumns().get(tableName), zoneMap, bounds);
+        }
+        return new ScanOperator(tableName, zoneMap, bounds);
+    }
+
+    /**
+     * Creates an index scan over the indexed column whose bounds match the fewest rows,
+     * provided that it matches at most {@code MAX_INDEX_SELECTIVITY} of the table.
+     *
+     * @param tableName The name of the table to scan.
+     * @param bounds The column bounds derived from the WHERE clause.
+     * @return The index scan operator, or null if no index is worth using.
+     * @throws IOException If an error occurs while accessing the index or table file.
+     */
+    private Operator createIndexScanOperator(String tableName, ColumnBounds bounds) throws IOException {
+        DatabaseCatalog catalog = DatabaseCatalog.getInstance();
+        List<String> schema = catalog.getTableSchema(tableName);
+        BPlusTreeIndex bestIndex = null;
+        long bestCount = Long.MAX_VALUE;
+
+        for (int column = 0; column < schema.size(); column++) {
+            if (!bounds.isRestricted(column)) continue;
+            BPlusTreeIndex index = catalog.getIndex(tableName, schema.get(column));
+            if (index == null) continue;
+
+            long count = index.countRange(bounds.getLower(column), bounds.getUpper(column));
+            if (count <= index.getEntryCount() * MAX_INDEX_SELECTIVITY && count < bestCount) {
+                bestIndex = index;
+                bestCount = count;
+            }
+        }
+
+        if (bestIndex == null) {
+            return null;
+        }
+        int column = bestIndex.getColumn();
+        return new IndexScanOperator(tableName, bestIndex, bounds.getLower(column), bounds.getUpper(column));
+    }
+
+    /**
+     * Collects the column-to-column equality conditions among a join's conjuncts that link
+     * the joined table to the tables already on the left side of the join.
+     *
+     * @param joinConditions The conjuncts evaluated by the join.
+     * @param leftSchema The schema of the tuples already joined.
+     * @param rightSchema The schema of the joined table's tuples.
+     * @param leftKeyIndices Output list receiving the key indices within the left tuples.
+     * @param rightKeyIndices Output list receiving the key indices within the joined table's tuples.
+     * @return The conjuncts that are not used as join keys.
+     */
+    private List<Expression> extractEquiJoinKeys(List<Expression> joinConditions,
+                                                 Schema leftSchema,
+                                                 Schema rightSchema,
+                                                 List<Integer> leftKeyIndices,
+                                                 List<Integer> rightKeyIndices) {
+        List<Expression> residual = new ArrayList<>();
+        for (Expression conjunct : joinConditions) {
+            if (!(conjunct instanceof EqualsTo)) {
+                residual.add(conjunct);
+                continue;
+            }
+
+            EqualsTo equalsTo = (EqualsTo) conjunct;
+            if (!(equalsTo.getLeftExpression() instanceof Column) || !(equalsTo.getRightExpression() instanceof Column)) {
+                residual.add(conjunct);
+                continue;
+            }
+
+            String leftColumn = ((Column) equalsTo.getLeftExpression()).getFullyQualifiedName();
+            String rightColumn = ((Column) equalsTo.getRightExpression()).getFullyQualifiedName();
+            if (rightSchema.indexOf(leftColumn) >= 0) {
+                String swap = leftColumn;
+                leftColumn = rightColumn;
+                rightColumn = swap;
+            }
+
+            if (leftSchema.indexOf(leftColumn) >= 0 && rightSchema.indexOf(rightColumn) >= 0) {
+                leftKeyIndices.add(leftSchema.indexOf(leftColumn));
+                rightKeyIndices.add(rightSchema.indexOf(rightColumn));
+            } else {
+                residual.add(conjunct);
+            }
+        }
+        return residual;
+    }
 }
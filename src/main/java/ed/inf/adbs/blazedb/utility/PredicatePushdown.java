@@ -0,0 +1,243 @@
+package ed.inf.adbs.blazedb.utility;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.*;
+
+import static ed.inf.adbs.blazedb.Helper.getConjuncts;
+
+/**
+ * PredicatePushdown splits a WHERE clause into conjuncts and tells the Planner where each
+ * one belongs: single-table conjuncts go right above the scan of their table, and the other
+ * conjuncts go to the lowest join whose inputs cover their tables.
+ * <p>
+ * Conjuncts implied by column equalities are derived first, so that filters reach as many
+ * scans as possible: from {@code A.x = B.y AND B.y = C.z} it derives {@code A.x = C.z}, and from
+ * {@code A.x = B.y AND B.y > 5} it derives {@code A.x > 5}. Derived conjuncts only ever
+ * remove rows that the original WHERE clause removes too.
+ */
+public class PredicatePushdown {
+    private final List<Expression> conjuncts; // WHERE conjuncts followed by the derived ones
+    private final List<Set<String>> conjunctTables; // Tables referred to by each conjunct
+
+    /**
+     * Splits a WHERE clause and derives the conjuncts implied by its column equalities.
+     *
+     * @param whereClause The WHERE clause, may be null.
+     */
+    public PredicatePushdown(Expression whereClause) {
+        this.conjuncts = new ArrayList<>(getConjuncts(whereClause));
+        conjuncts.addAll(deriveTransitiveConjuncts(conjuncts));
+        this.conjunctTables = new ArrayList<>();
+        for (Expression conjunct : conjuncts) {
+            conjunctTables.add(tablesOf(conjunct));
+        }
+    }
+
+    /**
+     * Returns the conjuncts that only refer to a single table. Conjuncts without any column
+     * are returned for every table.
+     *
+     * @param tableName The name of the table.
+     * @return The conjuncts to evaluate right above the scan of the table.
+     */
+    public List<Expression> getTableConditions(String tableName) {
+        List<Expression> conditions = new ArrayList<>();
+        for (int i = 0; i < conjuncts.size(); i++) {
+            Set<String> tables = conjunctTables.get(i);
+            if (tables.isEmpty() || tables.equals(Set.of(tableName))) {
+                conditions.add(conjuncts.get(i));
+            }
+        }
+        return conditions;
+    }
+
+    /**
+     * Returns the conjuncts to evaluate when a table is joined to tables already joined:
+     * those covered by the join but neither by its left input nor by the joined table alone.
+     *
+     * @param leftTables The tables already joined.
+     * @param joinTable The table being joined.
+     * @return The conjuncts to evaluate at the join.
+     */
+    public List<Expression> getJoinConditions(Collection<String> leftTables, String joinTable) {
+        Set<String> joinedTables = new HashSet<>(leftTables);
+        joinedTables.add(joinTable);
+
+        List<Expression> conditions = new ArrayList<>();
+        for (int i = 0; i < conjuncts.size(); i++) {
+            Set<String> tables = conjunctTables.get(i);
+            if (joinedTables.containsAll(tables) && !leftTables.containsAll(tables)
+                    && !tables.equals(Set.of(joinTable))) {
+                conditions.add(conjuncts.get(i));
+            }
+        }
+        return conditions;
+    }
+
+    /**
+     * Returns the columns referred to by conjuncts evaluated at joins, which must therefore
+     * be kept in the tuples flowing out of the selected scans.
+     *
+     * @return The qualified names of the columns.
+     */
+    public Set<String> getJoinColumns() {
+        Set<String> columns = new HashSet<>();
+        for (int i = 0; i < conjuncts.size(); i++) {
+            if (conjunctTables.get(i).size() < 2) continue;
+            conjuncts.get(i).accept(new ExpressionVisitorAdapter() {
+                @Override
+                public void visit(Column column) {
+                    columns.add(column.getFullyQualifiedName());
+                }
+            });
+        }
+        return columns;
+    }
+
+    /**
+     * Collects the tables referred to by an expression.
+     *
+     * @param expression The expression.
+     * @return The names of the tables of its columns.
+     */
+    public static Set<String> tablesOf(Expression expression) {
+        Set<String> tables = new HashSet<>();
+        expression.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                if (column.getTable() != null && column.getTable().getName() != null) {
+                    tables.add(column.getTable().getName());
+                }
+            }
+        });
+        return tables;
+    }
+
+    /**
+     * Derives the conjuncts implied by the column equalities among the given conjuncts.
+     * Columns linked by equalities form equivalence classes; every pair of columns of a class
+     * is equal, and every comparison of a column with a constant holds for the whole class.
+     *
+     * @param conjuncts The WHERE conjuncts.
+     * @return The derived conjuncts that are not already present.
+     */
+    private static List<Expression> deriveTransitiveConjuncts(List<Expression> conjuncts) {
+        Map<String, String> parents = new HashMap<>(); // Union-find over qualified column names
+        Map<String, Column> columns = new LinkedHashMap<>();
+        Set<String> present = new HashSet<>();
+        for (Expression conjunct : conjuncts) {
+            present.add(conjunct.toString());
+            if (conjunct instanceof EqualsTo && isColumn(((EqualsTo) conjunct).getLeftExpression())
+                    && isColumn(((EqualsTo) conjunct).getRightExpression())) {
+                Column left = (Column) ((EqualsTo) conjunct).getLeftExpression();
+                Column right = (Column) ((EqualsTo) conjunct).getRightExpression();
+                columns.putIfAbsent(left.getFullyQualifiedName(), left);
+                columns.putIfAbsent(right.getFullyQualifiedName(), right);
+                parents.put(find(parents, left.getFullyQualifiedName()), find(parents, right.getFullyQualifiedName()));
+            }
+        }
+
+        Map<String, List<Column>> classes = new LinkedHashMap<>();
+        for (Map.Entry<String, Column> entry : columns.entrySet()) {
+            classes.computeIfAbsent(find(parents, entry.getKey()), root -> new ArrayList<>()).add(entry.getValue());
+        }
+
+        List<Expression> derived = new ArrayList<>();
+        for (List<Column> equivalent : classes.values()) {
+            for (int i = 0; i < equivalent.size(); i++) {
+                for (int j = i + 1; j < equivalent.size(); j++) {
+                    addIfAbsent(derived, present, comparison(new EqualsTo(), equivalent.get(i), equivalent.get(j)),
+                            comparison(new EqualsTo(), equivalent.get(j), equivalent.get(i)));
+                }
+            }
+        }
+
+        for (Expression conjunct : conjuncts) {
+            if (!(conjunct instanceof ComparisonOperator)) continue;
+            BinaryExpression binaryExpr = (BinaryExpression) conjunct;
+            Expression left = binaryExpr.getLeftExpression();
+            Expression right = binaryExpr.getRightExpression();
+
+            Column column;
+            boolean columnOnLeft;
+            if (isColumn(left) && right instanceof LongValue) {
+                column = (Column) left;
+                columnOnLeft = true;
+            } else if (left instanceof LongValue && isColumn(right)) {
+                column = (Column) right;
+                columnOnLeft = false;
+            } else {
+                continue;
+            }
+            if (!columns.containsKey(column.getFullyQualifiedName())) continue;
+
+            String root = find(parents, column.getFullyQualifiedName());
+            for (Column other : classes.get(root)) {
+                if (other.getFullyQualifiedName().equals(column.getFullyQualifiedName())) continue;
+                BinaryExpression copy = newComparison(conjunct);
+                Expression derivedConjunct = columnOnLeft ? comparison(copy, other, right) : comparison(copy, left, other);
+                addIfAbsent(derived, present, derivedConjunct, null);
+            }
+        }
+        return derived;
+    }
+
+    /**
+     * Finds the representative of a column's equivalence class.
+     */
+    private static String find(Map<String, String> parents, String column) {
+        String parent = parents.getOrDefault(column, column);
+        if (parent.equals(column)) {
+            return column;
+        }
+        String root = find(parents, parent);
+        parents.put(column, root);
+        return root;
+    }
+
+    /**
+     * Adds a derived conjunct unless it, or its mirrored form, is already present.
+     */
+    private static void addIfAbsent(List<Expression> derived, Set<String> present, Expression conjunct, Expression mirrored) {
+        if (present.contains(conjunct.toString()) || (mirrored != null && present.contains(mirrored.toString()))) {
+            return;
+        }
+        present.add(conjunct.toString());
+        derived.add(conjunct);
+    }
+
+    /**
+     * Fills in the operands of a comparison.
+     */
+    private static Expression comparison(BinaryExpression comparison, Expression left, Expression right) {
+        comparison.setLeftExpression(left);
+        comparison.setRightExpression(right);
+        return comparison;
+    }
+
+    /**
+     * Creates an empty comparison with the same operator as the given one.
+     */
+    private static BinaryExpression newComparison(Expression comparison) {
+        if (comparison instanceof EqualsTo) return new EqualsTo();
+        if (comparison instanceof NotEqualsTo) return new NotEqualsTo();
+        if (comparison instanceof GreaterThan) return new GreaterThan();
+        if (comparison instanceof GreaterThanEquals) return new GreaterThanEquals();
+        if (comparison instanceof MinorThan) return new MinorThan();
+        if (comparison instanceof MinorThanEquals) return new MinorThanEquals();
+        throw new IllegalArgumentException("Unsupported comparison: " + comparison);
+    }
+
+    /**
+     * Checks whether an expression is a qualified column reference.
+     */
+    private static boolean isColumn(Expression expression) {
+        return expression instanceof Column && ((Column) expression).getTable() != null;
+    }
+}
@@ -0,0 +1,146 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.DatabaseCatalog;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Schema describes the layout of the tuples produced by an operator: the qualified name
+ * (e.g. Student.A) of the column at each position. Operators resolve the columns they use
+ * against the schema of their child once, when they are built, so no name lookup happens
+ * while tuples are processed.
+ */
+public class Schema {
+    @Getter
+    private final List<String> columns; // Qualified column names, in tuple order
+    private final Map<String, Integer> offsets; // Qualified column name -> position
+
+    /**
+     * Constructs a schema from qualified column names.
+     *
+     * @param columns The qualified column names, in tuple order.
+     */
+    public Schema(List<String> columns) {
+        this.columns = List.copyOf(columns);
+        this.offsets = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            offsets.putIfAbsent(columns.get(i), i);
+        }
+    }
+
+    /**
+     * Builds the schema of the tuples of a table, as produced by a scan.
+     *
+     * @param tableName The name of the table.
+     * @return The schema of the table.
+     * @throws IllegalArgumentException If the table does not exist.
+     */
+    public static Schema forTable(String tableName) {
+        List<String> tableSchema = DatabaseCatalog.getInstance().getTableSchema(tableName);
+        if (tableSchema == null) {
+            throw new IllegalArgumentException("Table not found in schema: " + tableName);
+        }
+
+        List<String> columns = new ArrayList<>(tableSchema.size());
+        for (String column : tableSchema) {
+            columns.add(tableName + "." + column);
+        }
+        return new Schema(columns);
+    }
+
+    /**
+     * Builds the schema of the tuples obtained by joining tables in the given order.
+     *
+     * @param tableNames The names of the tables, in join order.
+     * @return The concatenated schema of the tables.
+     * @throws IllegalArgumentException If a table does not exist.
+     */
+    public static Schema forTables(List<String> tableNames) {
+        Schema schema = new Schema(List.of());
+        for (String tableName : tableNames) {
+            schema = schema.concat(forTable(tableName));
+        }
+        return schema;
+    }
+
+    /**
+     * Returns the schema of the tuples obtained by appending the columns of another schema.
+     *
+     * @param other The schema of the right-hand tuples.
+     * @return The concatenated schema.
+     */
+    public Schema concat(Schema other) {
+        List<String> concatenated = new ArrayList<>(columns);
+        concatenated.addAll(other.columns);
+        return new Schema(concatenated);
+    }
+
+    /**
+     * Returns the schema of the tuples made of the given columns of this schema.
+     *
+     * @param indices The positions of the kept columns, in output order.
+     * @return The projected schema.
+     */
+    public Schema project(int[] indices) {
+        List<String> projected = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            projected.add(columns.get(index));
+        }
+        return new Schema(projected);
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The tuple width.
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * Finds the position of a column.
+     *
+     * @param qualifiedName The qualified column name, e.g. Student.A.
+     * @return The position of the column, or -1 if it is not part of the schema.
+     */
+    public int indexOf(String qualifiedName) {
+        return offsets.getOrDefault(qualifiedName, -1);
+    }
+
+    /**
+     * Finds the position of a column that must be part of the schema.
+     *
+     * @param qualifiedName The qualified column name, e.g. Student.A.
+     * @return The position of the column.
+     * @throws IllegalArgumentException If the column is not part of the schema.
+     */
+    public int resolve(String qualifiedName) {
+        int index = indexOf(qualifiedName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Column not found in schema: " + qualifiedName);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the positions of every column of a table.
+     *
+     * @param tableName The name of the table.
+     * @return The positions of the table's columns, in order; empty if the table is not part of the schema.
+     */
+    public int[] tableColumns(String tableName) {
+        String prefix = tableName + ".";
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).startsWith(prefix)) indices.add(i);
+        }
+        return indices.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public String toString() {
+        return columns.toString();
+    }
+}
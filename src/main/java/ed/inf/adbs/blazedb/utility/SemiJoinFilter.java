@@ -0,0 +1,66 @@
+package ed.inf.adbs.blazedb.utility;
+
+/**
+ * SemiJoinFilter carries the join keys of the build side of a hash join down to the scan of
+ * a table on its probe side. It links a join key column of the build side with the column of
+ * the probed table it is compared with. Once the build side has been read, the filter holds a
+ * {@link BloomFilter} of its keys, and probe rows whose column value is not in it are dropped
+ * right after the scan, since they cannot have a match.
+ * <p>
+ * In a query plan, joins read their build side before their left input, so the filter is
+ * published before the probed table is scanned. Used on its own, it may be published while the
+ * table is being scanned, possibly by several worker threads: rows scanned before it is
+ * published are simply not filtered.
+ */
+public class SemiJoinFilter {
+    private final String probeColumn; // Qualified name of the probed table's column
+    private final String buildColumn; // Qualified name of the build side's join key column
+    private volatile BloomFilter keys; // Null until the build side has been read entirely
+
+    /**
+     * Constructs a filter, not published yet.
+     *
+     * @param probeColumn The qualified name of the probed table's column.
+     * @param buildColumn The qualified name of the build side's join key column.
+     */
+    public SemiJoinFilter(String probeColumn, String buildColumn) {
+        this.probeColumn = probeColumn;
+        this.buildColumn = buildColumn;
+    }
+
+    /**
+     * Returns the column of the probed table the filter applies to.
+     *
+     * @return The qualified column name.
+     */
+    public String getProbeColumn() {
+        return probeColumn;
+    }
+
+    /**
+     * Returns the join key column of the build side whose values the filter holds.
+     *
+     * @return The qualified column name.
+     */
+    public String getBuildColumn() {
+        return buildColumn;
+    }
+
+    /**
+     * Returns the keys of the build side.
+     *
+     * @return The Bloom filter of the keys, or null if the build side has not been read yet.
+     */
+    public BloomFilter getKeys() {
+        return keys;
+    }
+
+    /**
+     * Publishes the keys of the build side, from which point probe rows are filtered.
+     *
+     * @param keys The Bloom filter of every key of the build side.
+     */
+    public void publish(BloomFilter keys) {
+        this.keys = keys;
+    }
+}
@@ -0,0 +1,466 @@
+package ed.inf.adbs.blazedb.utility;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * SpillingGroupTable aggregates rows into groups under a memory budget, and returns the groups
+ * in the order they are first seen. Groups are kept in a {@link GroupHashTable} until their
+ * number exceeds the budget; aggregation then continues as a grace hash aggregation: the groups
+ * aggregated so far and every following row are hash-partitioned to temporary files, and each
+ * partition is aggregated on its own (partitioned again if it still has too many groups).
+ * <p>
+ * Every record carries the input position at which its group was first seen; the aggregated
+ * partitions are written as runs ordered by that position and merged, so the groups are
+ * returned in the same order as if they had been aggregated in memory. Each run file is deleted
+ * as soon as the merge has read it to the end, so a spilled table cannot be rewound.
+ */
+public class SpillingGroupTable {
+    private static final int PARTITION_COUNT = 16;
+    private static final int MAX_PARTITION_DEPTH = 4; // Partitions this deep are aggregated whatever their size
+
+    private final int keyWidth;
+    private final int valueWidth;
+    private final int groupBudget; // Max groups held in memory
+    private final GroupHashTable groups; // Groups of the input, or of the partition being aggregated
+    private long[] firstSeen; // Input position at which each group of the table was first seen
+    private DataOutputStream[] partitions; // Streams of the top-level partitions, null unless spilling
+    private final List<File> partitionFiles; // Top-level partitions
+    private long spillPosition; // Input position of the row that made the table spill, -1 if none
+    private final List<File> runFiles; // Aggregated partitions, each ordered by first-seen position
+    private PriorityQueue<RunReader> mergeQueue; // Null unless the aggregation spilled
+    private RunReader currentRun; // Run holding the current group while merging
+    private int nextGroup; // Number of the next group to return from memory
+    private int currentGroup; // Number of the current group in memory
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param keyWidth The number of values of a group key.
+     * @param valueWidth The number of accumulators of a group.
+     * @param groupBudget The maximum number of groups kept in memory.
+     */
+    public SpillingGroupTable(int keyWidth, int valueWidth, int groupBudget) {
+        this.keyWidth = keyWidth;
+        this.valueWidth = valueWidth;
+        this.groupBudget = groupBudget;
+        this.groups = new GroupHashTable(keyWidth, valueWidth);
+        this.firstSeen = new long[64];
+        this.partitionFiles = new ArrayList<>();
+        this.runFiles = new ArrayList<>();
+        this.spillPosition = -1;
+    }
+
+    /**
+     * Adds the values of a row to the accumulators of its group, creating the group if it is new.
+     * Once the table has spilled, the row is written to its partition instead.
+     *
+     * @param columns The columns of a batch.
+     * @param row The row within the columns.
+     * @param keyColumns The indices of the key columns.
+     * @param position The input position of the row; positions must increase from row to row.
+     * @param values The values to add, one per accumulator.
+     * @return True if the row created a group held in memory.
+     * @throws ArithmeticException If a sum overflows 64 bits.
+     */
+    public boolean add(long[][] columns, int row, int[] keyColumns, long position, long[] values) {
+        try {
+            if (partitions != null) {
+                writeRecord(partitions[partitionOf(columns, row, keyColumns, 0)], position, columns, row, keyColumns, values);
+                return false;
+            }
+            boolean created = addToGroup(columns, row, keyColumns, position, values);
+            if (groups.size() > groupBudget) {
+                spillPosition = position;
+                partitions = spillGroups(0, partitionFiles);
+                return false;
+            }
+            return created;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error spilling aggregation partitions", e);
+        }
+    }
+
+    /**
+     * Indicates whether the groups exceeded the budget and were spilled to disk.
+     *
+     * @return True if the table spilled.
+     */
+    public boolean isSpilled() {
+        return spillPosition >= 0;
+    }
+
+    /**
+     * Returns the input position of the row that made the table spill. Every group first
+     * seen before that position was held in memory when it was created.
+     *
+     * @return The position, or -1 if the table did not spill.
+     */
+    public long getSpillPosition() {
+        return spillPosition;
+    }
+
+    /**
+     * Completes the aggregation once every row has been added: aggregates the spilled
+     * partitions, if any, and positions the table before its first group.
+     */
+    public void finish() {
+        if (partitions != null) {
+            try {
+                closeAll(partitions);
+                partitions = null;
+                for (File partitionFile : partitionFiles) {
+                    aggregatePartition(partitionFile, 1);
+                }
+                partitionFiles.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error aggregating spilled partitions", e);
+            }
+        }
+        nextGroup = 0;
+        if (!runFiles.isEmpty()) {
+            openMerge();
+        }
+    }
+
+    /**
+     * Moves to the next group, in first-seen order.
+     *
+     * @return True if there is a next group, false once every group has been returned.
+     */
+    public boolean next() {
+        if (mergeQueue == null) {
+            if (nextGroup >= groups.size()) return false;
+            currentGroup = nextGroup++;
+            return true;
+        }
+
+        try {
+            if (currentRun != null) {
+                if (currentRun.advance()) {
+                    mergeQueue.add(currentRun);
+                } else {
+                    currentRun.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading aggregation run", e);
+        }
+        currentRun = mergeQueue.poll();
+        return currentRun != null;
+    }
+
+    /**
+     * Returns the input position at which the current group was first seen.
+     *
+     * @return The first-seen position.
+     */
+    public long getPosition() {
+        return mergeQueue == null ? firstSeen[currentGroup] : currentRun.position;
+    }
+
+    /**
+     * Returns a value of the key of the current group.
+     *
+     * @param k The index of the value within the key.
+     * @return The key value.
+     */
+    public long getKey(int k) {
+        return mergeQueue == null ? groups.getKey(currentGroup, k) : currentRun.key[k][0];
+    }
+
+    /**
+     * Returns an accumulator of the current group.
+     *
+     * @param accumulator The index of the accumulator.
+     * @return The accumulated value.
+     */
+    public long getValue(int accumulator) {
+        return mergeQueue == null ? groups.getValue(currentGroup, accumulator) : currentRun.values[accumulator];
+    }
+
+    /**
+     * Positions the table before its first group again. The runs of a spilled table are
+     * deleted as they are merged, so a spilled table must be cleared and filled again instead.
+     *
+     * @throws IllegalStateException If the table spilled.
+     */
+    public void rewind() {
+        if (isSpilled()) {
+            throw new IllegalStateException("A spilled aggregation cannot be rewound");
+        }
+        nextGroup = 0;
+    }
+
+    /**
+     * Removes every group and deletes the spilled files, so that the table can be filled again.
+     *
+     * @throws UncheckedIOException If a spilled file cannot be closed or deleted.
+     */
+    public void clear() {
+        try {
+            if (partitions != null) closeAll(partitions);
+            partitions = null;
+            closeMerge();
+            mergeQueue = null;
+            for (File file : partitionFiles) Files.deleteIfExists(file.toPath());
+            for (File file : runFiles) Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error deleting aggregation files", e);
+        }
+        partitionFiles.clear();
+        runFiles.clear();
+        groups.clear();
+        spillPosition = -1;
+        nextGroup = 0;
+    }
+
+    /**
+     * Adds values to the accumulators of the group of a row, recording the input position
+     * of the group if it is new.
+     *
+     * @return True if the group is new.
+     */
+    private boolean addToGroup(long[][] columns, int row, int[] keyColumns, long position, long[] values) {
+        int groupCount = groups.size();
+        int group = groups.findOrInsert(columns, row, keyColumns);
+        boolean created = groups.size() > groupCount;
+        if (created) {
+            if (group == firstSeen.length) {
+                firstSeen = Arrays.copyOf(firstSeen, group * 2);
+            }
+            firstSeen[group] = position;
+        }
+        for (int s = 0; s < values.length; s++) {
+            groups.add(group, s, values[s]);
+        }
+        return created;
+    }
+
+    /**
+     * Aggregates one partition file. If it has too many groups, it is partitioned again
+     * with a different hash; otherwise its groups are written as a run.
+     * @param partitionFile The partition file, deleted once read.
+     * @param depth The number of times the records of the partition have been partitioned.
+     * @throws IOException If a file cannot be read or written.
+     */
+    private void aggregatePartition(File partitionFile, int depth) throws IOException {
+        long[][] key = new long[keyWidth][1];
+        int[] keyColumns = keyColumns();
+        long[] values = new long[valueWidth];
+        DataOutputStream[] subPartitions = null;
+        List<File> subPartitionFiles = new ArrayList<>();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(partitionFile)))) {
+            long position;
+            while ((position = readRecord(input, key, values)) >= 0) {
+                if (subPartitions != null) {
+                    writeRecord(subPartitions[partitionOf(key, 0, keyColumns, depth)], position, key, 0, keyColumns, values);
+                } else {
+                    addToGroup(key, 0, keyColumns, position, values);
+                    if (groups.size() > groupBudget && depth < MAX_PARTITION_DEPTH) {
+                        subPartitions = spillGroups(depth, subPartitionFiles);
+                    }
+                }
+            }
+        }
+        partitionFile.delete();
+
+        if (subPartitions != null) {
+            closeAll(subPartitions);
+            for (File subPartitionFile : subPartitionFiles) {
+                aggregatePartition(subPartitionFile, depth + 1);
+            }
+            return;
+        }
+
+        // The records of a partition are in input order, so its groups are numbered in first-seen order
+        File runFile = File.createTempFile("blazedb-agg-", ".run");
+        runFile.deleteOnExit(); // In case the merge never gets to the end of the run
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)))) {
+            writeGroups(output);
+        }
+        runFiles.add(runFile);
+        groups.clear();
+    }
+
+    /**
+     * Opens the partition files of a level and moves the groups of the table into them.
+     * @param depth The number of times the input of the table has been partitioned.
+     * @param files Output list receiving the partition files.
+     * @return The streams of the partitions, to which the following records are written.
+     * @throws IOException If a partition file cannot be written.
+     */
+    private DataOutputStream[] spillGroups(int depth, List<File> files) throws IOException {
+        DataOutputStream[] streams = new DataOutputStream[PARTITION_COUNT];
+        for (int p = 0; p < PARTITION_COUNT; p++) {
+            File partitionFile = File.createTempFile("blazedb-agg-", ".part");
+            partitionFile.deleteOnExit();
+            files.add(partitionFile);
+            streams[p] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partitionFile)));
+        }
+
+        long[][] key = new long[keyWidth][1];
+        int[] keyColumns = keyColumns();
+        long[] values = new long[valueWidth];
+        for (int group = 0; group < groups.size(); group++) {
+            for (int k = 0; k < keyWidth; k++) key[k][0] = groups.getKey(group, k);
+            for (int s = 0; s < valueWidth; s++) values[s] = groups.getValue(group, s);
+            writeRecord(streams[partitionOf(key, 0, keyColumns, depth)], firstSeen[group], key, 0, keyColumns, values);
+        }
+        groups.clear();
+        return streams;
+    }
+
+    /**
+     * Returns the identity mapping of key values to the columns of a single-row key buffer.
+     */
+    private int[] keyColumns() {
+        int[] keyColumns = new int[keyWidth];
+        for (int k = 0; k < keyWidth; k++) keyColumns[k] = k;
+        return keyColumns;
+    }
+
+    /**
+     * Writes every group of the table as a record, in group order.
+     */
+    private void writeGroups(DataOutputStream output) throws IOException {
+        for (int group = 0; group < groups.size(); group++) {
+            output.writeLong(firstSeen[group]);
+            for (int k = 0; k < keyWidth; k++) output.writeLong(groups.getKey(group, k));
+            for (int s = 0; s < valueWidth; s++) output.writeLong(groups.getValue(group, s));
+        }
+    }
+
+    /**
+     * Writes a record: the first-seen position, the key values and the accumulator values.
+     */
+    private static void writeRecord(DataOutputStream output, long position, long[][] columns, int row,
+                                    int[] keyColumns, long[] values) throws IOException {
+        output.writeLong(position);
+        for (int index : keyColumns) output.writeLong(columns[index][row]);
+        for (long value : values) output.writeLong(value);
+    }
+
+    /**
+     * Reads a record into the given key columns (row 0) and values.
+     * @return The first-seen position of the record, or -1 at the end of the file.
+     */
+    private static long readRecord(DataInputStream input, long[][] key, long[] values) throws IOException {
+        long position;
+        try {
+            position = input.readLong();
+        } catch (EOFException e) {
+            return -1;
+        }
+        for (long[] keyColumn : key) keyColumn[0] = input.readLong();
+        for (int s = 0; s < values.length; s++) values[s] = input.readLong();
+        return position;
+    }
+
+    /**
+     * Chooses the partition of a key. The hash depends on the partitioning depth, so the
+     * records of an oversized partition are spread when it is partitioned again.
+     */
+    private static int partitionOf(long[][] columns, int row, int[] keyColumns, int depth) {
+        long hash = depth;
+        for (int index : keyColumns) {
+            hash = hash * 31 + columns[index][row];
+        }
+        return Math.floorMod(Hashing.mix(hash), PARTITION_COUNT);
+    }
+
+    /**
+     * Closes the streams of a set of partitions.
+     */
+    private static void closeAll(DataOutputStream[] streams) throws IOException {
+        for (DataOutputStream stream : streams) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Opens every run file and primes the merge queue with the first group of each run.
+     */
+    private void openMerge() {
+        closeMerge();
+        mergeQueue = new PriorityQueue<>(Math.max(1, runFiles.size()),
+                Comparator.comparingLong((RunReader reader) -> reader.position));
+        try {
+            for (File runFile : runFiles) {
+                RunReader reader = new RunReader(runFile, keyWidth, valueWidth);
+                if (reader.advance()) {
+                    mergeQueue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening aggregation runs", e);
+        }
+    }
+
+    /**
+     * Closes any run readers still open, deleting their run files.
+     */
+    private void closeMerge() {
+        if (currentRun != null) {
+            currentRun.close();
+            currentRun = null;
+        }
+        if (mergeQueue == null) return;
+        for (RunReader reader : mergeQueue) {
+            reader.close();
+        }
+        mergeQueue.clear();
+    }
+
+    /**
+     * Sequential reader over an aggregated run file.
+     */
+    private static class RunReader {
+        private final File runFile;
+        private final DataInputStream input;
+        private final long[][] key;
+        private final long[] values;
+        private long position; // First-seen position of the current group
+
+        /**
+         * Opens a run file for reading.
+         * @param runFile The run file.
+         * @param keyWidth The number of values of a group key.
+         * @param valueWidth The number of accumulators of a group.
+         * @throws IOException If the file cannot be opened.
+         */
+        RunReader(File runFile, int keyWidth, int valueWidth) throws IOException {
+            this.runFile = runFile;
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+            this.key = new long[keyWidth][1];
+            this.values = new long[valueWidth];
+        }
+
+        /**
+         * Reads the next group of the run.
+         * @return True if a group was read, false at the end of the run.
+         * @throws IOException If reading fails.
+         */
+        boolean advance() throws IOException {
+            position = readRecord(input, key, values);
+            return position >= 0;
+        }
+
+        /**
+         * Closes and deletes the run file.
+         * @throws UncheckedIOException If the file cannot be closed or deleted.
+         */
+        void close() {
+            try {
+                input.close();
+                Files.deleteIfExists(runFile.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error closing aggregation run", e);
+            }
+        }
+    }
+}
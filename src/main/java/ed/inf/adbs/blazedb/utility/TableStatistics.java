@@ -0,0 +1,299 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.Tuple;
+import lombok.Getter;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * TableStatistics summarizes the values of a table for cardinality estimation: its row count
+ * and, per column, the minimum and maximum value, an estimate of the number of distinct values
+ * and an equi-depth histogram.
+ * <p>
+ * Statistics are collected in one scan of the CSV file. Distinct values are counted with a
+ * {@link HyperLogLog}; histograms are built from a uniform sample of {@code SAMPLE_SIZE} rows.
+ * The size and modification time of the CSV file are recorded, so that statistics of a file
+ * modified since are recognized as stale.
+ */
+public class TableStatistics {
+    static final int SAMPLE_SIZE = 16384; // Rows sampled to build the histograms
+    static final int HISTOGRAM_BUCKETS = 32;
+
+    @Getter
+    private final long rowCount;
+    @Getter
+    private final long fileSize; // Size of the CSV file when the statistics were collected
+    @Getter
+    private final long lastModified; // Modification time of the CSV file when the statistics were collected
+    private final long[] minValues;
+    private final long[] maxValues;
+    private final long[] distinctValues;
+    private final long[][] histograms; // Per column, the bucket boundaries: the first is the minimum, the last the maximum
+
+    /**
+     * Constructs statistics from their values.
+     */
+    private TableStatistics(long rowCount, long fileSize, long lastModified,
+                            long[] minValues, long[] maxValues, long[] distinctValues, long[][] histograms) {
+        this.rowCount = rowCount;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.minValues = minValues;
+        this.maxValues = maxValues;
+        this.distinctValues = distinctValues;
+        this.histograms = histograms;
+    }
+
+    /**
+     * Scans a CSV table file and collects its statistics.
+     *
+     * @param csvFile The CSV table file.
+     * @param columnCount The number of columns of the table.
+     * @return The statistics of the table.
+     * @throws IOException If the file cannot be read.
+     * @throws NumberFormatException If a row does not have exactly {@code columnCount} integer fields.
+     */
+    public static TableStatistics collect(File csvFile, int columnCount) throws IOException {
+        long fileSize = csvFile.length();
+        long lastModified = csvFile.lastModified();
+
+        long[] minValues = new long[columnCount];
+        long[] maxValues = new long[columnCount];
+        Arrays.fill(minValues, Long.MAX_VALUE);
+        Arrays.fill(maxValues, Long.MIN_VALUE);
+        HyperLogLog[] sketches = new HyperLogLog[columnCount];
+        for (int column = 0; column < columnCount; column++) sketches[column] = new HyperLogLog();
+        long[][] sample = new long[columnCount][SAMPLE_SIZE];
+        Random random = new Random(columnCount); // Fixed seed: analyzing a table twice gives the same statistics
+
+        long rowCount = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+            long[] row = new long[columnCount];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (Tuple.parseCSV(line, row) != columnCount) {
+                    throw new NumberFormatException("Invalid row in " + csvFile);
+                }
+
+                for (int column = 0; column < columnCount; column++) {
+                    minValues[column] = Math.min(minValues[column], row[column]);
+                    maxValues[column] = Math.max(maxValues[column], row[column]);
+                    sketches[column].add(row[column]);
+                }
+
+                // Reservoir sampling: every row ends up in the sample with the same probability
+                long slot = rowCount < SAMPLE_SIZE ? rowCount : (long) (random.nextDouble() * (rowCount + 1));
+                if (slot < SAMPLE_SIZE) {
+                    for (int column = 0; column < columnCount; column++) {
+                        sample[column][(int) slot] = row[column];
+                    }
+                }
+                rowCount++;
+            }
+        }
+
+        int sampled = (int) Math.min(rowCount, SAMPLE_SIZE);
+        long[] distinctValues = new long[columnCount];
+        long[][] histograms = new long[columnCount][];
+        for (int column = 0; column < columnCount; column++) {
+            distinctValues[column] = Math.min(rowCount, sketches[column].estimate());
+            histograms[column] = histogram(Arrays.copyOf(sample[column], sampled), minValues[column], maxValues[column]);
+        }
+        return new TableStatistics(rowCount, fileSize, lastModified, minValues, maxValues, distinctValues, histograms);
+    }
+
+    /**
+     * Builds an equi-depth histogram: boundaries such that each bucket holds the same number of sampled values.
+     */
+    private static long[] histogram(long[] sample, long min, long max) {
+        if (sample.length == 0) {
+            return new long[0];
+        }
+        Arrays.sort(sample);
+        int buckets = Math.min(HISTOGRAM_BUCKETS, sample.length);
+        long[] boundaries = new long[buckets + 1];
+        for (int i = 0; i < buckets; i++) {
+            boundaries[i] = sample[(int) ((long) i * sample.length / buckets)];
+        }
+        boundaries[0] = min;
+        boundaries[buckets] = max;
+        return boundaries;
+    }
+
+    /**
+     * Checks whether the statistics describe the current content of a table file.
+     *
+     * @param csvFile The CSV table file.
+     * @return True if the file has the size and modification time recorded in the statistics.
+     */
+    public boolean isUpToDate(File csvFile) {
+        return csvFile.length() == fileSize && csvFile.lastModified() == lastModified;
+    }
+
+    /**
+     * Returns the number of columns described.
+     *
+     * @return The number of columns of the table.
+     */
+    public int getColumnCount() {
+        return minValues.length;
+    }
+
+    /**
+     * Returns the smallest value of a column.
+     *
+     * @param column The column index.
+     * @return The minimum, {@code Long.MAX_VALUE} for an empty table.
+     */
+    public long getMin(int column) {
+        return minValues[column];
+    }
+
+    /**
+     * Returns the largest value of a column.
+     *
+     * @param column The column index.
+     * @return The maximum, {@code Long.MIN_VALUE} for an empty table.
+     */
+    public long getMax(int column) {
+        return maxValues[column];
+    }
+
+    /**
+     * Returns the estimated number of distinct values of a column.
+     *
+     * @param column The column index.
+     * @return The estimated number of distinct values.
+     */
+    public long getDistinctValues(int column) {
+        return distinctValues[column];
+    }
+
+    /**
+     * Estimates the fraction of rows whose value of a column lies in [lower, upper].
+     *
+     * @param column The column index.
+     * @param lower The inclusive lower bound.
+     * @param upper The inclusive upper bound.
+     * @return The estimated fraction, between 0 and 1.
+     */
+    public double rangeFraction(int column, long lower, long upper) {
+        if (lower > upper) {
+            return 0;
+        }
+        double below = lower == Long.MIN_VALUE ? 0 : fractionAtMost(column, lower - 1);
+        return Math.max(0, fractionAtMost(column, upper) - below);
+    }
+
+    /**
+     * Estimates the fraction of rows whose value of a column is at most a given value,
+     * assuming values are spread uniformly within each histogram bucket.
+     */
+    private double fractionAtMost(int column, long value) {
+        long[] boundaries = histograms[column];
+        if (boundaries.length == 0 || value < boundaries[0]) {
+            return 0;
+        }
+        int buckets = boundaries.length - 1;
+        if (value >= boundaries[buckets]) {
+            return 1;
+        }
+
+        // Last boundary not greater than the value
+        int low = 0, high = buckets - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (boundaries[mid] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        double width = (double) boundaries[low + 1] - boundaries[low];
+        double within = width <= 0 ? 1 : Math.min(1, ((double) value - boundaries[low] + 1) / width);
+        return (low + within) / buckets;
+    }
+
+    /**
+     * Reads the statistics file of a database.
+     *
+     * @param file The statistics file.
+     * @return The statistics of each table in the file.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public static Map<String, TableStatistics> read(File file) throws IOException {
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] table = line.trim().split("\\s+");
+                if (table.length != 6 || !table[0].equals("TABLE")) {
+                    throw new IOException("Invalid statistics line: " + line);
+                }
+                int columnCount = Integer.parseInt(table[2]);
+                long[] minValues = new long[columnCount];
+                long[] maxValues = new long[columnCount];
+                long[] distinctValues = new long[columnCount];
+                long[][] histograms = new long[columnCount][];
+
+                for (int column = 0; column < columnCount; column++) {
+                    String columnLine = reader.readLine();
+                    String[] parts = columnLine == null ? new String[0] : columnLine.trim().split("\\s+");
+                    if (parts.length < 5 || !parts[0].equals("COLUMN")) {
+                        throw new IOException("Invalid statistics line: " + columnLine);
+                    }
+                    minValues[column] = Long.parseLong(parts[2]);
+                    maxValues[column] = Long.parseLong(parts[3]);
+                    distinctValues[column] = Long.parseLong(parts[4]);
+                    histograms[column] = new long[parts.length - 5];
+                    for (int i = 5; i < parts.length; i++) {
+                        histograms[column][i - 5] = Long.parseLong(parts[i]);
+                    }
+                }
+                statistics.put(table[1], new TableStatistics(Long.parseLong(table[3]), Long.parseLong(table[4]),
+                        Long.parseLong(table[5]), minValues, maxValues, distinctValues, histograms));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid statistics file: " + file, e);
+        }
+        return statistics;
+    }
+
+    /**
+     * Writes the statistics file of a database. Each table is written as a line
+     * {@code TABLE name columnCount rowCount fileSize lastModified}, followed by a line
+     * {@code COLUMN name min max distinct boundaries...} per column.
+     *
+     * @param statistics The statistics of each table.
+     * @param tableSchemas The column names of each table.
+     * @param file The statistics file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Map<String, TableStatistics> statistics, Map<String, List<String>> tableSchemas, File file)
+            throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            for (String tableName : new TreeSet<>(statistics.keySet())) {
+                TableStatistics table = statistics.get(tableName);
+                List<String> columns = tableSchemas.get(tableName);
+                writer.println("TABLE " + tableName + " " + columns.size() + " " + table.rowCount + " "
+                        + table.fileSize + " " + table.lastModified);
+                for (int column = 0; column < columns.size(); column++) {
+                    StringBuilder line = new StringBuilder("COLUMN ").append(columns.get(column))
+                            .append(' ').append(table.minValues[column])
+                            .append(' ').append(table.maxValues[column])
+                            .append(' ').append(table.distinctValues[column]);
+                    for (long boundary : table.histograms[column]) {
+                        line.append(' ').append(boundary);
+                    }
+                    writer.println(line);
+                }
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ed.inf.adbs.blazedb.utility;
+
+import ed.inf.adbs.blazedb.Tuple;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ZoneMap is the statistics sidecar of a table file. It splits the table into blocks of a fixed
+ * number of rows and records, for each block, its byte offset in the CSV file, its row count and
+ * the minimum and maximum value of every column. Scans use it to skip whole blocks that cannot
+ * satisfy the single-table conditions of the WHERE clause.
+ * <p>
+ * Blocks are numbered in the same way as the blocks of a {@link ColumnarFile} built from the same
+ * CSV file, so a zone map with the same block size applies to both formats. The size and
+ * modification time of the CSV file are recorded, so that a zone map of a file modified since is
+ * recognized as stale.
+ */
+public class ZoneMap {
+    public static final int MAGIC = 0x424C5A4D; // "BLZM" ("BLZZ" before the CSV size and mtime were recorded)
+    public static final int BLOCK_SIZE = ColumnarFile.BLOCK_SIZE;
+
+    @Getter
+    private final int blockSize;
+    private final long[] blockOffsets; // Byte offset of each block in the CSV file
+    private final int[] blockRowCounts; // Number of rows in each block
+    private final long[][] minValues; // [block][column]
+    private final long[][] maxValues; // [block][column]
+    private final long tableSize; // Size of the CSV file when the zone map was written
+    private final long tableLastModified; // Modification time of the CSV file when the zone map was written
+
+    /**
+     * Constructs a zone map from its block statistics.
+     */
+    private ZoneMap(int blockSize, long[] blockOffsets, int[] blockRowCounts, long[][] minValues, long[][] maxValues,
+                    long tableSize, long tableLastModified) {
+        this.blockSize = blockSize;
+        this.blockOffsets = blockOffsets;
+        this.blockRowCounts = blockRowCounts;
+        this.minValues = minValues;
+        this.maxValues = maxValues;
+        this.tableSize = tableSize;
+        this.tableLastModified = tableLastModified;
+    }
+
+    /**
+     * Loads a zone map from its sidecar file.
+     *
+     * @param file The zone map file.
+     * @return The zone map.
+     * @throws IOException If the file cannot be read or is not a zone map.
+     */
+    public static ZoneMap load(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a zone map file: " + file);
+            }
+            long tableSize = input.readLong();
+            long tableLastModified = input.readLong();
+            int columnCount = input.readInt();
+            int blockSize = input.readInt();
+            int blockCount = input.readInt();
+
+            long[] blockOffsets = new long[blockCount];
+            int[] blockRowCounts = new int[blockCount];
+            long[][] minValues = new long[blockCount][columnCount];
+            long[][] maxValues = new long[blockCount][columnCount];
+            for (int block = 0; block < blockCount; block++) {
+                blockOffsets[block] = input.readLong();
+                blockRowCounts[block] = input.readInt();
+                for (int column = 0; column < columnCount; column++) {
+                    minValues[block][column] = input.readLong();
+                    maxValues[block][column] = input.readLong();
+                }
+            }
+            return new ZoneMap(blockSize, blockOffsets, blockRowCounts, minValues, maxValues, tableSize, tableLastModified);
+        }
+    }
+
+    /**
+     * Scans a CSV table file and writes its zone map.
+     *
+     * @param csvFile The CSV table file.
+     * @param zoneMapFile The zone map file to write.
+     * @param columnCount The number of columns of the table.
+     * @param blockSize The number of rows per block.
+     * @throws IOException If a file cannot be read or written.
+     * @throws NumberFormatException If a row does not have exactly {@code columnCount} integer fields.
+     */
+    public static void write(File csvFile, File zoneMapFile, int columnCount, int blockSize) throws IOException {
+        long tableSize = csvFile.length();
+        long tableLastModified = csvFile.lastModified();
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        DataOutputStream blocks = new DataOutputStream(blockBytes);
+        int blockCount = 0;
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(csvFile))) {
+            long[] row = new long[columnCount];
+            long[] min = new long[columnCount];
+            long[] max = new long[columnCount];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = 0; // Byte offset following the last byte read
+            long blockOffset = 0;
+            int blockRows = 0;
+
+            int b = 0;
+            while (b != -1) {
+                line.reset();
+                while ((b = input.read()) != -1) {
+                    position++;
+                    if (b == '\n') break;
+                    line.write(b);
+                }
+
+                String text = line.toString(StandardCharsets.US_ASCII);
+                if (text.isBlank()) continue;
+
+                if (Tuple.parseCSV(text, row) != columnCount) {
+                    throw new NumberFormatException("Invalid row in " + csvFile);
+                }
+                for (int column = 0; column < columnCount; column++) {
+                    if (blockRows == 0 || row[column] < min[column]) min[column] = row[column];
+                    if (blockRows == 0 || row[column] > max[column]) max[column] = row[column];
+                }
+
+                if (++blockRows == blockSize) {
+                    writeBlock(blocks, blockOffset, blockRows, min, max);
+                    blockCount++;
+                    blockOffset = position;
+                    blockRows = 0;
+                }
+            }
+            if (blockRows > 0) {
+                writeBlock(blocks, blockOffset, blockRows, min, max);
+                blockCount++;
+            }
+        }
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(zoneMapFile)))) {
+            output.writeInt(MAGIC);
+            output.writeLong(tableSize);
+            output.writeLong(tableLastModified);
+            output.writeInt(columnCount);
+            output.writeInt(blockSize);
+            output.writeInt(blockCount);
+            blockBytes.writeTo(output);
+        }
+    }
+
+    /**
+     * Writes the statistics of one block.
+     */
+    private static void writeBlock(DataOutputStream output, long offset, int rows, long[] min, long[] max) throws IOException {
+        output.writeLong(offset);
+        output.writeInt(rows);
+        for (int column = 0; column < min.length; column++) {
+            output.writeLong(min[column]);
+            output.writeLong(max[column]);
+        }
+    }
+
+    /**
+     * Checks whether the zone map describes the current content of a table file.
+     *
+     * @param csvFile The CSV table file.
+     * @return True if the file has the size and modification time recorded when the zone map was written.
+     */
+    public boolean isUpToDate(File csvFile) {
+        return csvFile.length() == tableSize && csvFile.lastModified() == tableLastModified;
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return The block count.
+     */
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Returns the byte offset of a block in the CSV file. Blank lines between two blocks
+     * belong to the second one.
+     *
+     * @param block The block index.
+     * @return The byte offset.
+     */
+    public long getBlockOffset(int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * Returns the number of rows in a block.
+     *
+     * @param block The block index.
+     * @return The row count.
+     */
+    public int getBlockRowCount(int block) {
+        return blockRowCounts[block];
+    }
+
+    /**
+     * Checks whether a block may contain rows within the given bounds.
+     *
+     * @param block The block index.
+     * @param bounds The column bounds derived from the WHERE clause.
+     * @return False if the block can be skipped.
+     */
+    public boolean mayMatch(int block, ColumnBounds bounds) {
+        for (int column = 0; column < minValues[block].length; column++) {
+            if (!bounds.overlaps(column, minValues[block][column], maxValues[block][column])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
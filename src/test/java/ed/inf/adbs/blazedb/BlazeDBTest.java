@@ -1,16 +1,49 @@
 package ed.inf.adbs.blazedb;
 
 import static ed.inf.adbs.blazedb.Helper.csvEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import ed.inf.adbs.blazedb.operator.*;
+import ed.inf.adbs.blazedb.utility.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.utility.Binder;
+import ed.inf.adbs.blazedb.utility.BloomFilter;
+import ed.inf.adbs.blazedb.utility.BoundQuery;
+import ed.inf.adbs.blazedb.utility.CardinalityEstimator;
+import ed.inf.adbs.blazedb.utility.ColumnBounds;
+import ed.inf.adbs.blazedb.utility.ColumnarFile;
+import ed.inf.adbs.blazedb.utility.CompiledPredicate;
+import ed.inf.adbs.blazedb.utility.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.utility.GroupHashTable;
+import ed.inf.adbs.blazedb.utility.JoinOrderOptimizer;
 import ed.inf.adbs.blazedb.utility.Parser;
+import ed.inf.adbs.blazedb.utility.Planner;
+import ed.inf.adbs.blazedb.utility.PredicatePushdown;
+import ed.inf.adbs.blazedb.utility.Schema;
+import ed.inf.adbs.blazedb.utility.SemiJoinFilter;
+import ed.inf.adbs.blazedb.utility.TableStatistics;
+import ed.inf.adbs.blazedb.utility.ZoneMap;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FilenameFilter;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Unit tests for BlazeDB.
@@ -39,6 +72,236 @@ public class BlazeDBTest {
 		}
 	}
 
+	@Test
+	public void Scan_test2() throws IOException {
+		ExecutionConfig config = ExecutionConfig.getInstance();
+		boolean mappedScan = config.isMemoryMappedScan();
+		try {
+			String[] tables = new String[]{"Course", "Enrolled", "Student"};
+			for (boolean memoryMapped : new boolean[]{true, false}) {
+				config.setMemoryMappedScan(memoryMapped);
+				for (int i = 0; i < tables.length; i++) {
+					String outputFile = OUTPUT_DIR + File.separator + "scan" + (i + 1) + ".csv";
+					String expFile = EXP_DIR + File.separator + "scan" + (i + 1) + ".csv";
+					Operator scanOperator = new ScanOperator(tables[i]);
+
+					BlazeDB.execute(scanOperator, outputFile);
+					assertTrue(csvEquals(outputFile, expFile));
+
+					scanOperator.reset();
+					BlazeDB.execute(scanOperator, outputFile);
+					assertTrue(csvEquals(outputFile, expFile));
+				}
+			}
+		} finally {
+			config.setMemoryMappedScan(mappedScan);
+		}
+	}
+
+	@Test
+	public void ColumnarScan_test1() throws IOException {
+		String[] tables = new String[]{"Course", "Enrolled", "Student"};
+		for (int i = 0; i < tables.length; i++) {
+			String outputFile = OUTPUT_DIR + File.separator + "scan" + (i + 1) + ".csv";
+			String expFile = EXP_DIR + File.separator + "scan" + (i + 1) + ".csv";
+			int columnCount = catalog.getTableSchema(tables[i]).size();
+
+			File columnarFile = File.createTempFile(tables[i], ".col");
+			columnarFile.deleteOnExit();
+			ColumnarFile.write(catalog.getTableFile(tables[i]), columnarFile, columnCount);
+
+			List<Integer> columns = new ArrayList<>();
+			for (int c = 0; c < columnCount; c++) columns.add(c);
+			Operator scanOperator = new ColumnarScanOperator(tables[i], columnarFile, columns, null, null);
+
+			BlazeDB.execute(scanOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+
+			scanOperator.reset(); // The file was closed at the end of the scan
+			BlazeDB.execute(scanOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+		}
+	}
+
+	@Test
+	public void ZoneMap_test1() throws IOException {
+		ExecutionConfig config = ExecutionConfig.getInstance();
+		boolean mappedScan = config.isMemoryMappedScan();
+		try {
+			for (boolean memoryMapped : new boolean[]{true, false}) {
+				config.setMemoryMappedScan(memoryMapped);
+				for (int i = 0; i < 5; i++) {
+					String name = "select" + (i+1);
+					String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+					String expFile = EXP_DIR + File.separator + name + ".csv";
+					String inputFile = INPUT_DIR + File.separator + name + ".sql";
+
+					Parser parser = new Parser(inputFile);
+					String tableName = parser.getFromTable().toString();
+					List<String> schema = catalog.getTableSchema(tableName);
+					File zoneMapFile = File.createTempFile(tableName, ".zmap");
+					zoneMapFile.deleteOnExit();
+					ZoneMap.write(catalog.getTableFile(tableName), zoneMapFile, schema.size(), 2);
+
+					ColumnBounds bounds = ColumnBounds.fromWhereClause(parser.getWhereClause(), tableName, schema);
+					Operator scanOperator = new ScanOperator(tableName, ZoneMap.load(zoneMapFile), bounds);
+					Operator selectOperator = new SelectOperator(scanOperator, parser);
+					BlazeDB.execute(selectOperator, outputFile);
+					assertTrue(csvEquals(outputFile, expFile));
+
+					selectOperator.reset();
+					BlazeDB.execute(selectOperator, outputFile);
+					assertTrue(csvEquals(outputFile, expFile));
+				}
+			}
+		} finally {
+			config.setMemoryMappedScan(mappedScan);
+		}
+	}
+
+	@Test
+	public void IndexScan_test1() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			String name = "select" + (i+1);
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			String inputFile = INPUT_DIR + File.separator + name + ".sql";
+
+			Parser parser = new Parser(inputFile);
+			String tableName = parser.getFromTable().toString();
+			List<String> schema = catalog.getTableSchema(tableName);
+			ColumnBounds bounds = ColumnBounds.fromWhereClause(parser.getWhereClause(), tableName, schema);
+			for (int column = 0; column < schema.size(); column++) {
+				if (!bounds.isRestricted(column)) continue;
+
+				File indexFile = File.createTempFile(tableName, ".idx");
+				indexFile.deleteOnExit();
+				BPlusTreeIndex.write(catalog.getTableFile(tableName), indexFile, schema.size(), column);
+
+				BPlusTreeIndex index = new BPlusTreeIndex(indexFile);
+				Operator scanOperator = new IndexScanOperator(tableName, index, bounds.getLower(column), bounds.getUpper(column));
+				Operator selectOperator = new SelectOperator(scanOperator, parser);
+				BlazeDB.execute(selectOperator, outputFile);
+				assertTrue(csvEquals(outputFile, expFile));
+
+				selectOperator.reset();
+				BlazeDB.execute(selectOperator, outputFile);
+				assertTrue(csvEquals(outputFile, expFile));
+			}
+		}
+	}
+
+	@Test
+	public void ShortRow_test1() throws IOException {
+		File csvFile = File.createTempFile("ShortRow", ".csv");
+		csvFile.deleteOnExit();
+		Files.writeString(csvFile.toPath(), "1, 2, 3\n4, 5\n");
+		File sidecarFile = File.createTempFile("ShortRow", ".tmp");
+		sidecarFile.deleteOnExit();
+
+		assertThrows(NumberFormatException.class, () -> ColumnarFile.write(csvFile, sidecarFile, 3));
+		assertThrows(NumberFormatException.class, () -> ZoneMap.write(csvFile, sidecarFile, 3, 2));
+		assertThrows(NumberFormatException.class, () -> BPlusTreeIndex.write(csvFile, sidecarFile, 3, 0));
+		assertThrows(NumberFormatException.class, () -> TableStatistics.collect(csvFile, 3));
+	}
+
+	@Test
+	public void Freshness_test1() throws IOException {
+		File csvFile = File.createTempFile("Freshness", ".csv");
+		csvFile.deleteOnExit();
+		Files.writeString(csvFile.toPath(), "1, 2\n3, 4\n");
+		long lastModified = csvFile.lastModified();
+
+		File indexFile = File.createTempFile("Freshness", ".idx");
+		indexFile.deleteOnExit();
+		BPlusTreeIndex.write(csvFile, indexFile, 2, 0);
+		assertTrue(new BPlusTreeIndex(indexFile).isUpToDate(csvFile));
+		File zoneMapFile = File.createTempFile("Freshness", ".zmap");
+		zoneMapFile.deleteOnExit();
+		ZoneMap.write(csvFile, zoneMapFile, 2, 1);
+		assertTrue(ZoneMap.load(zoneMapFile).isUpToDate(csvFile));
+		File columnarFile = File.createTempFile("Freshness", ".col");
+		columnarFile.deleteOnExit();
+		ColumnarFile.write(csvFile, columnarFile, 2);
+		try (ColumnarFile file = new ColumnarFile(columnarFile)) {
+			assertTrue(file.isUpToDate(csvFile));
+		}
+
+		// A sidecar written after the CSV file must still notice that the CSV file was edited
+		Files.writeString(csvFile.toPath(), "1, 2\n3, 4\n5, 6\n");
+		csvFile.setLastModified(lastModified);
+		assertFalse(new BPlusTreeIndex(indexFile).isUpToDate(csvFile));
+		assertFalse(ZoneMap.load(zoneMapFile).isUpToDate(csvFile));
+		try (ColumnarFile file = new ColumnarFile(columnarFile)) {
+			assertFalse(file.isUpToDate(csvFile));
+		}
+	}
+
+	@Test
+	public void ParseCSV_test1() {
+		assertArrayEquals(new long[]{1, 200, 50}, Tuple.fromCSV("1, 200, 50").getValues());
+		assertArrayEquals(new long[]{-7, 0, -120}, Tuple.fromCSV("-7,0,-120").getValues());
+		assertArrayEquals(new long[]{3, 4}, Tuple.fromCSV("  3\t,  4 \r").getValues());
+		assertArrayEquals(new long[]{Long.MAX_VALUE}, Tuple.fromCSV(Long.toString(Long.MAX_VALUE)).getValues());
+
+		String[] malformed = {"1 2, 3", "1, - 2", "--1", "1-", "-", "1,,2", "1, ", "a, 1", "1.5", "9223372036854775808"};
+		for (String line : malformed) {
+			assertThrows(line, NumberFormatException.class, () -> Tuple.fromCSV(line));
+		}
+		assertThrows(NumberFormatException.class, () -> Tuple.parseCSV("1, 2, 3", new long[2]));
+	}
+
+	@Test
+	public void CompiledPredicate_test1() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			String inputFile = INPUT_DIR + File.separator + "select" + (i+1) + ".sql";
+			Parser parser = new Parser(inputFile);
+			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
+			CompiledPredicate predicate = CompiledPredicate.compile(parser.getWhereClause(), scanOperator.getSchema());
+
+			Tuple tuple;
+			while ((tuple = scanOperator.getNextTuple()) != null) {
+				ExpressionEvaluator evaluator = new ExpressionEvaluator(scanOperator.getSchema(), tuple);
+				assertEquals(evaluator.evaluate(parser.getWhereClause()), predicate.test(tuple.getValues()));
+			}
+		}
+	}
+
+	@Test
+	public void BatchFilter_test1() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			String inputFile = INPUT_DIR + File.separator + "select" + (i+1) + ".sql";
+			Parser parser = new Parser(inputFile);
+			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
+			CompiledPredicate predicate = CompiledPredicate.compile(parser.getWhereClause(), scanOperator.getSchema());
+
+			TupleBatch batch;
+			while ((batch = scanOperator.getNextBatch()) != null) {
+				// Start from a batch already narrowed to every other row
+				int[] selection = batch.getSelection();
+				int size = 0;
+				for (int row = 0; row < batch.getSize(); row += 2) {
+					selection[size++] = selection[row];
+				}
+				batch.setSize(size);
+
+				List<Tuple> expected = new ArrayList<>();
+				for (int row = 0; row < batch.getSize(); row++) {
+					Tuple tuple = batch.getTuple(row);
+					if (new ExpressionEvaluator(scanOperator.getSchema(), tuple).evaluate(parser.getWhereClause())) {
+						expected.add(tuple);
+					}
+				}
+				predicate.filter(batch);
+				List<Tuple> actual = new ArrayList<>();
+				for (int row = 0; row < batch.getSize(); row++) {
+					actual.add(batch.getTuple(row));
+				}
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
 	@Test
 	public void Select_test1() throws IOException {
 		for (int i = 0; i < 3; i++) {
@@ -49,7 +312,7 @@ public class BlazeDBTest {
 
 			Parser parser = new Parser(inputFile);
 			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
-			Operator selectOperator = new SelectOperator(scanOperator, parser, parser.getTableOrder());
+			Operator selectOperator = new SelectOperator(scanOperator, parser);
 			BlazeDB.execute(selectOperator, outputFile);
 
 			assertTrue(csvEquals(outputFile, expFile));
@@ -66,7 +329,7 @@ public class BlazeDBTest {
 
 			Parser parser = new Parser(inputFile);
 			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
-			Operator selectOperator = new SelectOperator(scanOperator, parser, parser.getTableOrder());
+			Operator selectOperator = new SelectOperator(scanOperator, parser);
 			BlazeDB.execute(selectOperator, outputFile);
 
 			assertTrue(csvEquals(outputFile, expFile));
@@ -104,7 +367,7 @@ public class BlazeDBTest {
 			Parser parser = new Parser(inputFile);
 			Parser parser2 = new Parser(inputFile2);
 			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
-			Operator selectOperator = new SelectOperator(scanOperator, parser2, parser2.getTableOrder());
+			Operator selectOperator = new SelectOperator(scanOperator, parser2);
 			Operator projectOperator = new ProjectOperator(selectOperator, parser);
 			BlazeDB.execute(projectOperator, outputFile);
 
@@ -167,6 +430,24 @@ public class BlazeDBTest {
 		}
 	}
 
+	@Test
+	public void HashJoin_test1() throws IOException {
+		String[] names = new String[]{"join2", "join4", "join5"};
+		for (String name : names) {
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			String inputFile = INPUT_DIR + File.separator + name + ".sql";
+
+			Parser parser = new Parser(inputFile);
+			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
+			Operator scanOperator2 = new ScanOperator(parser.getTableOrder().get(1));
+			Operator joinOperator = new HashJoinOperator(scanOperator, scanOperator2, List.of(0), List.of(0), parser);
+			BlazeDB.execute(joinOperator, outputFile);
+
+			assertTrue(csvEquals(outputFile, expFile));
+		}
+	}
+
 	@Test
 	public void Compare_test1() throws IOException {
 		Tuple tup1 = new Tuple(new String[]{"1", "2", "3", "4"});
@@ -248,6 +529,39 @@ public class BlazeDBTest {
 		}
 	}
 
+	@Test
+	public void ExternalSort_test1() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			String name = "sort" + (i+1);
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			String inputFile = INPUT_DIR + File.separator + name + ".sql";
+
+			Parser parser = new Parser(inputFile);
+			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
+			Operator sortOperator = new SortOperator(scanOperator, parser, 2);
+			BlazeDB.execute(sortOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+
+			sortOperator.reset();
+			BlazeDB.execute(sortOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+		}
+	}
+
+	@Test
+	public void ExternalSort_test2() throws IOException {
+		File tempDir = new File(System.getProperty("java.io.tmpdir"));
+		FilenameFilter runFiles = (dir, name) -> name.startsWith("blazedb-sort-");
+		int before = tempDir.list(runFiles).length;
+
+		Parser parser = new Parser(INPUT_DIR + File.separator + "sort1.sql");
+		Operator sortOperator = new SortOperator(new ScanOperator(parser.getFromTable().toString()), parser, 2);
+		assertTrue(tempDir.list(runFiles).length > before);
+		while (sortOperator.getNextTuple() != null) ;
+		assertEquals(before, tempDir.list(runFiles).length);
+	}
+
 	@Test
 	public void Distinct_test1() throws IOException {
 		for (int i = 0; i < 1; i++) {
@@ -325,4 +639,681 @@ public class BlazeDBTest {
 		}
 	}
 
+
+	@Test
+	public void Binder_test1() throws IOException {
+		Parser parser = new Parser(INPUT_DIR + File.separator + "sum1.sql");
+		BoundQuery query = Binder.bind(parser);
+		assertEquals(List.of(1), query.getReferencedColumns().get("Student"));
+		assertEquals(catalog.getTableSchema("Student").size(), query.getSchema().size());
+
+		File inputFile = File.createTempFile("unknown", ".sql");
+		inputFile.deleteOnExit();
+		try (FileWriter writer = new FileWriter(inputFile)) {
+			writer.write("SELECT Student.Z FROM Student;");
+		}
+		Parser invalidParser = new Parser(inputFile.getPath());
+		assertThrows(IllegalArgumentException.class, () -> Binder.bind(invalidParser));
+	}
+
+	@Test
+	public void PredicatePushdown_test1() throws IOException {
+		File inputFile = File.createTempFile("pushdown", ".sql");
+		inputFile.deleteOnExit();
+		try (FileWriter writer = new FileWriter(inputFile)) {
+			writer.write("SELECT * FROM Student, Enrolled, Course "
+					+ "WHERE Student.A = Enrolled.A AND Enrolled.E = Course.E AND Enrolled.A < 3 AND 101 < Course.E;");
+		}
+		Parser parser = new Parser(inputFile.getPath());
+		PredicatePushdown pushdown = new PredicatePushdown(parser.getWhereClause());
+
+		List<String> studentConditions = new ArrayList<>();
+		pushdown.getTableConditions("Student").forEach(conjunct -> studentConditions.add(conjunct.toString()));
+		assertEquals(List.of("Student.A < 3"), studentConditions);
+
+		List<String> enrolledConditions = new ArrayList<>();
+		pushdown.getTableConditions("Enrolled").forEach(conjunct -> enrolledConditions.add(conjunct.toString()));
+		assertEquals(List.of("Enrolled.A < 3", "101 < Enrolled.E"), enrolledConditions);
+
+		assertEquals(1, pushdown.getJoinConditions(List.of("Student"), "Enrolled").size());
+		assertEquals(1, pushdown.getJoinConditions(List.of("Student", "Enrolled"), "Course").size());
+		assertTrue(pushdown.getJoinConditions(List.of("Student"), "Course").isEmpty());
+	}
+
+	@Test
+	public void JoinOrder_test1() throws IOException {
+		Parser parser = new Parser(INPUT_DIR + File.separator + "join9.sql");
+		PredicatePushdown pushdown = new PredicatePushdown(parser.getWhereClause());
+		CardinalityEstimator estimator = new CardinalityEstimator(catalog);
+		assertEquals(6, catalog.estimateRowCount("Student"));
+
+		// Joining the small sample tables is cheap, so the FROM order is kept
+		JoinOrderOptimizer optimizer = new JoinOrderOptimizer(parser.getTableOrder(), pushdown, estimator);
+		assertEquals(parser.getTableOrder(), optimizer.optimize());
+
+		// A reordered join is projected back to the FROM order layout
+		Operator join = new JoinOperator(new ScanOperator("Enrolled"), new ScanOperator("Student"), (Expression) null);
+		Operator project = new ProjectOperator(join, Schema.forTables(List.of("Student", "Enrolled")));
+		Tuple tuple = project.getNextTuple();
+		assertEquals(List.of(1L, 200L, 50L, 33L, 1L, 101L, 75L), Arrays.stream(tuple.getValues()).boxed().collect(Collectors.toList()));
+	}
+
+	@Test
+	public void Statistics_test1() throws IOException {
+		TableStatistics statistics = TableStatistics.collect(catalog.getTableFile("Student"), 4);
+		assertEquals(6, statistics.getRowCount());
+		assertEquals(1, statistics.getMin(0));
+		assertEquals(6, statistics.getMax(0));
+		assertEquals(6, statistics.getDistinctValues(0));
+		assertTrue(statistics.isUpToDate(catalog.getTableFile("Student")));
+		assertEquals(1.0, statistics.rangeFraction(0, Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+		assertEquals(0.0, statistics.rangeFraction(0, 7, Long.MAX_VALUE), 1e-9);
+
+		File statisticsFile = File.createTempFile("stats", ".txt");
+		statisticsFile.deleteOnExit();
+		TableStatistics.write(Map.of("Student", statistics), catalog.getTableSchemas(), statisticsFile);
+		TableStatistics loaded = TableStatistics.read(statisticsFile).get("Student");
+		assertEquals(statistics.getRowCount(), loaded.getRowCount());
+		for (int column = 0; column < 4; column++) {
+			assertEquals(statistics.getMin(column), loaded.getMin(column));
+			assertEquals(statistics.getMax(column), loaded.getMax(column));
+			assertEquals(statistics.getDistinctValues(column), loaded.getDistinctValues(column));
+			assertEquals(statistics.rangeFraction(column, 100, 200), loaded.rangeFraction(column, 100, 200), 1e-9);
+		}
+	}
+
+	@Test
+	public void ProjectionPushdown_test1() throws IOException {
+		Parser parser = new Parser(INPUT_DIR + File.separator + "join6.sql");
+		BoundQuery query = Binder.bind(parser);
+		assertEquals(List.of(0, 1), query.getOutputColumns().get("Student"));
+		assertEquals(List.of(2), query.getOutputColumns().get("Enrolled"));
+		assertEquals(List.of(0, 1), query.getReferencedColumns().get("Student"));
+
+		PredicatePushdown pushdown = new PredicatePushdown(parser.getWhereClause());
+		assertEquals(Set.of("Student.A", "Enrolled.A"), pushdown.getJoinColumns());
+	}
+
+	@Test
+	public void GroupHashTable_test1() {
+		GroupHashTable groups = new GroupHashTable(1, 1);
+		long[][] columns = {new long[1]};
+		int[] keyColumns = {0};
+		for (int i = 0; i < 10000; i++) {
+			columns[0][0] = (i * 7919L) % 1000; // 1000 groups, first seen in order 0, 919, 838, ...
+			groups.add(groups.findOrInsert(columns, 0, keyColumns), 0, i);
+		}
+		assertEquals(1000, groups.size());
+		assertEquals(0, groups.getKey(0, 0));
+		assertEquals(919, groups.getKey(1, 0));
+		long total = 0;
+		for (int group = 0; group < groups.size(); group++) total += groups.getValue(group, 0);
+		assertEquals(10000L * 9999 / 2, total);
+
+		columns[0][0] = 0;
+		int group = groups.findOrInsert(columns, 0, keyColumns);
+		assertThrows(ArithmeticException.class, () -> groups.add(group, 0, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void SumSpill_test1() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			String name = "sum" + (i+1);
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			String inputFile = INPUT_DIR + File.separator + name + ".sql";
+
+			Parser parser = new Parser(inputFile);
+			Operator child = new ScanOperator(parser.getFromTable().toString());
+			if (parser.getTableOrder().size() > 1) {
+				Operator scanOperator2 = new ScanOperator(parser.getTableOrder().get(1));
+				child = new JoinOperator(child, scanOperator2, parser);
+			}
+			if (parser.getOrderByElements() != null) {
+				child = new SortOperator(child, parser);
+			}
+			Operator sumOperator = new SumOperator(child, parser, 1);
+			BlazeDB.execute(sumOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+
+			sumOperator.reset();
+			BlazeDB.execute(sumOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+		}
+	}
+
+	@Test
+	public void SumSpill_test2() throws IOException {
+		File tempDir = new File(System.getProperty("java.io.tmpdir"));
+		FilenameFilter runFiles = (dir, name) -> name.startsWith("blazedb-agg-");
+		int before = tempDir.list(runFiles).length;
+
+		Parser parser = new Parser(INPUT_DIR + File.separator + "sum1.sql");
+		Operator sumOperator = new SumOperator(new ScanOperator(parser.getFromTable().toString()), parser, 1);
+		assertTrue(tempDir.list(runFiles).length > before);
+		while (sumOperator.getNextTuple() != null) ;
+		assertEquals(before, tempDir.list(runFiles).length);
+	}
+
+	@Test
+	public void DistinctSpill_test1() throws IOException {
+		String outputFile = OUTPUT_DIR + File.separator + "distinct1.csv";
+		String expFile = EXP_DIR + File.separator + "distinct1.csv";
+		Parser parser = new Parser(INPUT_DIR + File.separator + "distinct1.sql");
+
+		for (int rowBudget : new int[] {1, 2, 1_000}) {
+			Operator scanOperator = new ScanOperator(parser.getFromTable().toString());
+			Operator scanOperator2 = new ScanOperator(parser.getTableOrder().get(1));
+			Operator joinOperator = new JoinOperator(scanOperator, scanOperator2, parser);
+			Operator sortOperator = new SortOperator(joinOperator, parser);
+			Operator projectOperator = new ProjectOperator(sortOperator, parser);
+			Operator distinctOperator = new DistinctOperator(projectOperator, rowBudget);
+			BlazeDB.execute(distinctOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+
+			distinctOperator.reset();
+			List<Tuple> tuples = new ArrayList<>();
+			Tuple tuple;
+			while ((tuple = distinctOperator.getNextTuple()) != null) {
+				tuples.add(tuple);
+			}
+			List<Tuple> expected = new ArrayList<>();
+			for (String line : Files.readAllLines(Paths.get(expFile))) {
+				if (!line.isBlank()) expected.add(Tuple.fromCSV(line));
+			}
+			assertEquals(expected, tuples);
+		}
+	}
+
+	@Test
+	public void Limit_test2() throws IOException {
+		String[] queries = {"SELECT * FROM Student LIMIT ALL OFFSET 1;", "SELECT * FROM Student LIMIT NULL OFFSET 1;",
+				"SELECT * FROM Student LIMIT 2 OFFSET 1;"};
+		Long[] limits = {null, null, 2L};
+		for (int i = 0; i < queries.length; i++) {
+			File queryFile = File.createTempFile("limit", ".sql");
+			queryFile.deleteOnExit();
+			Files.writeString(queryFile.toPath(), queries[i]);
+
+			Parser parser = new Parser(queryFile.getPath());
+			assertEquals(limits[i], parser.getLimit());
+			assertEquals(1, parser.getOffset());
+		}
+
+		String[] invalidQueries = {"SELECT * FROM Student LIMIT 1+1;", "SELECT * FROM Student LIMIT 2 OFFSET -1;"};
+		for (String query : invalidQueries) {
+			File queryFile = File.createTempFile("limit", ".sql");
+			queryFile.deleteOnExit();
+			Files.writeString(queryFile.toPath(), query);
+			assertThrows(query, IllegalArgumentException.class, () -> new Parser(queryFile.getPath()));
+		}
+	}
+
+	@Test
+	public void Limit_test3() throws IOException {
+		File queryFile = File.createTempFile("limit", ".sql");
+		queryFile.deleteOnExit();
+		Files.writeString(queryFile.toPath(), "SELECT * FROM Student ORDER BY Student.A LIMIT 9223372036854775807 OFFSET 1;");
+		Parser parser = new Parser(queryFile.getPath());
+
+		// LIMIT + OFFSET overflows, which must not turn the query into a Top-N of no rows
+		Operator plan = new Planner(Binder.bind(parser)).buildQueryPlan();
+		int rows = 0;
+		while (plan.getNextTuple() != null) rows++;
+		assertEquals(5, rows); // Student has 6 rows
+
+		assertThrows(IllegalArgumentException.class,
+				() -> new TopNOperator(new ScanOperator("Student"), parser, Long.MAX_VALUE, 1));
+	}
+
+	@Test
+	public void TopN_test1() throws IOException {
+		String outputFile = OUTPUT_DIR + File.separator + "limit1.csv";
+		String expFile = EXP_DIR + File.separator + "limit1.csv";
+		Parser parser = new Parser(INPUT_DIR + File.separator + "limit1.sql");
+		assertEquals(Long.valueOf(3), parser.getLimit());
+		assertEquals(2, parser.getOffset());
+
+		Operator topNOperator = new TopNOperator(new ScanOperator(parser.getFromTable().toString()), parser, 3, 2);
+		BlazeDB.execute(topNOperator, outputFile);
+		assertTrue(csvEquals(outputFile, expFile));
+
+		topNOperator.reset();
+		BlazeDB.execute(topNOperator, outputFile);
+		assertTrue(csvEquals(outputFile, expFile));
+
+		Operator sortOperator = new SortOperator(new ScanOperator(parser.getFromTable().toString()), parser);
+		Operator limitOperator = new LimitOperator(sortOperator, 3, 2);
+		BlazeDB.execute(limitOperator, outputFile);
+		assertTrue(csvEquals(outputFile, expFile));
+
+		// Every prefix of the sorted rows, including ties on Student.B, matches the full sort
+		for (int limit = 0; limit <= 7; limit++) {
+			Operator topN = new TopNOperator(new ScanOperator(parser.getFromTable().toString()), parser, limit, 0);
+			Operator sorted = new LimitOperator(new SortOperator(new ScanOperator(parser.getFromTable().toString()), parser), limit, 0);
+			Tuple tuple;
+			while ((tuple = sorted.getNextTuple()) != null) {
+				assertEquals(tuple, topN.getNextTuple());
+			}
+			assertEquals(null, topN.getNextTuple());
+		}
+	}
+
+	@Test
+	public void BlockNestedLoopJoin_test1() throws IOException {
+		for (String name : new String[] {"join1", "join3", "join8"}) {
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			Parser parser = new Parser(INPUT_DIR + File.separator + name + ".sql");
+
+			// Cached inner input, then inner input streamed once per left block
+			for (int bufferSize : new int[] {1_000, 2}) {
+				Operator joinOperator = new ScanOperator(parser.getTableOrder().get(0));
+				for (int t = 1; t < parser.getTableOrder().size(); t++) {
+					Operator scanOperator = new ScanOperator(parser.getTableOrder().get(t));
+					joinOperator = new BlockNestedLoopJoinOperator(joinOperator, scanOperator,
+							parser.getWhereClause(), bufferSize);
+				}
+				BlazeDB.execute(joinOperator, outputFile);
+				assertTrue(csvEquals(outputFile, expFile));
+
+				joinOperator.reset();
+				BlazeDB.execute(joinOperator, outputFile);
+				assertTrue(csvEquals(outputFile, expFile));
+			}
+		}
+	}
+
+	@Test
+	public void SortMergeJoin_test1() throws IOException {
+		Parser parser = new Parser(INPUT_DIR + File.separator + "join2.sql");
+		List<String> expected = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(EXP_DIR + File.separator + "join2.csv"))) {
+			if (!line.isBlank()) expected.add(Tuple.fromCSV(line).toCSV());
+		}
+		Collections.sort(expected);
+
+		// In-memory sorts, then sorts spilling runs of two tuples
+		for (int bufferSize : new int[] {1_000, 2}) {
+			Operator joinOperator = new SortMergeJoinOperator(new ScanOperator("Student"), new ScanOperator("Enrolled"),
+					List.of(0), List.of(0), null, bufferSize);
+			for (int pass = 0; pass < 2; pass++) {
+				List<String> rows = new ArrayList<>();
+				Tuple tuple;
+				Tuple previous = null;
+				while ((tuple = joinOperator.getNextTuple()) != null) {
+					rows.add(tuple.toCSV());
+					assertTrue(previous == null || previous.getValue(0) <= tuple.getValue(0)); // Ordered by join key
+					previous = tuple;
+				}
+				Collections.sort(rows);
+				assertEquals(expected, rows);
+				joinOperator.reset();
+			}
+		}
+	}
+
+	@Test
+	public void SortMergeJoin_test2() throws IOException {
+		// Duplicate keys on both sides: every pair of Enrolled tuples with the same student
+		List<Tuple> enrolled = new ArrayList<>();
+		Operator scanOperator = new ScanOperator("Enrolled");
+		Tuple tuple;
+		while ((tuple = scanOperator.getNextTuple()) != null) {
+			enrolled.add(tuple);
+		}
+		List<String> expected = new ArrayList<>();
+		for (Tuple left : enrolled) {
+			for (Tuple right : enrolled) {
+				if (left.getValue(0) == right.getValue(0)) expected.add(Tuple.concat(left, right).toCSV());
+			}
+		}
+		Collections.sort(expected);
+
+		Operator joinOperator = new SortMergeJoinOperator(new ScanOperator("Enrolled"), new ScanOperator("Enrolled"),
+				List.of(0), List.of(0), null, 3);
+		List<String> rows = new ArrayList<>();
+		while ((tuple = joinOperator.getNextTuple()) != null) {
+			rows.add(tuple.toCSV());
+		}
+		Collections.sort(rows);
+		assertEquals(expected, rows);
+	}
+
+	@Test
+	public void ParallelScan_test1() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int i = 0; i < 5; i++) {
+			String name = "select" + (i+1);
+			String outputFile = OUTPUT_DIR + File.separator + name + ".csv";
+			String expFile = EXP_DIR + File.separator + name + ".csv";
+			Parser parser = new Parser(INPUT_DIR + File.separator + name + ".sql");
+
+			// Morsels of a few rows, so that every table is split
+			ParallelScanOperator scanOperator = new ParallelScanOperator(parser.getFromTable().toString(),
+					source -> new SelectOperator(source, parser), 16, pool);
+			assertTrue(scanOperator.getMorselCount() > 1);
+			Operator projectOperator = new ProjectOperator(scanOperator, parser);
+			BlazeDB.execute(projectOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+
+			projectOperator.reset();
+			BlazeDB.execute(projectOperator, outputFile);
+			assertTrue(csvEquals(outputFile, expFile));
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Returns the tuples of an operator repeated a number of times, to build large inputs.
+	 */
+	private static Operator repeat(Operator child, int times) {
+		return new Operator() {
+			private int round = 0;
+
+			{
+				schema = child.getSchema();
+			}
+
+			@Override
+			public Tuple getNextTuple() {
+				while (round < times) {
+					Tuple tuple = child.getNextTuple();
+					if (tuple != null) return tuple;
+					child.reset();
+					round++;
+				}
+				return null;
+			}
+
+			@Override
+			public void reset() {
+				child.reset();
+				round = 0;
+			}
+		};
+	}
+
+	@Test
+	public void SumParallel_test1() throws IOException {
+		ExecutionConfig config = ExecutionConfig.getInstance();
+		int parallelism = config.getParallelism();
+		try {
+			for (int i = 0; i < 3; i++) {
+				Parser parser = new Parser(INPUT_DIR + File.separator + "sum" + (i+1) + ".sql");
+				List<List<Tuple>> results = new ArrayList<>();
+				for (int workers : new int[] {1, 4}) {
+					config.setParallelism(workers);
+					Operator child = new ScanOperator(parser.getFromTable().toString());
+					if (parser.getTableOrder().size() > 1) {
+						Operator scanOperator2 = new ScanOperator(parser.getTableOrder().get(1));
+						child = new JoinOperator(child, scanOperator2, parser);
+					}
+					// Enough rows for several pre-aggregated chunks
+					child = repeat(child, 20_000);
+					if (parser.getOrderByElements() != null) {
+						child = new SortOperator(child, parser);
+					}
+
+					for (int groupBudget : new int[] {1, 1_000}) {
+						child.reset();
+						Operator sumOperator = new SumOperator(child, parser, groupBudget);
+						List<Tuple> tuples = new ArrayList<>();
+						Tuple tuple;
+						while ((tuple = sumOperator.getNextTuple()) != null) {
+							tuples.add(tuple);
+						}
+						assertFalse(tuples.isEmpty());
+						results.add(tuples);
+					}
+				}
+				for (List<Tuple> tuples : results) {
+					assertEquals(results.get(0), tuples);
+				}
+			}
+		} finally {
+			config.setParallelism(parallelism);
+		}
+	}
+
+	@Test
+	public void DistinctParallel_test1() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		// Duplicates within the chunks of the workers, rounds spanning several chunks, and a spilled table
+		int[][] inputs = {{1_000, 100, 1_000_000}, {40_000, 3, 1_000_000}, {1_000, 40, 500}};
+		for (int[] input : inputs) {
+			Operator serial = new DistinctOperator(repeat(sequence("A", "B", input[0], 7), input[1]), input[2], null);
+			Operator parallel = new DistinctOperator(repeat(sequence("A", "B", input[0], 7), input[1]), input[2], pool);
+			for (int run = 0; run < 2; run++) {
+				List<Tuple> expected = new ArrayList<>();
+				List<Tuple> tuples = new ArrayList<>();
+				Tuple tuple;
+				while ((tuple = serial.getNextTuple()) != null) {
+					expected.add(tuple);
+				}
+				while ((tuple = parallel.getNextTuple()) != null) {
+					tuples.add(tuple);
+				}
+				assertEquals(input[0], expected.size());
+				assertEquals(expected, tuples);
+				serial.reset();
+				parallel.reset();
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Returns rows (i, i % modulo) for i from 0 to count - 1, under the given column names.
+	 */
+	private static Operator sequence(String first, String second, int count, int modulo) {
+		return new Operator() {
+			private int next = 0;
+
+			{
+				schema = new Schema(List.of(first, second));
+			}
+
+			@Override
+			public Tuple getNextTuple() {
+				if (next >= count) return null;
+				Tuple tuple = new Tuple(new long[] {next, next % modulo});
+				next++;
+				return tuple;
+			}
+
+			@Override
+			public void reset() {
+				next = 0;
+			}
+		};
+	}
+
+	@Test
+	public void ParallelHashJoin_test1() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Expression[] conditions = {null, CCJSqlParserUtil.parseCondExpression("L.A < R.C")};
+		for (Expression condition : conditions) {
+			// Large enough for a parallel build and several probe chunks, with duplicate keys on both sides
+			Operator hashJoin = new HashJoinOperator(sequence("L.A", "L.B", 50_000, 7919),
+					sequence("R.C", "R.D", 40_000, 10007), List.of(1), List.of(1), condition);
+			Operator parallelJoin = new ParallelHashJoinOperator(sequence("L.A", "L.B", 50_000, 7919),
+					sequence("R.C", "R.D", 40_000, 10007), List.of(1), List.of(1), condition, pool);
+			assertEquals(hashJoin.getSchema().getColumns(), parallelJoin.getSchema().getColumns());
+
+			List<Tuple> expected = new ArrayList<>();
+			Tuple tuple;
+			while ((tuple = hashJoin.getNextTuple()) != null) {
+				expected.add(tuple);
+			}
+			assertFalse(expected.isEmpty());
+			for (int run = 0; run < 2; run++) {
+				List<Tuple> actual = new ArrayList<>();
+				while ((tuple = parallelJoin.getNextTuple()) != null) {
+					actual.add(tuple);
+				}
+				assertEquals(expected, actual);
+				parallelJoin.reset();
+			}
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void RadixJoin_test1() throws Exception {
+		Expression[] conditions = {null, CCJSqlParserUtil.parseCondExpression("L.A < R.C")};
+		for (Expression condition : conditions) {
+			for (ForkJoinPool pool : new ForkJoinPool[] {null, new ForkJoinPool(4)}) {
+				// Enough build rows for several partitions, with duplicate keys on both sides
+				Operator hashJoin = new HashJoinOperator(sequence("L.A", "L.B", 50_000, 7919),
+						sequence("R.C", "R.D", 40_000, 10007), List.of(1), List.of(1), condition);
+				Operator radixJoin = new RadixJoinOperator(sequence("L.A", "L.B", 50_000, 7919),
+						sequence("R.C", "R.D", 40_000, 10007), List.of(1), List.of(1), condition, pool);
+
+				List<Tuple> expected = new ArrayList<>();
+				Tuple tuple;
+				while ((tuple = hashJoin.getNextTuple()) != null) {
+					expected.add(tuple);
+				}
+				assertFalse(expected.isEmpty());
+				for (int run = 0; run < 2; run++) {
+					List<Tuple> actual = new ArrayList<>();
+					while ((tuple = radixJoin.getNextTuple()) != null) {
+						actual.add(tuple);
+					}
+					assertEquals(expected, actual);
+					radixJoin.reset();
+				}
+				if (pool != null) pool.shutdown();
+			}
+		}
+
+		// Composite join key
+		Operator hashJoin = new HashJoinOperator(sequence("L.A", "L.B", 30_000, 101),
+				sequence("R.C", "R.D", 30_000, 103), List.of(1, 0), List.of(1, 0), (Expression) null);
+		Operator radixJoin = new RadixJoinOperator(sequence("L.A", "L.B", 30_000, 101),
+				sequence("R.C", "R.D", 30_000, 103), List.of(1, 0), List.of(1, 0), null, null);
+		Tuple tuple;
+		while ((tuple = hashJoin.getNextTuple()) != null) {
+			assertEquals(tuple, radixJoin.getNextTuple());
+		}
+		assertEquals(null, radixJoin.getNextTuple());
+	}
+
+	@Test
+	public void BloomFilter_test1() {
+		BloomFilter filter = new BloomFilter(10_000);
+		for (long key = 0; key < 10_000; key++) {
+			filter.add(key * 7);
+		}
+		for (long key = 0; key < 10_000; key++) {
+			assertTrue(filter.mightContain(key * 7));
+		}
+		int falsePositives = 0;
+		for (long key = 0; key < 10_000; key++) {
+			if (filter.mightContain(key * 7 + 1)) falsePositives++;
+		}
+		assertTrue(falsePositives < 500);
+	}
+
+	@Test
+	public void SemiJoinFilter_test1() {
+		SemiJoinFilter filter = new SemiJoinFilter("L.B", "R.D");
+		Operator probe = new SemiJoinFilterOperator(sequence("L.A", "L.B", 50_000, 7919), List.of(filter));
+		Operator build = new SemiJoinBuildOperator(sequence("R.C", "R.D", 1_000, 997), List.of(filter));
+
+		// Not published yet: every probe row goes through
+		int rows = 0;
+		while (probe.getNextTuple() != null) rows++;
+		assertEquals(50_000, rows);
+		probe.reset();
+
+		Operator hashJoin = new HashJoinOperator(sequence("L.A", "L.B", 50_000, 7919),
+				sequence("R.C", "R.D", 1_000, 997), List.of(1), List.of(1), (Expression) null);
+		Operator filteredJoin = new HashJoinOperator(probe, build, List.of(1), List.of(1), (Expression) null);
+		assertEquals(null, filter.getKeys()); // The build side is read on the first pull
+
+		Tuple tuple;
+		while ((tuple = hashJoin.getNextTuple()) != null) {
+			assertEquals(tuple, filteredJoin.getNextTuple());
+			assertTrue(filter.getKeys() != null);
+		}
+		assertEquals(null, filteredJoin.getNextTuple());
+
+		// Rows without a match are dropped, up to false positives
+		probe.reset();
+		rows = 0;
+		TupleBatch batch;
+		while ((batch = probe.getNextBatch()) != null) rows += batch.getSize();
+		assertTrue(rows < 50_000 * 997 / 7919 + 2_500);
+	}
+
+	@Test
+	public void SemiJoinFilter_test2() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int joinType = 0; joinType < 4; joinType++) {
+			// L joins M, then R joins both; the keys of R filter the scans of L and M, which
+			// must not be read before R has been
+			SemiJoinFilter leftFilter = new SemiJoinFilter("L.B", "R.D");
+			SemiJoinFilter middleFilter = new SemiJoinFilter("M.F", "R.D");
+			boolean[] published = new boolean[2];
+			Operator left = new SemiJoinFilterOperator(
+					checkPublishedOnRead(sequence("L.A", "L.B", 20_000, 499), leftFilter, published, 0), List.of(leftFilter));
+			Operator middle = new SemiJoinFilterOperator(
+					checkPublishedOnRead(sequence("M.E", "M.F", 2_000, 499), middleFilter, published, 1), List.of(middleFilter));
+			Operator right = new SemiJoinBuildOperator(sequence("R.C", "R.D", 100, 97), List.of(leftFilter, middleFilter));
+
+			Operator join;
+			if (joinType == 0) {
+				join = new HashJoinOperator(left, middle, List.of(1), List.of(1), (Expression) null);
+			} else if (joinType == 1) {
+				join = new ParallelHashJoinOperator(left, middle, List.of(1), List.of(1), null, pool);
+			} else if (joinType == 2) {
+				join = new RadixJoinOperator(left, middle, List.of(1), List.of(1), null, pool);
+			} else {
+				join = new SortMergeJoinOperator(left, middle, List.of(1), List.of(1), null);
+			}
+			join = new HashJoinOperator(join, right, List.of(1), List.of(1), (Expression) null);
+
+			Operator unfiltered = new HashJoinOperator(
+					new HashJoinOperator(sequence("L.A", "L.B", 20_000, 499), sequence("M.E", "M.F", 2_000, 499),
+							List.of(1), List.of(1), (Expression) null),
+					sequence("R.C", "R.D", 100, 97), List.of(1), List.of(1), (Expression) null);
+			int rows = 0;
+			while (join.getNextTuple() != null) rows++;
+			int expectedRows = 0;
+			while (unfiltered.getNextTuple() != null) expectedRows++;
+			assertTrue(published[0]);
+			assertTrue(published[1]);
+			assertEquals(expectedRows, rows);
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Wraps a scan, recording whether a semi-join filter is published when it is first read.
+	 */
+	private static Operator checkPublishedOnRead(Operator child, SemiJoinFilter filter, boolean[] published, int index) {
+		return new Operator() {
+			private boolean read = false;
+
+			{
+				schema = child.getSchema();
+			}
+
+			@Override
+			public Tuple getNextTuple() {
+				if (!read) {
+					published[index] = filter.getKeys() != null;
+					read = true;
+				}
+				return child.getNextTuple();
+			}
+
+			@Override
+			public void reset() {
+				child.reset();
+			}
+		};
+	}
 }